@@ -19,7 +19,6 @@ package org.terracotta.context;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -28,15 +27,21 @@ abstract class AbstractTreeNode implements TreeNode {
 
   private final CopyOnWriteArraySet<AbstractTreeNode> children = new CopyOnWriteArraySet<>();
 
+  /*
+   * Only root nodes carry listeners, so notifications are driven from the (cached) set of root ancestors rather than
+   * from the full ancestor set.
+   */
   public boolean addChild(AbstractTreeNode child) {
     synchronized (this) {
-      Collection<AbstractTreeNode> ancestors = new HashSet<>(getAncestors());
-      ancestors.removeAll(child.getAncestors());
+      Set<RootNode> roots = getRootAncestors();
+      Set<RootNode> childRoots = child.getRootAncestors();
       if (children.add(child)) {
         child.addedParent(this);
-        for (AbstractTreeNode ancestor : ancestors) {
-          for (ContextListener listener : ancestor.getListeners()) {
-            listener.graphAdded(this, child);
+        for (RootNode root : roots) {
+          if (!childRoots.contains(root)) {
+            for (ContextListener listener : root.getListeners()) {
+              listener.graphAdded(this, child);
+            }
           }
         }
         return true;
@@ -50,11 +55,13 @@ abstract class AbstractTreeNode implements TreeNode {
     synchronized (this) {
       if (children.remove(child)) {
         child.removedParent(this);
-        Collection<AbstractTreeNode> ancestors = new HashSet<>(getAncestors());
-        ancestors.removeAll(child.getAncestors());
-        for (AbstractTreeNode ancestor : ancestors) {
-          for (ContextListener listener : ancestor.getListeners()) {
-            listener.graphRemoved(this, child);
+        Set<RootNode> roots = getRootAncestors();
+        Set<RootNode> childRoots = child.getRootAncestors();
+        for (RootNode root : roots) {
+          if (!childRoots.contains(root)) {
+            for (ContextListener listener : root.getListeners()) {
+              listener.graphRemoved(this, child);
+            }
           }
         }
         return true;
@@ -71,6 +78,10 @@ abstract class AbstractTreeNode implements TreeNode {
 
   @Override
   public List<? extends TreeNode> getPath() {
+    List<? extends TreeNode> path = getUniquePath();
+    if (path != null) {
+      return path;
+    }
     Collection<List<? extends TreeNode>> paths = getPaths();
     if (paths.size() == 1) {
       return paths.iterator().next();
@@ -102,6 +113,24 @@ abstract class AbstractTreeNode implements TreeNode {
 
   abstract Set<AbstractTreeNode> getAncestors();
 
+  abstract Collection<AbstractTreeNode> getParents();
+
+  /**
+   * Returns the root nodes from which this node is reachable, excluding this node itself.
+   *
+   * @return the root ancestors of this node
+   */
+  abstract Set<RootNode> getRootAncestors();
+
+  /**
+   * Returns the unique path to this node when every node on it has a single parent.
+   *
+   * @return the unique path, or {@code null} if it cannot be cheaply determined
+   */
+  List<? extends TreeNode> getUniquePath() {
+    return null;
+  }
+
   abstract Collection<ContextListener> getListeners();
 
   @Override
@@ -109,7 +138,7 @@ abstract class AbstractTreeNode implements TreeNode {
     for (AbstractTreeNode child : getChildren()) {
       removeChild(child);
     }
-    for (AbstractTreeNode parent : getAncestors()) {
+    for (AbstractTreeNode parent : getParents()) {
       parent.removeChild(this);
     }
   }
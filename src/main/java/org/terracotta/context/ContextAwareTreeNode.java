@@ -16,28 +16,29 @@
  */
 package org.terracotta.context;
 
-import org.terracotta.statistics.StatisticsManager;
-
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 /**
  * Node used to wrap real tree node to keep the context object. Only used
- * by {@link ContextManager#nodeFor(Object)} to allow the fluent interface
+ * by {@link ContextRegistry#nodeFor(Object)} to allow the fluent interface
  * to forward the context to {@link TreeNode} methods.
  * <p>
  * Currently, the only method using it is {@link ContextAwareTreeNode#clean()}
- * that will make sure the context is removed from the {@link org.terracotta.statistics.PassThroughStatistic}
+ * that will make sure the objects retained for the context (e.g. pass-through
+ * statistics) are released from the owning {@link ContextRegistry}
  */
 class ContextAwareTreeNode implements TreeNode {
 
   private final Object context;
   private final TreeNode wrappedNode;
+  private final ContextRegistry registry;
 
-  public ContextAwareTreeNode(TreeNode node, Object context) {
+  public ContextAwareTreeNode(TreeNode node, Object context, ContextRegistry registry) {
     this.context = context;
     this.wrappedNode = node;
+    this.registry = registry;
   }
 
   @Override
@@ -68,6 +69,6 @@ class ContextAwareTreeNode implements TreeNode {
   @Override
   public void clean() {
     wrappedNode.clean();
-    StatisticsManager.removePassThroughStatistics(context);
+    registry.release(context);
   }
 }
@@ -23,4 +23,16 @@ public interface ContextCreationListener {
 
   void contextCreated(Object object);
 
+  /**
+   * Called when a context is created within the given registry.
+   * <p>
+   * By default this delegates to {@link #contextCreated(Object)}.
+   *
+   * @param registry registry in which the context was created
+   * @param object   the context object
+   */
+  default void contextCreated(ContextRegistry registry, Object object) {
+    contextCreated(object);
+  }
+
 }
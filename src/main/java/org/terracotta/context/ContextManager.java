@@ -16,15 +16,9 @@
  */
 package org.terracotta.context;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.terracotta.context.annotations.ContextChild;
-import org.terracotta.context.annotations.ContextParent;
-import org.terracotta.context.extractor.ObjectContextExtractor;
 import org.terracotta.context.query.Query;
 import org.terracotta.context.query.QueryBuilder;
 
-import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
@@ -34,16 +28,32 @@ import static org.terracotta.context.query.QueryBuilder.queryBuilder;
 
 /**
  * A {@code ContextManager} instances allows for rooting, querying and access
- * to select portions of the global context graph.
+ * to select portions of a context graph.  By default the global context graph
+ * is used, an independent {@link ContextRegistry} may be supplied instead.
  */
 public class ContextManager {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(ContextManager.class);
-  private static final WeakIdentityHashMap<Object, MutableTreeNode> CONTEXT_OBJECTS = new WeakIdentityHashMap<>();
   private static final Collection<ContextCreationListener> contextCreationListeners = new CopyOnWriteArrayList<>();
 
+  private final ContextRegistry registry;
   private final RootNode root = new RootNode();
 
+  /**
+   * Create a {@code ContextManager} over the {@link ContextRegistry#global() global} context registry.
+   */
+  public ContextManager() {
+    this(ContextRegistry.global());
+  }
+
+  /**
+   * Create a {@code ContextManager} over the supplied context registry.
+   *
+   * @param registry the registry whose nodes this manager roots
+   */
+  public ContextManager(ContextRegistry registry) {
+    this.registry = registry;
+  }
+
   /**
    * Create an {@code Association} instance for the supplied object.
    *
@@ -51,20 +61,7 @@ public class ContextManager {
    * @return an association instance
    */
   public static Association associate(final Object object) {
-    return new Association() {
-
-      @Override
-      public Association withChild(Object child) {
-        associate(child, object);
-        return this;
-      }
-
-      @Override
-      public Association withParent(Object parent) {
-        associate(object, parent);
-        return this;
-      }
-    };
+    return ContextRegistry.global().associate(object);
   }
 
   /**
@@ -74,20 +71,7 @@ public class ContextManager {
    * @return a dissociation instance
    */
   public static Dissociation dissociate(final Object object) {
-    return new Dissociation() {
-
-      @Override
-      public Dissociation fromChild(Object child) {
-        dissociate(child, object);
-        return this;
-      }
-
-      @Override
-      public Dissociation fromParent(Object parent) {
-        dissociate(object, parent);
-        return this;
-      }
-    };
+    return ContextRegistry.global().dissociate(object);
   }
 
   /**
@@ -99,8 +83,7 @@ public class ContextManager {
    * @return {@code TreeNode} associated with this object
    */
   public static TreeNode nodeFor(Object object) {
-    TreeNode node = getTreeNode(object);
-    return node == null ? null : new ContextAwareTreeNode(node, object);
+    return ContextRegistry.global().nodeFor(object);
   }
 
   public static void registerContextCreationListener(ContextCreationListener listener) {
@@ -111,78 +94,19 @@ public class ContextManager {
     contextCreationListeners.remove(listener);
   }
 
-  private static void associate(Object child, Object parent) {
-    getOrCreateTreeNode(parent).addChild(getOrCreateTreeNode(child));
-  }
-
-  private static void dissociate(Object child, Object parent) {
-    getTreeNode(parent).removeChild(getTreeNode(child));
-  }
-
-  private static MutableTreeNode getTreeNode(Object object) {
-    return CONTEXT_OBJECTS.get(object);
-  }
-
-  private static MutableTreeNode getOrCreateTreeNode(Object object) {
-    MutableTreeNode node = CONTEXT_OBJECTS.get(object);
-
-    if (node == null) {
-      ContextElement context = ObjectContextExtractor.extract(object);
-      node = new MutableTreeNode(context);
-      MutableTreeNode racer = CONTEXT_OBJECTS.putIfAbsent(object, node);
-      if (racer != null) {
-        return racer;
-      } else {
-        discoverAssociations(object);
-        contextCreated(object);
-        return node;
-      }
-    } else {
-      return node;
-    }
-  }
-
-  private static void discoverAssociations(Object origin) {
-    for (Class<?> c = origin.getClass(); c != null; c = c.getSuperclass()) {
-      for (Field f : c.getDeclaredFields()) {
-        if (f.isAnnotationPresent(ContextChild.class)) {
-          f.setAccessible(true);
-          Object child;
-          try {
-            child = f.get(origin);
-          } catch (IllegalArgumentException ex) {
-            throw new AssertionError(ex);
-          } catch (IllegalAccessException ex) {
-            LOGGER.warn("Failed to traverse {} due to: {}", f, ex);
-            continue;
-          }
-          if (child != null) {
-            associate(child, origin);
-          }
-        }
-        if (f.isAnnotationPresent(ContextParent.class)) {
-          f.setAccessible(true);
-          Object parent;
-          try {
-            parent = f.get(origin);
-          } catch (IllegalArgumentException ex) {
-            throw new AssertionError(ex);
-          } catch (IllegalAccessException ex) {
-            LOGGER.warn("Failed to traverse {} due to: {}", f, ex);
-            continue;
-          }
-          if (parent != null) {
-            associate(origin, parent);
-          }
-        }
-      }
+  static void contextCreated(ContextRegistry registry, Object object) {
+    for (ContextCreationListener listener : contextCreationListeners) {
+      listener.contextCreated(registry, object);
     }
   }
 
-  private static void contextCreated(Object object) {
-    for (ContextCreationListener listener : contextCreationListeners) {
-      listener.contextCreated(object);
-    }
+  /**
+   * Returns the context registry this manager operates on.
+   *
+   * @return the context registry
+   */
+  public ContextRegistry registry() {
+    return registry;
   }
 
   /**
@@ -192,7 +116,7 @@ public class ContextManager {
    * @param object object whose context will be rooted
    */
   public void root(Object object) {
-    root.addChild(getOrCreateTreeNode(object));
+    root.addChild(registry.getOrCreateTreeNode(object));
   }
 
   /**
@@ -202,7 +126,7 @@ public class ContextManager {
    * @param object object whose context will be uprooted
    */
   public void uproot(Object object) {
-    root.removeChild(getTreeNode(object));
+    root.removeChild(registry.getTreeNode(object));
   }
 
   /**
@@ -0,0 +1,265 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.context.ContextManager.Association;
+import org.terracotta.context.ContextManager.Dissociation;
+import org.terracotta.context.annotations.ContextChild;
+import org.terracotta.context.annotations.ContextParent;
+import org.terracotta.context.extractor.ContextBinder;
+import org.terracotta.context.extractor.ContextBinders;
+import org.terracotta.context.extractor.ObjectContextExtractor;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An independent context graph.
+ * <p>
+ * Each registry maps objects to their context nodes and keeps the objects that must live as long as a context object
+ * (e.g. pass-through statistics) reachable.  Associations, lookups and queries never cross registries, so unrelated
+ * subsystems (e.g. separate cache managers) can each use their own registry and avoid contending on a single
+ * JVM-wide graph.  The static methods of {@link ContextManager} operate on the {@link #global() global} registry.
+ */
+public final class ContextRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ContextRegistry.class);
+
+  private static final ContextRegistry GLOBAL = new ContextRegistry();
+
+  private volatile State state = new State();
+
+  /**
+   * Creates a new, empty, context registry.
+   */
+  public ContextRegistry() {
+    //empty
+  }
+
+  /**
+   * Returns the JVM-wide registry used by the static {@link ContextManager} methods.
+   *
+   * @return the global registry
+   */
+  public static ContextRegistry global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Create an {@code Association} instance for the supplied object within this registry.
+   *
+   * @param object the object to be associated
+   * @return an association instance
+   */
+  public Association associate(final Object object) {
+    return new Association() {
+
+      @Override
+      public Association withChild(Object child) {
+        associate(child, object);
+        return this;
+      }
+
+      @Override
+      public Association withParent(Object parent) {
+        associate(object, parent);
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Create a {@code Dissociation} instance for the supplied object within this registry.
+   *
+   * @param object the object to be dissociated
+   * @return a dissociation instance
+   */
+  public Dissociation dissociate(final Object object) {
+    return new Dissociation() {
+
+      @Override
+      public Dissociation fromChild(Object child) {
+        dissociate(child, object);
+        return this;
+      }
+
+      @Override
+      public Dissociation fromParent(Object parent) {
+        dissociate(object, parent);
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Return the {@code TreeNode} associated with this object in this registry.
+   * <p>
+   * Returns {@code null} if the supplied object has no associated context node.
+   *
+   * @param object object to lookup node for
+   * @return {@code TreeNode} associated with this object
+   */
+  public TreeNode nodeFor(Object object) {
+    TreeNode node = getTreeNode(object);
+    return node == null ? null : new ContextAwareTreeNode(node, object, this);
+  }
+
+  /**
+   * Keeps {@code dependent} strongly reachable for as long as {@code owner} is reachable, or until
+   * {@link #release(Object) released}.
+   *
+   * @param owner     the owning object
+   * @param dependent the dependent object
+   */
+  public void retain(Object owner, Object dependent) {
+    WeakIdentityHashMap<Object, Collection<Object>> retained = state.retained;
+    Collection<Object> collection = retained.get(owner);
+    if (collection == null) {
+      collection = new CopyOnWriteArrayList<>();
+      Collection<Object> racer = retained.putIfAbsent(owner, collection);
+      if (racer != null) {
+        collection = racer;
+      }
+    }
+    collection.add(dependent);
+  }
+
+  /**
+   * Releases all objects retained on behalf of {@code owner}.
+   *
+   * @param owner the owning object
+   */
+  public void release(Object owner) {
+    state.retained.remove(owner);
+  }
+
+  /**
+   * Returns {@code true} if objects are currently retained on behalf of {@code owner}.
+   *
+   * @param owner the owning object
+   * @return {@code true} if {@code owner} has retained objects
+   */
+  public boolean retains(Object owner) {
+    return state.retained.get(owner) != null;
+  }
+
+  /**
+   * Discards every context node and retained object in this registry.
+   * <p>
+   * This is a constant time operation: the existing graph is simply dropped and left to the garbage collector.
+   * {@code ContextManager} instances using this registry keep any previously rooted nodes until they are uprooted.
+   */
+  public void clear() {
+    state = new State();
+  }
+
+  MutableTreeNode getTreeNode(Object object) {
+    return state.contexts.get(object);
+  }
+
+  MutableTreeNode getOrCreateTreeNode(Object object) {
+    WeakIdentityHashMap<Object, MutableTreeNode> contexts = state.contexts;
+    MutableTreeNode node = contexts.get(object);
+
+    if (node == null) {
+      ContextElement context = ObjectContextExtractor.extract(object);
+      node = new MutableTreeNode(context);
+      MutableTreeNode racer = contexts.putIfAbsent(object, node);
+      if (racer != null) {
+        return racer;
+      } else {
+        discoverAssociations(object);
+        ContextManager.contextCreated(this, object);
+        return node;
+      }
+    } else {
+      return node;
+    }
+  }
+
+  private void associate(Object child, Object parent) {
+    getOrCreateTreeNode(parent).addChild(getOrCreateTreeNode(child));
+  }
+
+  private void dissociate(Object child, Object parent) {
+    getTreeNode(parent).removeChild(getTreeNode(child));
+  }
+
+  private void discoverAssociations(Object origin) {
+    ContextBinder binder = ContextBinders.binderFor(origin.getClass());
+    if (binder != null) {
+      binder.bindAssociations(origin, new ContextBinder.AssociationSink() {
+        @Override
+        public void child(Object child) {
+          if (child != null) {
+            associate(child, origin);
+          }
+        }
+
+        @Override
+        public void parent(Object parent) {
+          if (parent != null) {
+            associate(origin, parent);
+          }
+        }
+      });
+      return;
+    }
+    for (Class<?> c = origin.getClass(); c != null; c = c.getSuperclass()) {
+      for (Field f : c.getDeclaredFields()) {
+        if (f.isAnnotationPresent(ContextChild.class)) {
+          f.setAccessible(true);
+          Object child;
+          try {
+            child = f.get(origin);
+          } catch (IllegalArgumentException ex) {
+            throw new AssertionError(ex);
+          } catch (IllegalAccessException ex) {
+            LOGGER.warn("Failed to traverse {} due to: {}", f, ex);
+            continue;
+          }
+          if (child != null) {
+            associate(child, origin);
+          }
+        }
+        if (f.isAnnotationPresent(ContextParent.class)) {
+          f.setAccessible(true);
+          Object parent;
+          try {
+            parent = f.get(origin);
+          } catch (IllegalArgumentException ex) {
+            throw new AssertionError(ex);
+          } catch (IllegalAccessException ex) {
+            LOGGER.warn("Failed to traverse {} due to: {}", f, ex);
+            continue;
+          }
+          if (parent != null) {
+            associate(origin, parent);
+          }
+        }
+      }
+    }
+  }
+
+  private static final class State {
+    private final WeakIdentityHashMap<Object, MutableTreeNode> contexts = new WeakIdentityHashMap<>();
+    private final WeakIdentityHashMap<Object, Collection<Object>> retained = new WeakIdentityHashMap<>();
+  }
+}
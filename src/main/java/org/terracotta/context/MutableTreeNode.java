@@ -16,19 +16,31 @@
  */
 package org.terracotta.context;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 class MutableTreeNode extends AbstractTreeNode {
 
+  private static final AtomicReferenceFieldUpdater<MutableTreeNode, RootAncestors> ROOT_ANCESTORS_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(MutableTreeNode.class, RootAncestors.class, "rootAncestors");
+
   private final CopyOnWriteArraySet<AbstractTreeNode> parents = new CopyOnWriteArraySet<>();
   private final ContextElement context;
 
+  /*
+   * Cached root ancestors: a holder with null roots marks the cache as invalid.  Each invalidation installs a new
+   * holder instance so that a computation racing with an invalidation fails to store its (possibly stale) result.
+   */
+  private volatile RootAncestors rootAncestors = RootAncestors.invalid();
+
   public MutableTreeNode(ContextElement context) {
     this.context = context;
   }
@@ -53,6 +65,78 @@ class MutableTreeNode extends AbstractTreeNode {
     return Collections.unmodifiableSet(ancestors);
   }
 
+  @Override
+  Collection<AbstractTreeNode> getParents() {
+    return Collections.unmodifiableSet(parents);
+  }
+
+  @Override
+  Set<RootNode> getRootAncestors() {
+    RootAncestors cached = rootAncestors;
+    if (cached.roots != null) {
+      return cached.roots;
+    }
+
+    Set<RootNode> roots = Collections.emptySet();
+    for (AbstractTreeNode parent : parents) {
+      roots = union(roots, parent.getRootAncestors());
+      if (parent instanceof RootNode && !roots.contains(parent)) {
+        roots = union(roots, Collections.singleton((RootNode) parent));
+      }
+    }
+    ROOT_ANCESTORS_UPDATER.compareAndSet(this, cached, new RootAncestors(roots));
+    return roots;
+  }
+
+  private static Set<RootNode> union(Set<RootNode> a, Set<RootNode> b) {
+    if (b.isEmpty() || a.containsAll(b)) {
+      return a;
+    } else if (a.isEmpty()) {
+      return b;
+    } else {
+      Set<RootNode> union = Collections.newSetFromMap(new IdentityHashMap<>());
+      union.addAll(a);
+      union.addAll(b);
+      return Collections.unmodifiableSet(union);
+    }
+  }
+
+  /*
+   * Invalidates the cached root ancestors of this node and of every node beneath it.  Links are always modified
+   * before invalidating, and invalidation proceeds top-down, so a concurrent computation either observes the new
+   * topology or fails to publish its result.
+   */
+  private void invalidateRootAncestors() {
+    Set<AbstractTreeNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<AbstractTreeNode> pending = new ArrayDeque<>();
+    pending.push(this);
+    while (!pending.isEmpty()) {
+      AbstractTreeNode node = pending.pop();
+      if (visited.add(node) && node instanceof MutableTreeNode) {
+        ((MutableTreeNode) node).rootAncestors = RootAncestors.invalid();
+        for (AbstractTreeNode child : node.getChildren()) {
+          pending.push(child);
+        }
+      }
+    }
+  }
+
+  @Override
+  List<? extends TreeNode> getUniquePath() {
+    ArrayList<TreeNode> path = new ArrayList<>();
+    AbstractTreeNode node = this;
+    while (!(node instanceof RootNode)) {
+      Collection<AbstractTreeNode> nodeParents = node.getParents();
+      if (nodeParents.size() != 1) {
+        return null;
+      }
+      path.add(node);
+      node = nodeParents.iterator().next();
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
   @Override
   public Collection<ContextListener> getListeners() {
     return Collections.emptyList();
@@ -61,11 +145,13 @@ class MutableTreeNode extends AbstractTreeNode {
   @Override
   void addedParent(AbstractTreeNode parent) {
     parents.add(parent);
+    invalidateRootAncestors();
   }
 
   @Override
   void removedParent(AbstractTreeNode parent) {
     parents.remove(parent);
+    invalidateRootAncestors();
   }
 
   @Override
@@ -81,4 +167,17 @@ class MutableTreeNode extends AbstractTreeNode {
     }
     return paths;
   }
+
+  private static final class RootAncestors {
+
+    private final Set<RootNode> roots;
+
+    RootAncestors(Set<RootNode> roots) {
+      this.roots = roots;
+    }
+
+    static RootAncestors invalid() {
+      return new RootAncestors(null);
+    }
+  }
 }
@@ -41,6 +41,16 @@ class RootNode extends AbstractTreeNode {
     return Collections.emptySet();
   }
 
+  @Override
+  Collection<AbstractTreeNode> getParents() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  Set<RootNode> getRootAncestors() {
+    return Collections.emptySet();
+  }
+
   @Override
   Collection<ContextListener> getListeners() {
     return Collections.unmodifiableCollection(listeners);
@@ -24,32 +24,63 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A concurrent map that holds its keys weakly and compares them by identity.
+ * <p>
+ * Lookups and removals probe the backing map with a per-thread reusable key and so do not allocate.  Entries whose
+ * keys have been collected are removed (and their {@link Cleanable} values cleaned) in bounded batches piggy-backed on
+ * regular map operations, so no single caller pays for draining a large backlog of collected keys.
+ */
 public class WeakIdentityHashMap<K, V> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WeakIdentityHashMap.class);
 
+  private static final int CLEAN_BATCH_SIZE = 64;
+
+  private static final ThreadLocal<IdentityProbe> PROBE = ThreadLocal.withInitial(IdentityProbe::new);
+
   private final ReferenceQueue<K> referenceQueue = new ReferenceQueue<>();
-  private final ConcurrentHashMap<Reference<K>, V> backing = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Object, V> backing = new ConcurrentHashMap<>();
 
   public V get(K key) {
     clean();
-    return backing.get(createReference(key, null));
+    return probe(key);
   }
 
   public V putIfAbsent(K key, V value) {
     clean();
-    return backing.putIfAbsent(createReference(key, referenceQueue), value);
+    V existing = probe(key);
+    if (existing == null) {
+      return backing.putIfAbsent(createReference(key, referenceQueue), value);
+    } else {
+      return existing;
+    }
   }
 
   public V remove(K key) {
-    V v = backing.remove(createReference(key, null));
+    V v;
+    IdentityProbe probe = PROBE.get().of(key);
+    try {
+      v = backing.remove(probe);
+    } finally {
+      probe.clear();
+    }
     clean();
     return v;
   }
 
+  private V probe(K key) {
+    IdentityProbe probe = PROBE.get().of(key);
+    try {
+      return backing.get(probe);
+    } finally {
+      probe.clear();
+    }
+  }
+
   private void clean() {
     Reference<? extends K> ref;
-    while ((ref = referenceQueue.poll()) != null) {
+    for (int i = 0; i < CLEAN_BATCH_SIZE && (ref = referenceQueue.poll()) != null; i++) {
       V dead = backing.remove(ref);
       if (dead instanceof Cleanable) {
         try {
@@ -65,6 +96,45 @@ public class WeakIdentityHashMap<K, V> {
     return new IdentityWeakReference<>(key, queue);
   }
 
+  /**
+   * Mutable lookup key matching any reference (or probe) to the same referent.
+   * <p>
+   * Probes are only ever used by their owning thread and are cleared after each use so that they never retain a key.
+   */
+  static final class IdentityProbe {
+
+    private Object referent;
+    private int hashCode;
+
+    IdentityProbe of(Object referent) {
+      this.referent = referent;
+      this.hashCode = System.identityHashCode(referent);
+      return this;
+    }
+
+    void clear() {
+      this.referent = null;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (o instanceof Reference<?>) {
+        return referent != null && referent == ((Reference<?>) o).get();
+      } else if (o instanceof IdentityProbe) {
+        return referent != null && referent == ((IdentityProbe) o).referent;
+      } else {
+        return false;
+      }
+    }
+  }
+
   static class IdentityWeakReference<T> extends WeakReference<T> {
 
     private final int hashCode;
@@ -91,6 +161,8 @@ public class WeakIdentityHashMap<K, V> {
       } else if (o instanceof IdentityWeakReference<?>) {
         T ourReferent = get();
         return ourReferent != null && ourReferent == ((IdentityWeakReference<?>) o).get();
+      } else if (o instanceof IdentityProbe) {
+        return o.equals(this);
       } else {
         return false;
       }
@@ -0,0 +1,320 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context.annotations.processor;
+
+import org.terracotta.context.annotations.ContextAttribute;
+import org.terracotta.context.annotations.ContextChild;
+import org.terracotta.context.annotations.ContextParent;
+import org.terracotta.context.extractor.ContextBinder;
+import org.terracotta.statistics.Statistic;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@link ContextBinder} for each concrete class whose hierarchy carries {@link ContextAttribute},
+ * {@link ContextChild}, {@link ContextParent} or {@link Statistic} annotations.
+ * <p>
+ * The processor is not registered as a service and must be enabled explicitly (e.g. with
+ * {@code -processor org.terracotta.context.annotations.processor.ContextBinderProcessor}).  Binders mirror the
+ * reflective processing exactly.  No binder is generated for a type if any annotated member in its hierarchy is not
+ * accessible from the type's package, in which case the type continues to be processed reflectively at runtime.
+ * Invalid {@code Statistic} methods are reported as compilation errors.
+ */
+public class ContextBinderProcessor extends AbstractProcessor {
+
+  private final Set<String> generated = new HashSet<>();
+  private final Set<Element> reported = new HashSet<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    //unannotated subclasses of annotated types need binders too
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+      process(type);
+    }
+    return false;
+  }
+
+  private void process(TypeElement type) {
+    for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+      process(member);
+    }
+    if ((type.getKind() == ElementKind.CLASS || type.getKind() == ElementKind.ENUM)
+        && !type.getModifiers().contains(Modifier.ABSTRACT)
+        && (type.getNestingKind() == NestingKind.TOP_LEVEL || type.getNestingKind() == NestingKind.MEMBER)) {
+      Binding binding = new Binding(type);
+      if (binding.isValid() && !binding.isEmpty() && generated.add(binding.binderName())) {
+        binding.write();
+      }
+    }
+  }
+
+  private final class Binding {
+
+    private final Elements elements = processingEnv.getElementUtils();
+    private final Types types = processingEnv.getTypeUtils();
+
+    private final TypeElement type;
+    private final PackageElement pkg;
+    private final List<String> attributes = new ArrayList<>();
+    private final List<String> associations = new ArrayList<>();
+    private final List<String> statistics = new ArrayList<>();
+    private boolean accessible;
+    private boolean valid = true;
+
+    Binding(TypeElement type) {
+      this.type = type;
+      this.pkg = elements.getPackageOf(type);
+      this.accessible = isAccessible(type);
+
+      bindInstanceAttribute();
+      bindMethods();
+      bindFields();
+    }
+
+    boolean isValid() {
+      return valid && accessible;
+    }
+
+    boolean isEmpty() {
+      return attributes.isEmpty() && associations.isEmpty() && statistics.isEmpty();
+    }
+
+    String binderName() {
+      return elements.getBinaryName(type) + ContextBinder.SUFFIX;
+    }
+
+    private void bindInstanceAttribute() {
+      //ContextAttribute is @Inherited
+      for (TypeElement t = type; t != null; t = superclass(t)) {
+        ContextAttribute attribute = t.getAnnotation(ContextAttribute.class);
+        if (attribute != null) {
+          attributes.add("sink.instance(" + literal(attribute.value()) + ");");
+          return;
+        }
+      }
+    }
+
+    private void bindMethods() {
+      for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+          continue;
+        }
+        ContextAttribute attribute = method.getAnnotation(ContextAttribute.class);
+        if (attribute != null && method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID) {
+          attributes.add("sink.lazy(" + literal(attribute.value()) + ", t -> " + invoke(method, "t") + ");");
+        }
+        Statistic statistic = method.getAnnotation(Statistic.class);
+        if (statistic != null) {
+          bindStatistic(statistic, method);
+        }
+      }
+    }
+
+    private void bindStatistic(Statistic statistic, ExecutableElement method) {
+      TypeMirror returnType = method.getReturnType();
+      if (!method.getParameters().isEmpty()) {
+        error("Statistic methods must be no-arg", method);
+      } else if (!isNumeric(returnType)) {
+        error("Statistic methods must return a Number", method);
+      } else if (method.getModifiers().contains(Modifier.STATIC)) {
+        error("Statistic methods must be non-static", method);
+      } else {
+        StringBuilder tags = new StringBuilder();
+        for (String tag : statistic.tags()) {
+          tags.append(tags.length() == 0 ? "" : ", ").append(literal(tag));
+        }
+        String value = invoke(method, "t");
+        if (returnType.getKind() == TypeKind.CHAR) {
+          value = "(int) " + value;
+        }
+        statistics.add("sink.statistic(" + literal(statistic.name()) + ", "
+            + "org.terracotta.statistics.StatisticType." + statistic.type().name() + ", "
+            + "new java.lang.String[] {" + tags + "}, t -> " + value + ");");
+      }
+    }
+
+    private void bindFields() {
+      for (TypeElement t = type; t != null; t = superclass(t)) {
+        for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+          ContextAttribute attribute = field.getAnnotation(ContextAttribute.class);
+          if (attribute != null) {
+            if (field.getModifiers().contains(Modifier.FINAL)) {
+              attributes.add("sink.constant(" + literal(attribute.value()) + ", " + read(field, "target") + ");");
+            } else {
+              attributes.add("sink.lazy(" + literal(attribute.value()) + ", t -> " + read(field, "t") + ");");
+            }
+          }
+          if (field.getAnnotation(ContextChild.class) != null) {
+            associations.add("sink.child(" + read(field, "target") + ");");
+          }
+          if (field.getAnnotation(ContextParent.class) != null) {
+            associations.add("sink.parent(" + read(field, "target") + ");");
+          }
+        }
+      }
+    }
+
+    private boolean isNumeric(TypeMirror type) {
+      if (type.getKind().isPrimitive()) {
+        return type.getKind() != TypeKind.BOOLEAN;
+      } else {
+        TypeMirror number = elements.getTypeElement(Number.class.getName()).asType();
+        return types.isAssignable(types.erasure(type), number);
+      }
+    }
+
+    private String read(VariableElement field, String target) {
+      return access(field, target) + "." + field.getSimpleName();
+    }
+
+    private String invoke(ExecutableElement method, String target) {
+      return access(method, target) + "." + method.getSimpleName() + "()";
+    }
+
+    private String access(Element member, String target) {
+      accessible &= isAccessible(member);
+      TypeElement declaring = (TypeElement) member.getEnclosingElement();
+      if (member.getModifiers().contains(Modifier.STATIC)) {
+        return declaring.getQualifiedName().toString();
+      } else {
+        return "((" + reference(declaring) + ") " + target + ")";
+      }
+    }
+
+    private boolean isAccessible(Element element) {
+      for (Element e = element; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+        Set<Modifier> modifiers = e.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+          return false;
+        } else if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(e).equals(pkg)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private String reference(TypeElement type) {
+      StringBuilder sb = new StringBuilder();
+      if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+          && type.getEnclosingElement() instanceof TypeElement) {
+        sb.append(reference((TypeElement) type.getEnclosingElement())).append('.').append(type.getSimpleName());
+      } else {
+        sb.append(type.getQualifiedName());
+      }
+      int parameters = type.getTypeParameters().size();
+      if (parameters > 0) {
+        sb.append('<');
+        for (int i = 0; i < parameters; i++) {
+          sb.append(i == 0 ? "?" : ", ?");
+        }
+        sb.append('>');
+      }
+      return sb.toString();
+    }
+
+    private TypeElement superclass(TypeElement type) {
+      TypeMirror superclass = type.getSuperclass();
+      if (superclass.getKind() == TypeKind.DECLARED) {
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+      } else {
+        return null;
+      }
+    }
+
+    private String literal(String value) {
+      return elements.getConstantExpression(value);
+    }
+
+    private void error(String message, Element element) {
+      valid = false;
+      if (reported.add(element)) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message + ": " + element, element);
+      }
+    }
+
+    void write() {
+      String binderName = binderName();
+      String packageName = pkg.getQualifiedName().toString();
+      String simpleName = pkg.isUnnamed() ? binderName : binderName.substring(packageName.length() + 1);
+      try (Writer writer = processingEnv.getFiler().createSourceFile(binderName, type).openWriter();
+           PrintWriter out = new PrintWriter(writer)) {
+        if (!pkg.isUnnamed()) {
+          out.println("package " + packageName + ";");
+          out.println();
+        }
+        out.println("/**");
+        out.println(" * Context binder for {@link " + type.getQualifiedName() + "}.");
+        out.println(" * <p>");
+        out.println(" * Generated by " + ContextBinderProcessor.class.getName() + " - do not edit.");
+        out.println(" */");
+        out.println("@java.lang.SuppressWarnings(\"deprecation\")");
+        out.println("public final class " + simpleName + " implements " + ContextBinder.class.getCanonicalName() + " {");
+        writeMethod(out, "bindAttributes", ContextBinder.AttributeSink.class, attributes);
+        writeMethod(out, "bindAssociations", ContextBinder.AssociationSink.class, associations);
+        writeMethod(out, "bindStatistics", ContextBinder.StatisticSink.class, statistics);
+        out.println("}");
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + binderName + ": " + e, type);
+      }
+    }
+
+    private void writeMethod(PrintWriter out, String name, Class<?> sink, List<String> statements) {
+      out.println();
+      out.println("  @java.lang.Override");
+      out.println("  public void " + name + "(java.lang.Object target, " + sink.getCanonicalName() + " sink) {");
+      for (String statement : statements) {
+        out.println("    " + statement);
+      }
+      out.println("  }");
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context.extractor;
+
+import org.terracotta.statistics.StatisticType;
+
+import java.util.function.Function;
+
+/**
+ * A build-time generated binding of the context annotations of a single concrete type.
+ * <p>
+ * Binders are generated by the (optional) {@code org.terracotta.context.annotations.processor.ContextBinderProcessor}
+ * annotation processor as a public class named {@code <binary-name>}{@value #SUFFIX} in the package of the bound type.
+ * When present they are used in place of the reflective processing of the {@code ContextAttribute},
+ * {@code ContextChild}, {@code ContextParent} and {@code Statistic} annotations.  Types without a generated binder
+ * continue to be processed reflectively.
+ *
+ * @see ContextBinders#binderFor(Class)
+ */
+public interface ContextBinder {
+
+  /**
+   * Suffix appended to the binary name of a bound type to form the name of its binder.
+   */
+  String SUFFIX = "$$ContextBinder";
+
+  /**
+   * Reports the context attributes of the given instance to the supplied sink.
+   *
+   * @param target the bound instance
+   * @param sink   attribute sink
+   */
+  void bindAttributes(Object target, AttributeSink sink);
+
+  /**
+   * Reports the annotated children and parents of the given instance to the supplied sink.
+   *
+   * @param target the bound instance
+   * @param sink   association sink
+   */
+  void bindAssociations(Object target, AssociationSink sink);
+
+  /**
+   * Reports the annotated statistic methods of the given instance to the supplied sink.
+   *
+   * @param target the bound instance
+   * @param sink   statistic sink
+   */
+  void bindStatistics(Object target, StatisticSink sink);
+
+  interface AttributeSink {
+
+    /**
+     * The bound instance itself is exposed under {@code name}.
+     *
+     * @param name attribute name
+     */
+    void instance(String name);
+
+    /**
+     * The attribute {@code name} has a fixed value.
+     *
+     * @param name  attribute name
+     * @param value attribute value
+     */
+    void constant(String name, Object value);
+
+    /**
+     * The attribute {@code name} is read from the bound instance on each access.
+     *
+     * @param name   attribute name
+     * @param getter function of the bound instance
+     */
+    void lazy(String name, Function<Object, ?> getter);
+  }
+
+  interface AssociationSink {
+
+    /**
+     * The bound instance has the given (possibly {@code null}) child.
+     *
+     * @param child the child
+     */
+    void child(Object child);
+
+    /**
+     * The bound instance has the given (possibly {@code null}) parent.
+     *
+     * @param parent the parent
+     */
+    void parent(Object parent);
+  }
+
+  @FunctionalInterface
+  interface StatisticSink {
+
+    /**
+     * The bound instance exposes the given statistic.
+     *
+     * @param name   statistic name
+     * @param type   statistic type
+     * @param tags   statistic tags
+     * @param getter function of the bound instance
+     */
+    void statistic(String name, StatisticType type, String[] tags, Function<Object, ? extends Number> getter);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context.extractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * Locates (and caches) the generated {@link ContextBinder} for a type.
+ */
+public final class ContextBinders {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ContextBinders.class);
+
+  private static final ClassValue<Optional<ContextBinder>> BINDERS = new ClassValue<Optional<ContextBinder>>() {
+    @Override
+    protected Optional<ContextBinder> computeValue(Class<?> type) {
+      return Optional.ofNullable(load(type));
+    }
+  };
+
+  private ContextBinders() {
+    //static
+  }
+
+  /**
+   * Returns the generated binder for instances of exactly the given type.
+   *
+   * @param type the concrete type
+   * @return the binder, or {@code null} if none was generated
+   */
+  public static ContextBinder binderFor(Class<?> type) {
+    return BINDERS.get(type).orElse(null);
+  }
+
+  private static ContextBinder load(Class<?> type) {
+    ClassLoader loader = type.getClassLoader();
+    if (loader == null || type.isArray() || type.isAnonymousClass() || type.isLocalClass()) {
+      return null;
+    }
+    try {
+      Class<?> binderType = Class.forName(type.getName() + ContextBinder.SUFFIX, true, loader);
+      if (ContextBinder.class.isAssignableFrom(binderType)) {
+        return (ContextBinder) binderType.getConstructor().newInstance();
+      } else {
+        LOGGER.warn("Ignoring {} as it does not implement {}", binderType, ContextBinder.class);
+        return null;
+      }
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      LOGGER.warn("Failed to load context binder for {} due to: {}", type, e);
+      return null;
+    }
+  }
+}
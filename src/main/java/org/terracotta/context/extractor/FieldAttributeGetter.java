@@ -16,15 +16,15 @@
  */
 package org.terracotta.context.extractor;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 abstract class FieldAttributeGetter<T> implements AttributeGetter<T> {
 
-  private final Field field;
+  private final MethodHandle getter;
 
   FieldAttributeGetter(Field field) {
-    field.setAccessible(true);
-    this.field = field;
+    this.getter = MemberHandles.getter(field);
   }
 
   abstract Object target();
@@ -32,10 +32,6 @@ abstract class FieldAttributeGetter<T> implements AttributeGetter<T> {
   @Override
   @SuppressWarnings("unchecked")
   public T get() {
-    try {
-      return (T) field.get(target());
-    } catch (IllegalArgumentException | IllegalAccessException ex) {
-      throw new RuntimeException(ex);
-    }
+    return (T) MemberHandles.invoke(getter, target());
   }
 }
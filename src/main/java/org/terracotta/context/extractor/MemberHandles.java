@@ -0,0 +1,111 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context.extractor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches {@code (Object)Object} method handles for annotated attribute and statistic members.
+ * <p>
+ * Handles are cached per declaring class so that repeated context creation for the same type reuses the same (JIT
+ * friendly) accessor instead of going through {@code Method.invoke} or {@code Field.get}.
+ */
+public final class MemberHandles {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private static final ClassValue<ConcurrentMap<Member, MethodHandle>> HANDLES = new ClassValue<ConcurrentMap<Member, MethodHandle>>() {
+    @Override
+    protected ConcurrentMap<Member, MethodHandle> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  private MemberHandles() {
+    //static
+  }
+
+  /**
+   * Returns the cached {@code (Object)Object} getter for {@code field}.
+   *
+   * @param field the field to read
+   * @return a getter handle
+   */
+  public static MethodHandle getter(Field field) {
+    return HANDLES.get(field.getDeclaringClass()).computeIfAbsent(field, f -> {
+      field.setAccessible(true);
+      try {
+        return adapt(MethodHandles.lookup().unreflectGetter(field), field);
+      } catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      }
+    });
+  }
+
+  /**
+   * Returns the cached {@code (Object)Object} getter for the no-arg {@code method}.
+   *
+   * @param method the method to invoke
+   * @return a getter handle
+   */
+  public static MethodHandle getter(Method method) {
+    return HANDLES.get(method.getDeclaringClass()).computeIfAbsent(method, m -> {
+      method.setAccessible(true);
+      try {
+        return adapt(MethodHandles.lookup().unreflect(method), method);
+      } catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      }
+    });
+  }
+
+  private static MethodHandle adapt(MethodHandle handle, Member member) {
+    if (Modifier.isStatic(member.getModifiers())) {
+      //static members ignore the supplied target
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+    return handle.asType(GETTER_TYPE);
+  }
+
+  /**
+   * Invokes a getter returned by this class.
+   * <p>
+   * As with the reflective access this replaces, anything thrown by the member other than an {@code Error} is wrapped
+   * in a {@code RuntimeException}.
+   *
+   * @param getter the getter handle
+   * @param target the object to read from
+   * @return the member value
+   */
+  public static Object invoke(MethodHandle getter, Object target) {
+    try {
+      return (Object) getter.invokeExact(target);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+}
@@ -16,16 +16,15 @@
  */
 package org.terracotta.context.extractor;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 abstract class MethodAttributeGetter<T> implements AttributeGetter<T> {
 
-  private final Method method;
+  private final MethodHandle getter;
 
   MethodAttributeGetter(Method method) {
-    method.setAccessible(true);
-    this.method = method;
+    this.getter = MemberHandles.getter(method);
   }
 
   abstract Object target();
@@ -33,10 +32,6 @@ abstract class MethodAttributeGetter<T> implements AttributeGetter<T> {
   @Override
   @SuppressWarnings("unchecked")
   public T get() {
-    try {
-      return (T) method.invoke(target());
-    } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException ex) {
-      throw new RuntimeException(ex);
-    }
+    return (T) MemberHandles.invoke(getter, target());
   }
 }
@@ -25,6 +25,7 @@ import java.lang.reflect.Modifier;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Extracts context information from object instances and creates appropriate
@@ -41,12 +42,17 @@ public final class ObjectContextExtractor {
    * <p>
    * The supplied object's class type is parsed for {@link ContextAttribute}
    * annotations and the associated attributes are extracted and returned in the
-   * form of a {@code ContextElement}.
+   * form of a {@code ContextElement}.  If a {@link ContextBinder} was generated
+   * for the class then it is used in place of reflection.
    *
    * @param from object to extract context for
    * @return a {@code ContextElement}
    */
   public static ContextElement extract(Object from) {
+    ContextBinder binder = ContextBinders.binderFor(from.getClass());
+    if (binder != null) {
+      return new LazyContextElement(from.getClass(), extractBoundAttributes(from, binder));
+    }
     Map<String, AttributeGetter<Object>> attributes = new HashMap<>();
     attributes.putAll(extractInstanceAttribute(from));
     attributes.putAll(extractMethodAttributes(from));
@@ -54,6 +60,27 @@ public final class ObjectContextExtractor {
     return new LazyContextElement(from.getClass(), attributes);
   }
 
+  private static Map<String, AttributeGetter<Object>> extractBoundAttributes(Object from, ContextBinder binder) {
+    Map<String, AttributeGetter<Object>> attributes = new HashMap<>();
+    binder.bindAttributes(from, new ContextBinder.AttributeSink() {
+      @Override
+      public void instance(String name) {
+        attributes.put(name, new WeakAttributeGetter<>(from));
+      }
+
+      @Override
+      public void constant(String name, Object value) {
+        attributes.put(name, new DirectAttributeGetter<>(value));
+      }
+
+      @Override
+      public void lazy(String name, Function<Object, ?> getter) {
+        attributes.put(name, new WeakFunctionAttributeGetter<>(from, getter));
+      }
+    });
+    return attributes;
+  }
+
   private static Map<? extends String, ? extends AttributeGetter<Object>> extractInstanceAttribute(Object from) {
     ContextAttribute annotation = from.getClass().getAnnotation(ContextAttribute.class);
     if (annotation == null) {
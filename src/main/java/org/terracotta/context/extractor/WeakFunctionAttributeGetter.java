@@ -0,0 +1,37 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context.extractor;
+
+import java.lang.ref.WeakReference;
+import java.util.function.Function;
+
+class WeakFunctionAttributeGetter<T> implements AttributeGetter<T> {
+
+  private final WeakReference<Object> targetRef;
+  private final Function<Object, ?> getter;
+
+  WeakFunctionAttributeGetter(Object target, Function<Object, ?> getter) {
+    this.targetRef = new WeakReference<>(target);
+    this.getter = getter;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get() {
+    return (T) getter.apply(targetRef.get());
+  }
+}
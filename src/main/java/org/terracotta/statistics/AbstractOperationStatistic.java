@@ -85,4 +85,15 @@ public abstract class AbstractOperationStatistic<T extends Enum<T>> extends Abst
     }
   }
 
+  @Override
+  public void end(T result, Object key) {
+    if (!derivedStatistics.isEmpty()) {
+      long time = Time.time();
+      long latency = time - operationStartTime.get();
+      for (ChainedOperationObserver<? super T> observer : derivedStatistics) {
+        observer.end(time, latency, result, key);
+      }
+    }
+  }
+
 }
@@ -74,6 +74,12 @@ class GeneralOperationStatistic<T extends Enum<T>> extends AbstractOperationStat
     super.end(result);
   }
 
+  @Override
+  public void end(T result, Object key) {
+    counts[result.ordinal()].increment();
+    super.end(result, key);
+  }
+
   @Override
   public String toString() {
     T[] constants = type.getEnumConstants();
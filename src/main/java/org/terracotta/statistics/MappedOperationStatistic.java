@@ -16,7 +16,7 @@
  */
 package org.terracotta.statistics;
 
-import org.terracotta.context.ContextManager;
+import org.terracotta.context.ContextRegistry;
 import org.terracotta.context.TreeNode;
 import org.terracotta.context.annotations.ContextAttribute;
 import org.terracotta.context.query.Matcher;
@@ -49,6 +49,10 @@ public class MappedOperationStatistic<S extends Enum<S>, D extends Enum<D>> impl
   private final StatisticMapper<S, D> mapper;
 
   public MappedOperationStatistic(Object tier, Map<D, Set<S>> translation, String statisticName, int tierHeight, String targetName, String discriminator) {
+    this(ContextRegistry.global(), tier, translation, statisticName, tierHeight, targetName, discriminator);
+  }
+
+  public MappedOperationStatistic(ContextRegistry registry, Object tier, Map<D, Set<S>> translation, String statisticName, int tierHeight, String targetName, String discriminator) {
 
     this.name = statisticName;
     this.tags = Collections.singleton("tier");
@@ -60,7 +64,7 @@ public class MappedOperationStatistic<S extends Enum<S>, D extends Enum<D>> impl
     Class<S> outcomeType = first.getValue().iterator().next().getDeclaringClass();
     this.outcomeType = first.getKey().getDeclaringClass();
 
-    this.mapper = new StatisticMapper<>(translation, findOperationStat(tier, outcomeType, targetName));
+    this.mapper = new StatisticMapper<>(translation, findOperationStat(registry, tier, outcomeType, targetName));
   }
 
   @Override
@@ -119,7 +123,7 @@ public class MappedOperationStatistic<S extends Enum<S>, D extends Enum<D>> impl
   }
 
   @SuppressWarnings("unchecked")
-  private static <S extends Enum<S>> OperationStatistic<S> findOperationStat(Object rootNode, final Class<S> statisticType, final String statName) {
+  private static <S extends Enum<S>> OperationStatistic<S> findOperationStat(ContextRegistry registry, Object rootNode, final Class<S> statisticType, final String statName) {
     Query q = queryBuilder().descendants()
         .filter(context(identifier(subclassOf(OperationStatistic.class))))
         .filter(context(attributes(Matchers.allOf(
@@ -133,7 +137,7 @@ public class MappedOperationStatistic<S extends Enum<S>, D extends Enum<D>> impl
         )))).build();
 
 
-    Set<TreeNode> result = q.execute(Collections.singleton(ContextManager.nodeFor(rootNode)));
+    Set<TreeNode> result = q.execute(Collections.singleton(registry.nodeFor(rootNode)));
 
     if (result.size() != 1) {
       throw new RuntimeException("a single stat was expected; found " + result.size());
@@ -16,41 +16,21 @@
  */
 package org.terracotta.statistics;
 
-import org.terracotta.context.WeakIdentityHashMap;
+import org.terracotta.context.ContextRegistry;
 import org.terracotta.context.annotations.ContextAttribute;
 
 import java.io.Serializable;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 @ContextAttribute(value = "this")
 class PassThroughStatistic<T extends Serializable> implements ValueStatistic<T> {
 
-  private static final WeakIdentityHashMap<Object, Collection<PassThroughStatistic<? extends Serializable>>> BINDING = new WeakIdentityHashMap<>();
-
-  private static void bindStatistic(PassThroughStatistic<? extends Serializable> stat, Object to) {
-    Collection<PassThroughStatistic<? extends Serializable>> collection = BINDING.get(to);
-    if (collection == null) {
-      collection = new CopyOnWriteArrayList<>();
-      Collection<PassThroughStatistic<? extends Serializable>> racer = BINDING.putIfAbsent(to, collection);
-      if (racer != null) {
-        collection = racer;
-      }
-    }
-    collection.add(stat);
-  }
-
-  public static void removeStatistics(Object to) {
-    BINDING.remove(to);
-  }
-
   static boolean hasStatisticsFor(Object to) {
-    return BINDING.get(to) != null;
+    return ContextRegistry.global().retains(to);
   }
 
   @ContextAttribute("name") public final String name;
@@ -59,13 +39,12 @@ class PassThroughStatistic<T extends Serializable> implements ValueStatistic<T>
   @ContextAttribute("type") public final StatisticType type;
   private final ValueStatistic<T> source;
 
-  public PassThroughStatistic(Object context, String name, Set<String> tags, Map<String, ? extends Object> properties, ValueStatistic<T> source) {
+  public PassThroughStatistic(String name, Set<String> tags, Map<String, ? extends Object> properties, ValueStatistic<T> source) {
     this.name = name;
     this.tags = Collections.unmodifiableSet(new HashSet<>(tags));
     this.properties = Collections.unmodifiableMap(new HashMap<String, Object>(properties));
     this.source = source;
     this.type = source.type();
-    bindStatistic(this, context);
   }
 
   @Override
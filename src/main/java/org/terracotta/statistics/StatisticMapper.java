@@ -27,16 +27,27 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import static java.util.Collections.unmodifiableSet;
 import static java.util.EnumSet.allOf;
 
 public class StatisticMapper<SOURCE extends Enum<SOURCE>, TARGET extends Enum<TARGET>> implements OperationStatistic<TARGET> {
 
+  /**
+   * Target types with at most this many outcomes have the translation (and derived statistic) of every subset of their
+   * outcomes cached in a table indexed by the subset's ordinal bitmask.
+   */
+  static final int MAXIMUM_CACHED_TARGETS = 10;
+
   private final Class<TARGET> targetType;
   private final Class<SOURCE> sourceType;
   private final OperationStatistic<SOURCE> statistic;
-  private final Map<TARGET, Set<SOURCE>> translation;
-  private final Map<SOURCE, TARGET> reverseTranslation;
+  private final TARGET[] targets;
+  private final int[] reverseTranslation;
+  private final Set<SOURCE>[] translation;
+  private final AtomicReferenceArray<Set<SOURCE>> translatedSubsets;
+  private final AtomicReferenceArray<ValueStatistic<Long>> subsetStatistics;
   private final ConcurrentMap<ChainedOperationObserver<? super TARGET>, ChainedOperationObserver<SOURCE>> derivedStats
       = new ConcurrentHashMap<>();
 
@@ -46,19 +57,43 @@ public class StatisticMapper<SOURCE extends Enum<SOURCE>, TARGET extends Enum<TA
     this.targetType = first.getKey().getDeclaringClass();
     this.sourceType = first.getValue().iterator().next().getDeclaringClass();
     this.statistic = statistic;
-    this.translation = translation;
     Set<TARGET> unmappedTierOutcomes = allOf(targetType);
     unmappedTierOutcomes.removeAll(translation.keySet());
     if (!unmappedTierOutcomes.isEmpty()) {
       throw new IllegalArgumentException("Translation does not contain target outcomes " + unmappedTierOutcomes);
     }
 
-    this.reverseTranslation = reverse(translation);
+    Map<SOURCE, TARGET> reverse = reverse(translation);
     Set<SOURCE> unmappedStoreOutcomes = allOf(sourceType);
-    unmappedStoreOutcomes.removeAll(reverseTranslation.keySet());
+    unmappedStoreOutcomes.removeAll(reverse.keySet());
     if (!unmappedStoreOutcomes.isEmpty()) {
       throw new IllegalArgumentException("Translation does not contain source outcomes " + unmappedStoreOutcomes);
     }
+
+    this.targets = targetType.getEnumConstants();
+    this.translation = newSetArray(targets.length);
+    for (TARGET target : targets) {
+      Set<SOURCE> sources = EnumSet.noneOf(sourceType);
+      sources.addAll(translation.get(target));
+      this.translation[target.ordinal()] = unmodifiableSet(sources);
+    }
+    this.reverseTranslation = new int[sourceType.getEnumConstants().length];
+    for (Entry<SOURCE, TARGET> e : reverse.entrySet()) {
+      this.reverseTranslation[e.getKey().ordinal()] = e.getValue().ordinal();
+    }
+
+    if (targets.length <= MAXIMUM_CACHED_TARGETS) {
+      this.translatedSubsets = new AtomicReferenceArray<>(1 << targets.length);
+      this.subsetStatistics = new AtomicReferenceArray<>(1 << targets.length);
+    } else {
+      this.translatedSubsets = null;
+      this.subsetStatistics = null;
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <S> Set<S>[] newSetArray(int length) {
+    return new Set[length];
   }
 
   private static <B extends Enum<B>, A extends Enum<A>> Map<B, A> reverse(Map<A, Set<B>> map) {
@@ -84,30 +119,78 @@ public class StatisticMapper<SOURCE extends Enum<SOURCE>, TARGET extends Enum<TA
 
   @Override
   public ValueStatistic<Long> statistic(TARGET result) {
-    return statistic.statistic(translation.get(result));
+    if (subsetStatistics == null) {
+      return statistic.statistic(translation[result.ordinal()]);
+    } else {
+      return cachedStatistic(1 << result.ordinal());
+    }
   }
 
   @Override
   public ValueStatistic<Long> statistic(Set<TARGET> results) {
-    Set<SOURCE> translated = EnumSet.noneOf(sourceType);
-    for (TARGET result : results) {
-      translated.addAll(translation.get(result));
+    if (subsetStatistics == null) {
+      return statistic.statistic(translate(results));
+    } else {
+      return cachedStatistic(mask(results));
     }
-    return statistic.statistic(translated);
   }
 
   @Override
   public long count(TARGET type) {
-    return statistic.sum(translation.get(type));
+    return statistic.sum(translation[type.ordinal()]);
   }
 
   @Override
   public long sum(Set<TARGET> types) {
+    if (translatedSubsets == null) {
+      return statistic.sum(translate(types));
+    } else {
+      return statistic.sum(translatedSubset(mask(types)));
+    }
+  }
+
+  private ValueStatistic<Long> cachedStatistic(int mask) {
+    ValueStatistic<Long> cached = subsetStatistics.get(mask);
+    if (cached == null) {
+      cached = statistic.statistic(translatedSubset(mask));
+      if (!subsetStatistics.compareAndSet(mask, null, cached)) {
+        cached = subsetStatistics.get(mask);
+      }
+    }
+    return cached;
+  }
+
+  private Set<SOURCE> translatedSubset(int mask) {
+    Set<SOURCE> translated = translatedSubsets.get(mask);
+    if (translated == null) {
+      Set<SOURCE> union = EnumSet.noneOf(sourceType);
+      for (int ordinal = 0; ordinal < targets.length; ordinal++) {
+        if ((mask & (1 << ordinal)) != 0) {
+          union.addAll(translation[ordinal]);
+        }
+      }
+      translated = unmodifiableSet(union);
+      if (!translatedSubsets.compareAndSet(mask, null, translated)) {
+        translated = translatedSubsets.get(mask);
+      }
+    }
+    return translated;
+  }
+
+  private Set<SOURCE> translate(Set<TARGET> results) {
     Set<SOURCE> translated = EnumSet.noneOf(sourceType);
-    for (TARGET type : types) {
-      translated.addAll(translation.get(type));
+    for (TARGET result : results) {
+      translated.addAll(translation[result.ordinal()]);
+    }
+    return translated;
+  }
+
+  private static int mask(Set<? extends Enum<?>> results) {
+    int mask = 0;
+    for (Enum<?> result : results) {
+      mask |= 1 << result.ordinal();
     }
-    return statistic.sum(translated);
+    return mask;
   }
 
   @Override
@@ -125,7 +208,12 @@ public class StatisticMapper<SOURCE extends Enum<SOURCE>, TARGET extends Enum<TA
 
       @Override
       public void end(long time, long latency, SOURCE result) {
-        derived.end(time, latency, reverseTranslation.get(result));
+        derived.end(time, latency, targets[reverseTranslation[result.ordinal()]]);
+      }
+
+      @Override
+      public void end(long time, long latency, SOURCE result, Object key) {
+        derived.end(time, latency, targets[reverseTranslation[result.ordinal()]], key);
       }
     };
     if (derivedStats.putIfAbsent(derived, translator) == null) {
@@ -17,21 +17,29 @@
 package org.terracotta.statistics;
 
 
+import org.terracotta.context.ContextCreationListener;
 import org.terracotta.context.ContextElement;
 import org.terracotta.context.ContextManager;
+import org.terracotta.context.ContextRegistry;
 import org.terracotta.context.TreeNode;
+import org.terracotta.context.extractor.ContextBinder;
+import org.terracotta.context.extractor.ContextBinders;
+import org.terracotta.context.extractor.MemberHandles;
 import org.terracotta.statistics.observer.OperationObserver;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.ref.WeakReference;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -43,8 +51,36 @@ public class StatisticsManager extends ContextManager {
 
   private static final String EQ = Pattern.quote("=");
 
+  /*
+   * Caches the validated annotation scan of each class; the method handles themselves are cached by MemberHandles.
+   */
+  private static final ClassValue<List<StatisticMethod>> STATISTIC_METHODS = new ClassValue<List<StatisticMethod>>() {
+    @Override
+    protected List<StatisticMethod> computeValue(Class<?> type) {
+      return findStatisticMethods(type);
+    }
+  };
+
   static {
-    ContextManager.registerContextCreationListener(StatisticsManager::parseStatisticAnnotations);
+    ContextManager.registerContextCreationListener(new ContextCreationListener() {
+      @Override
+      public void contextCreated(Object object) {
+        contextCreated(ContextRegistry.global(), object);
+      }
+
+      @Override
+      public void contextCreated(ContextRegistry registry, Object object) {
+        parseStatisticAnnotations(registry, object);
+      }
+    });
+  }
+
+  public StatisticsManager() {
+    super();
+  }
+
+  public StatisticsManager(ContextRegistry registry) {
+    super(registry);
   }
 
   public static <T extends Enum<T>> OperationObserver<T> createOperationStatistic(Object context, String name, Set<String> tags, Class<T> eventTypes) {
@@ -52,8 +88,12 @@ public class StatisticsManager extends ContextManager {
   }
 
   public static <T extends Enum<T>> OperationObserver<T> createOperationStatistic(Object context, String name, Set<String> tags, Map<String, ? extends Object> properties, Class<T> resultType) {
+    return createOperationStatistic(ContextRegistry.global(), context, name, tags, properties, resultType);
+  }
+
+  public static <T extends Enum<T>> OperationObserver<T> createOperationStatistic(ContextRegistry registry, Object context, String name, Set<String> tags, Map<String, ? extends Object> properties, Class<T> resultType) {
     OperationStatistic<T> stat = createOperationStatistic(name, tags, properties, resultType);
-    associate(context).withChild(stat);
+    registry.associate(context).withChild(stat);
     return stat;
   }
 
@@ -62,7 +102,11 @@ public class StatisticsManager extends ContextManager {
   }
 
   public static <T extends Enum<T>> OperationStatistic<T> getOperationStatisticFor(OperationObserver<T> observer) {
-    TreeNode node = ContextManager.nodeFor(observer);
+    return getOperationStatisticFor(ContextRegistry.global(), observer);
+  }
+
+  public static <T extends Enum<T>> OperationStatistic<T> getOperationStatisticFor(ContextRegistry registry, OperationObserver<T> observer) {
+    TreeNode node = registry.nodeFor(observer);
     if (node == null) {
       return null;
     } else {
@@ -90,18 +134,40 @@ public class StatisticsManager extends ContextManager {
   }
 
   public static <T extends Serializable> void createPassThroughStatistic(Object context, String name, Set<String> tags, Map<String, ? extends Object> properties, ValueStatistic<T> source) {
-    PassThroughStatistic<T> stat = new PassThroughStatistic<>(context, name, tags, properties, source);
-    associate(context).withChild(stat);
+    createPassThroughStatistic(ContextRegistry.global(), context, name, tags, properties, source);
+  }
+
+  public static <T extends Serializable> void createPassThroughStatistic(ContextRegistry registry, Object context, String name, Set<String> tags, Map<String, ? extends Object> properties, ValueStatistic<T> source) {
+    PassThroughStatistic<T> stat = new PassThroughStatistic<>(name, tags, properties, source);
+    registry.retain(context, stat);
+    registry.associate(context).withChild(stat);
   }
 
   public static void removePassThroughStatistics(Object context) {
-    PassThroughStatistic.removeStatistics(context);
+    removePassThroughStatistics(ContextRegistry.global(), context);
+  }
+
+  public static void removePassThroughStatistics(ContextRegistry registry, Object context) {
+    registry.release(context);
   }
 
   public static Set<String> tags(String... tags) {return new HashSet<>(Arrays.asList(tags));}
 
-  private static void parseStatisticAnnotations(final Object object) {
-    for (final Method m : object.getClass().getMethods()) {
+  private static void parseStatisticAnnotations(ContextRegistry registry, final Object object) {
+    ContextBinder binder = ContextBinders.binderFor(object.getClass());
+    if (binder != null) {
+      binder.bindStatistics(object, (name, type, tags, getter) ->
+          createPassThroughStatistic(registry, object, name, tags(tags), Collections.emptyMap(), supply(type, new BoundSupplier<>(object, getter))));
+      return;
+    }
+    for (StatisticMethod statistic : STATISTIC_METHODS.get(object.getClass())) {
+      createPassThroughStatistic(registry, object, statistic.name, statistic.tags, Collections.emptyMap(), supply(statistic.type, new ReflectionSupplier<>(object, statistic.handle)));
+    }
+  }
+
+  private static List<StatisticMethod> findStatisticMethods(Class<?> type) {
+    List<StatisticMethod> statistics = new ArrayList<>();
+    for (final Method m : type.getMethods()) {
       Statistic anno = m.getAnnotation(Statistic.class);
       if (anno != null) {
         Class<?> returnType = m.getReturnType();
@@ -112,10 +178,11 @@ public class StatisticsManager extends ContextManager {
         } else if (Modifier.isStatic(m.getModifiers())) {
           throw new IllegalArgumentException("Statistic methods must be non-static: " + m);
         } else {
-          StatisticsManager.createPassThroughStatistic(object, anno.name(), new HashSet<>(Arrays.asList(anno.tags())), supply(anno.type(), new ReflectionSupplier<>(object, m)));
+          statistics.add(new StatisticMethod(anno, m));
         }
       }
     }
+    return statistics.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(statistics);
   }
 
   public static Map<String, String> properties(String... kvs) {
@@ -127,23 +194,48 @@ public class StatisticsManager extends ContextManager {
   static class ReflectionSupplier<T> implements Supplier<T> {
 
     private final WeakReference<Object> targetRef;
-    private final Method method;
+    private final MethodHandle handle;
 
-    ReflectionSupplier(Object target, Method method) {
+    ReflectionSupplier(Object target, MethodHandle handle) {
       this.targetRef = new WeakReference<>(target);
-      this.method = method;
+      this.handle = handle;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public T get() {
-      try {
-        return (T) method.invoke(targetRef.get());
-      } catch (IllegalAccessException e) {
-        throw new RuntimeException(e);
-      } catch (InvocationTargetException e) {
-        throw new RuntimeException(e.getTargetException());
-      }
+      return (T) MemberHandles.invoke(handle, targetRef.get());
+    }
+  }
+
+  static class BoundSupplier<T> implements Supplier<T> {
+
+    private final WeakReference<Object> targetRef;
+    private final Function<Object, ? extends T> getter;
+
+    BoundSupplier(Object target, Function<Object, ? extends T> getter) {
+      this.targetRef = new WeakReference<>(target);
+      this.getter = getter;
+    }
+
+    @Override
+    public T get() {
+      return getter.apply(targetRef.get());
+    }
+  }
+
+  private static final class StatisticMethod {
+
+    private final String name;
+    private final StatisticType type;
+    private final Set<String> tags;
+    private final MethodHandle handle;
+
+    StatisticMethod(Statistic annotation, Method method) {
+      this.name = annotation.name();
+      this.type = annotation.type();
+      this.tags = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(annotation.tags())));
+      this.handle = MemberHandles.getter(method);
     }
   }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived;
+
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.ValueStatistic;
+import org.terracotta.statistics.observer.ChainedEventObserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.terracotta.statistics.Time.time;
+
+/**
+ * An exponentially weighted moving average of an event rate.
+ * <p>
+ *   Events are counted in a striped adder, which is folded in to the average once per tick interval.  Ticks are
+ *   driven by recorded events and reads, so no background thread is needed.  Memory use is constant regardless of
+ *   the averaging window, and recording is lock-free.
+ * </p>
+ */
+public class EventRateExponentialMovingAverage implements ChainedEventObserver, ValueStatistic<Double> {
+
+  private static final long DEFAULT_TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+  private final LongAdder uncounted = new LongAdder();
+  private final long tickInterval;
+  private final double alpha;
+  private final double intervalDecay;
+
+  private volatile long lastTick;
+  private volatile boolean initialized;
+  private volatile double rate;
+
+  /**
+   * Creates an average over a {@code window} time constant, ticking every five seconds.
+   *
+   * @param window averaging time constant
+   * @param unit unit of {@code window}
+   */
+  public EventRateExponentialMovingAverage(long window, TimeUnit unit) {
+    this(window, unit, DEFAULT_TICK_INTERVAL, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Creates an average over a {@code window} time constant, with the given tick interval.
+   *
+   * @param window averaging time constant
+   * @param windowUnit unit of {@code window}
+   * @param tickInterval interval between updates of the average
+   * @param tickUnit unit of {@code tickInterval}
+   * @throws IllegalArgumentException if either duration is not positive
+   */
+  public EventRateExponentialMovingAverage(long window, TimeUnit windowUnit, long tickInterval, TimeUnit tickUnit) throws IllegalArgumentException {
+    long windowNanos = windowUnit.toNanos(window);
+    this.tickInterval = tickUnit.toNanos(tickInterval);
+    if (windowNanos <= 0 || this.tickInterval <= 0) {
+      throw new IllegalArgumentException("window and tick interval must be positive");
+    }
+    this.intervalDecay = Math.exp(-((double) this.tickInterval) / windowNanos);
+    this.alpha = 1.0 - intervalDecay;
+    this.lastTick = time();
+  }
+
+  /**
+   * The classic one minute load average rate.
+   *
+   * @return a one minute rate average
+   */
+  public static EventRateExponentialMovingAverage oneMinute() {
+    return new EventRateExponentialMovingAverage(1, TimeUnit.MINUTES);
+  }
+
+  /**
+   * The classic five minute load average rate.
+   *
+   * @return a five minute rate average
+   */
+  public static EventRateExponentialMovingAverage fiveMinute() {
+    return new EventRateExponentialMovingAverage(5, TimeUnit.MINUTES);
+  }
+
+  /**
+   * The classic fifteen minute load average rate.
+   *
+   * @return a fifteen minute rate average
+   */
+  public static EventRateExponentialMovingAverage fifteenMinute() {
+    return new EventRateExponentialMovingAverage(15, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public Double value() {
+    return rateUsingSeconds();
+  }
+
+  @Override
+  public StatisticType type() {
+    return StatisticType.RATE;
+  }
+
+  public Double rateUsingSeconds() {
+    tickIfNecessary(time());
+    return rate * TimeUnit.SECONDS.toNanos(1);
+  }
+
+  public Double rate(TimeUnit base) {
+    return rateUsingSeconds() * ((double) base.toNanos(1) / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Override
+  public void event(long time, long latency) {
+    tickIfNecessary(time);
+    uncounted.increment();
+  }
+
+  private void tickIfNecessary(long time) {
+    if (time - lastTick >= tickInterval) {
+      tick(time);
+    }
+  }
+
+  private synchronized void tick(long time) {
+    long ticks = (time - lastTick) / tickInterval;
+    if (ticks > 0) {
+      lastTick += ticks * tickInterval;
+      long count = uncounted.sum();
+      uncounted.add(-count);
+      double instantRate = ((double) count) / tickInterval;
+      if (initialized) {
+        rate += alpha * (instantRate - rate);
+      } else {
+        rate = instantRate;
+        initialized = true;
+      }
+      if (ticks > 1) {
+        // the remaining ticks saw no events
+        rate *= Math.pow(intervalDecay, ticks - 1);
+      }
+    }
+  }
+}
@@ -20,13 +20,12 @@ import org.terracotta.statistics.StatisticType;
 import org.terracotta.statistics.ValueStatistic;
 import org.terracotta.statistics.observer.ChainedEventObserver;
 
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.LongAdder;
 
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
 import static org.terracotta.statistics.Time.time;
 
 /**
@@ -36,21 +35,34 @@ public class EventRateSimpleMovingAverage implements ChainedEventObserver, Value
 
   private static final int PARTITION_COUNT = 10;
 
-  private final Queue<CounterPartition> archive = new ConcurrentLinkedQueue<>();
-  private final AtomicReference<CounterPartition> activePartition;
+  /*
+   * A window of PARTITION_COUNT partitions can straddle two more partial partitions at either end.
+   */
+  private static final int RING_SIZE = PARTITION_COUNT + 2;
 
-  private volatile long windowSize;
-  private volatile long partitionSize;
+  volatile Ring ring;
 
   public EventRateSimpleMovingAverage(long time, TimeUnit unit) {
-    this.windowSize = unit.toNanos(time);
-    this.partitionSize = windowSize / PARTITION_COUNT;
-    this.activePartition = new AtomicReference<>(new CounterPartition(time(), partitionSize));
+    this.ring = new Ring(unit.toNanos(time), null);
   }
 
-  public void setWindow(long time, TimeUnit unit) {
-    this.windowSize = unit.toNanos(time);
-    this.partitionSize = windowSize / PARTITION_COUNT;
+  /*
+   * The replaced ring stays reachable from the new one, so events still in flight against it are not lost.  Rings
+   * replaced earlier than that are unlinked once they hold nothing within the new window, so repeated window changes
+   * without intervening reads cannot grow the chain without bound.
+   */
+  public synchronized void setWindow(long time, TimeUnit unit) {
+    long windowSize = unit.toNanos(time);
+    long startTime = time() - windowSize;
+    Ring replaced = ring;
+    for (Ring r = replaced, p; (p = r.previous) != null; ) {
+      if (p.live(startTime)) {
+        r = p;
+      } else {
+        r.previous = p.previous;
+      }
+    }
+    this.ring = new Ring(windowSize, replaced);
   }
 
   @Override
@@ -65,26 +77,30 @@ public class EventRateSimpleMovingAverage implements ChainedEventObserver, Value
 
   public Double rateUsingSeconds() {
     final long endTime = time();
-    final long startTime = endTime - windowSize;
+    final Ring current = ring;
+    final long startTime = endTime - current.windowSize;
 
-    CounterPartition current = activePartition.get();
-    long count;
+    long count = 0;
     long actualStartTime = startTime;
-    if (current.isBefore(startTime)) {
-      count = 0;
-    } else {
-      count = current.sum();
-      actualStartTime = Math.min(actualStartTime, current.start());
-    }
-    for (Iterator<CounterPartition> it = archive.iterator(); it.hasNext(); ) {
-      CounterPartition partition = it.next();
-      if (partition == current) {
-        break;
-      } else if (partition.isBefore(startTime)) {
-        it.remove();
+    Ring successor = null;
+    for (Ring r = current; r != null; r = r.previous) {
+      boolean live = false;
+      for (CounterPartition partition : r.partitions) {
+        long epoch = partition.epoch();
+        if (epoch != CounterPartition.EMPTY && epoch != CounterPartition.RESETTING) {
+          long start = epoch * r.partitionSize;
+          if (start + r.partitionSize >= startTime) {
+            count += partition.sum();
+            actualStartTime = Math.min(actualStartTime, start);
+            live = true;
+          }
+        }
+      }
+      if (live || successor == null) {
+        successor = r;
       } else {
-        actualStartTime = Math.min(actualStartTime, partition.start());
-        count += partition.sum();
+        //a replaced ring holding nothing within the window can no longer contribute
+        successor.previous = r.previous;
       }
     }
 
@@ -101,30 +117,46 @@ public class EventRateSimpleMovingAverage implements ChainedEventObserver, Value
 
   @Override
   public void event(long time, long latency) {
-    while (true) {
-      CounterPartition partition = activePartition.get();
-      if (partition.targetFor(time)) {
-        partition.increment();
-        return;
-      } else {
-        CounterPartition newPartition = new CounterPartition(time, partitionSize);
-        if (activePartition.compareAndSet(partition, newPartition)) {
-          archive(partition);
-          newPartition.increment();
-          return;
-        }
+    ring.event(time);
+  }
+
+  /**
+   * A fixed ring of partitions, with each partition owning the period {@code [epoch * partitionSize, (epoch + 1) * partitionSize)}.
+   * <p>
+   * A ring replaced by a window change is retained as the {@code previous} ring of its replacement, and read through
+   * until none of its partitions fall within the window.  Such rings are unlinked by reads, and by later window changes.
+   */
+  static final class Ring {
+
+    private final long windowSize;
+    private final long partitionSize;
+    private final CounterPartition[] partitions;
+    volatile Ring previous;
+
+    Ring(long windowSize, Ring previous) {
+      this.windowSize = windowSize;
+      this.partitionSize = Math.max(1L, windowSize / PARTITION_COUNT);
+      this.partitions = new CounterPartition[RING_SIZE];
+      for (int i = 0; i < partitions.length; i++) {
+        partitions[i] = new CounterPartition();
       }
+      this.previous = previous;
     }
-  }
 
-  private void archive(CounterPartition partition) {
-    archive.add(partition);
+    void event(long time) {
+      long epoch = floorDiv(time, partitionSize);
+      partitions[(int) floorMod(epoch, (long) partitions.length)].increment(epoch);
+    }
 
-    long startTime = partition.end() - windowSize;
-    for (CounterPartition earliest = archive.peek(); earliest != null && earliest.isBefore(startTime); earliest = archive.peek()) {
-      if (archive.remove(earliest)) {
-        break;
+    boolean live(long startTime) {
+      for (CounterPartition partition : partitions) {
+        long epoch = partition.epoch();
+        if (epoch != CounterPartition.EMPTY && epoch != CounterPartition.RESETTING
+            && epoch * partitionSize + partitionSize >= startTime) {
+          return true;
+        }
       }
+      return false;
     }
   }
 
@@ -132,28 +164,39 @@ public class EventRateSimpleMovingAverage implements ChainedEventObserver, Value
 
     private static final long serialVersionUID = 1L;
 
-    private final long start;
-    private final long end;
+    static final long EMPTY = Long.MIN_VALUE;
+    static final long RESETTING = Long.MIN_VALUE + 1;
 
-    CounterPartition(long start, long length) {
-      this.start = start;
-      this.end = start + length;
-    }
+    private static final AtomicLongFieldUpdater<CounterPartition> EPOCH_UPDATER = AtomicLongFieldUpdater.newUpdater(CounterPartition.class, "epoch");
 
-    public boolean targetFor(long time) {
-      return end > time;
-    }
+    private volatile long epoch = EMPTY;
 
-    public boolean isBefore(long time) {
-      return end < time;
+    public long epoch() {
+      return epoch;
     }
 
-    public long start() {
-      return start;
+    public void increment(long target) {
+      add(target, 1L);
     }
 
-    public long end() {
-      return end;
+    /*
+     * Late events, for partitions the ring has already moved past, are counted in the current owner of the slot.
+     */
+    public void add(long target, long count) {
+      while (true) {
+        long current = epoch;
+        if (current == RESETTING) {
+          Thread.yield();
+        } else if (current >= target) {
+          add(count);
+          return;
+        } else if (EPOCH_UPDATER.compareAndSet(this, current, RESETTING)) {
+          reset();
+          add(count);
+          epoch = target;
+          return;
+        }
+      }
     }
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived;
+
+import org.terracotta.statistics.observer.ChainedOperationObserver;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dispatches operation results to a set of {@link OperationResultFilter} instances observing the same source.
+ * <p>
+ * Rather than each filter testing every result against its own targets, the dispatcher maintains a table, indexed by
+ * result ordinal, of the filters targeting that result. Registering a single dispatcher against a source in place of
+ * its filters reduces the per-event cost to a single table lookup regardless of the number of filters.
+ */
+public class OperationResultDispatcher<T extends Enum<T>> implements ChainedOperationObserver<T> {
+
+  private final Class<T> type;
+  private final List<OperationResultFilter<T>> filters = new ArrayList<>();
+  private volatile OperationResultFilter<T>[][] dispatch;
+
+  public OperationResultDispatcher(Class<T> type) {
+    this.type = type;
+    this.dispatch = compile(type, filters);
+  }
+
+  public synchronized void addFilter(OperationResultFilter<T> filter) {
+    filters.add(filter);
+    dispatch = compile(type, filters);
+  }
+
+  public synchronized void removeFilter(OperationResultFilter<T> filter) {
+    if (filters.remove(filter)) {
+      dispatch = compile(type, filters);
+    }
+  }
+
+  public synchronized Collection<OperationResultFilter<T>> getFilters() {
+    return Collections.unmodifiableList(new ArrayList<>(filters));
+  }
+
+  @Override
+  public void begin(long time) {
+    //no-op
+  }
+
+  @Override
+  public void end(long time, long latency, T result) {
+    for (OperationResultFilter<T> filter : dispatch[result.ordinal()]) {
+      if (filter.observed()) {
+        filter.accepted(time, latency);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Enum<T>> OperationResultFilter<T>[][] compile(Class<T> type, List<OperationResultFilter<T>> filters) {
+    T[] results = type.getEnumConstants();
+    OperationResultFilter<T>[][] table = (OperationResultFilter<T>[][]) Array.newInstance(OperationResultFilter.class, results.length, 0);
+    for (T result : results) {
+      List<OperationResultFilter<T>> targeting = new ArrayList<>();
+      for (OperationResultFilter<T> filter : filters) {
+        if (filter.accepts(result)) {
+          targeting.add(filter);
+        }
+      }
+      table[result.ordinal()] = targeting.toArray(table[result.ordinal()]);
+    }
+    return table;
+  }
+}
@@ -29,15 +29,38 @@ import java.util.Set;
  */
 public class OperationResultFilter<T extends Enum<T>> extends AbstractSourceStatistic<ChainedEventObserver> implements ChainedOperationObserver<T> {
 
+  private static final ChainedEventObserver[] NO_OBSERVERS = new ChainedEventObserver[0];
+
   protected final Set<T> targets;
+  private final long targetMask;
+  private volatile ChainedEventObserver[] observers = NO_OBSERVERS;
 
   public OperationResultFilter(Set<T> targets, ChainedEventObserver... observers) {
     this.targets = EnumSet.copyOf(targets);
+    long mask = 0L;
+    for (T target : this.targets) {
+      if (target.ordinal() < Long.SIZE) {
+        mask |= 1L << target.ordinal();
+      }
+    }
+    this.targetMask = mask;
     for (ChainedEventObserver observer : observers) {
       addDerivedStatistic(observer);
     }
   }
 
+  @Override
+  public synchronized void addDerivedStatistic(ChainedEventObserver derived) {
+    super.addDerivedStatistic(derived);
+    observers = derivedStatistics.toArray(NO_OBSERVERS);
+  }
+
+  @Override
+  public synchronized void removeDerivedStatistic(ChainedEventObserver derived) {
+    super.removeDerivedStatistic(derived);
+    observers = derivedStatistics.toArray(NO_OBSERVERS);
+  }
+
   @Override
   public void begin(long time) {
     //no-op
@@ -45,10 +68,56 @@ public class OperationResultFilter<T extends Enum<T>> extends AbstractSourceStat
 
   @Override
   public void end(long time, long latency, T result) {
-    if (!derivedStatistics.isEmpty() && targets.contains(result)) {
-      for (ChainedEventObserver derived : derivedStatistics) {
-        derived.event(time, latency);
-      }
+    if (observed() && accepts(result)) {
+      accepted(time, latency);
+    }
+  }
+
+  /**
+   * Returns {@code true} if {@code result} is one of this filter's targets.
+   * <p>
+   * Outcomes with ordinals below 64 are tested against a precomputed bitmask.
+   *
+   * @param result operation result
+   * @return {@code true} if the result is targeted
+   */
+  protected final boolean accepts(T result) {
+    int ordinal = result.ordinal();
+    if (ordinal < Long.SIZE) {
+      return (targetMask & (1L << ordinal)) != 0;
+    } else {
+      return targets.contains(result);
+    }
+  }
+
+  /**
+   * Returns {@code true} if any derived statistics are registered with this filter.
+   *
+   * @return {@code true} if this filter is observed
+   */
+  final boolean observed() {
+    return observers.length != 0;
+  }
+
+  /**
+   * Called for each operation whose result is targeted by this filter.
+   *
+   * @param time operation end time
+   * @param latency operation latency
+   */
+  protected void accepted(long time, long latency) {
+    fire(time, latency);
+  }
+
+  /**
+   * Forwards an event to the current snapshot of derived statistics.
+   *
+   * @param time event time
+   * @param latency event latency
+   */
+  protected final void fire(long time, long latency) {
+    for (ChainedEventObserver derived : observers) {
+      derived.event(time, latency);
     }
   }
 
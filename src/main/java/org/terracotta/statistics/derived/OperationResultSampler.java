@@ -37,11 +37,9 @@ public class OperationResultSampler<T extends Enum<T>> extends OperationResultFi
   }
 
   @Override
-  public void end(long time, long latency, T result) {
-    if (!derivedStatistics.isEmpty() && targets.contains(result) && sample()) {
-      for (ChainedEventObserver derived : derivedStatistics) {
-        derived.event(time, latency);
-      }
+  protected void accepted(long time, long latency) {
+    if (sample()) {
+      fire(time, latency);
     }
   }
 
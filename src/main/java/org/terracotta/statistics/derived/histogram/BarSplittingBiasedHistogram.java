@@ -17,12 +17,13 @@
 package org.terracotta.statistics.derived.histogram;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 
 import static java.lang.Math.nextDown;
 import static java.lang.Math.nextUp;
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.fill;
+import static java.util.Collections.singletonList;
 import static java.util.Comparator.comparingDouble;
 import static java.util.stream.Stream.of;
 
@@ -42,6 +43,7 @@ public class BarSplittingBiasedHistogram implements Histogram {
   private static final double DEFAULT_PHI = 0.7;
   private static final int DEFAULT_EXPANSION_FACTOR = 7;
   private static final double DEFAULT_EXP_HISTOGRAM_EPSILON = 0.01;
+  private static final long NO_EVENTS = Long.MAX_VALUE;
 
   private final int barCount;
   private final int bucketCount;
@@ -50,9 +52,24 @@ public class BarSplittingBiasedHistogram implements Histogram {
   private final double phi;
   private final double alphaPhi;
   private final double ratio;
-  private final List<Bar> bars;
   private final double[] maxSizeTable;
 
+  /*
+   * Bars are stored as parallel arrays ordered by value: bar i covers [minimums[i], maximums[i]) and its count is
+   * maintained by histograms[i].  Exponential histograms released by merging or expiry are recycled through spares.
+   *
+   * oldest[i] is a lower bound on the timestamp of the oldest live event in bar i (NO_EVENTS if it has none), and
+   * oldestEvent is a lower bound across all bars.  Expiry only needs to visit the bars whose bound has left the window.
+   */
+  private final double[] minimums;
+  private final double[] maximums;
+  private final long[] oldest;
+  private final ExponentialHistogram[] histograms;
+  private final ExponentialHistogram[] spares;
+  private int barsInUse;
+  private int spareCount;
+  private long oldestEvent = NO_EVENTS;
+
   private long size;
 
   /**
@@ -82,9 +99,13 @@ public class BarSplittingBiasedHistogram implements Histogram {
     this.window = window;
     this.barCount = bucketCount * expansionFactor;
 
-    this.bars = new ArrayList<>(barCount);
-    this.bars.add(new Bar(barEpsilon, window));
+    this.minimums = new double[barCount];
+    this.maximums = new double[barCount];
+    this.oldest = new long[barCount];
+    this.histograms = new ExponentialHistogram[barCount];
+    this.spares = new ExponentialHistogram[barCount];
     this.phi = phi;
+    addEmptyBar();
 
     /*
      * Using L'Hôpital: lim_(x->1) f(x)/g(x) = lim_(x->1)(f'(x))/(g'(x))
@@ -146,66 +167,155 @@ public class BarSplittingBiasedHistogram implements Histogram {
    */
   public void event(double value, long time) {
     int barIndex = getBarIndex(value);
-    Bar bar = bars.get(barIndex);
+    if (!(value >= minimums[barIndex])) {
+      minimums[barIndex] = value;
+    }
+    if (!(value < maximums[barIndex])) {
+      maximums[barIndex] = nextUp(value);
+    }
+    ExponentialHistogram bar = histograms[barIndex];
     long before = bar.count();
-    bar.insert(value, time);
+    bar.insert(time);
+    if (time < oldest[barIndex]) {
+      oldest[barIndex] = time;
+      if (time < oldestEvent) {
+        oldestEvent = time;
+      }
+    }
     long after = bar.count();
     size += (after - before);
     if (after > maxBarSize(barIndex)) {
-      split(bar, barIndex);
+      split(barIndex);
+    }
+  }
+
+  /**
+   * Record {@code count} events of the given {@code value} occurring at the given {@code time}.
+   * <p>
+   *   The events are inserted in bulk, and the receiving bar is then split repeatedly until it is back within its size
+   *   limit, so replaying pre-aggregated data costs time proportional to the number of distinct values, not events.
+   * </p>
+   *
+   * @param value event value
+   * @param count event count
+   * @param time event time
+   * @throws IllegalArgumentException if count is negative
+   */
+  @Override
+  public void event(double value, long count, long time) throws IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException("negative count");
+    } else if (count == 1) {
+      event(value, time);
+    } else if (count > 0) {
+      int barIndex = getBarIndex(value);
+      if (!(value >= minimums[barIndex])) {
+        minimums[barIndex] = value;
+      }
+      if (!(value < maximums[barIndex])) {
+        maximums[barIndex] = nextUp(value);
+      }
+      ExponentialHistogram bar = histograms[barIndex];
+      long before = bar.count();
+      bar.insert(time, count);
+      if (time < oldest[barIndex]) {
+        oldest[barIndex] = time;
+        if (time < oldestEvent) {
+          oldestEvent = time;
+        }
+      }
+      long after = bar.count();
+      size += (after - before);
+      while (after > maxBarSize(barIndex) && split(barIndex)) {
+        barIndex = getBarIndex(value);
+        long remaining = histograms[barIndex].count();
+        if (remaining >= after) {
+          //the bar is too narrow to divide any further
+          break;
+        }
+        after = remaining;
+      }
     }
   }
 
   /**
    * Expire old events from all buckets.
+   * <p>
+   *   This is a constant time operation unless some events have left the window, in which case only the bars holding
+   *   expired events are expired.
+   * </p>
    *
    * @param time current timestamp
    */
   public void expire(long time) {
-    long calculatedSize = 0;
-    Iterator<Bar> it = bars.iterator();
-    while (it.hasNext()) {
-      long barSize = it.next().expire(time);
-      if (barSize == 0) {
-        it.remove();
+    if (oldestEvent != NO_EVENTS && (time - oldestEvent) < window) {
+      return;
+    }
+    long nextOldest = NO_EVENTS;
+    int live = 0;
+    for (int i = 0; i < barsInUse; i++) {
+      long barOldest = oldest[i];
+      ExponentialHistogram histogram = histograms[i];
+      if (barOldest == NO_EVENTS || (time - barOldest) >= window) {
+        long before = histogram.count();
+        long after = histogram.expire(time);
+        size -= before - after;
+        if (after == 0) {
+          release(histogram);
+          continue;
+        }
+        barOldest = histogram.oldest();
       }
-      calculatedSize += barSize;
+      minimums[live] = minimums[i];
+      maximums[live] = maximums[i];
+      oldest[live] = barOldest;
+      histograms[live] = histogram;
+      nextOldest = Math.min(nextOldest, barOldest);
+      live++;
     }
-    this.size = calculatedSize;
-    if (bars.isEmpty()) {
-      bars.add(new Bar(barEpsilon, window));
+    fill(histograms, live, barsInUse, null);
+    barsInUse = live;
+    oldestEvent = nextOldest;
+    if (barsInUse == 0) {
+      addEmptyBar();
     }
   }
 
   @Override
   public String toString() {
-    return bars.toString();
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < barsInUse; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append("[").append(minimums[i]).append(" --").append(histograms[i].count()).append("-> ").append(maximums[i]).append("]");
+    }
+    return sb.append("]").toString();
   }
 
   @Override
   public List<Histogram.Bucket> getBuckets() {
     List<Histogram.Bucket> buckets = new ArrayList<>(bucketCount);
     double targetSize = size() * alphaPhi; // * phi^0
-    Iterator<Bar> it = bars.iterator();
-    Bar b = it.next();
-    double minimum = b.minimum();
-    double count = b.count();
-    for (int i = 0; i < bucketCount - 1 && it.hasNext(); i++) {
-      while (count < targetSize && it.hasNext()) {
-        count += (b = it.next()).count();
+    int b = 0;
+    double minimum = minimums[b];
+    double count = histograms[b].count();
+    for (int i = 0; i < bucketCount - 1 && b + 1 < barsInUse; i++) {
+      while (count < targetSize && b + 1 < barsInUse) {
+        count += histograms[++b].count();
       }
       
       double surplus = count - targetSize;
-      double maximum = nextUpIfEqual(minimum, b.maximum() - ((b.maximum() - b.minimum()) * surplus / b.count()));
+      double maximum = nextUpIfEqual(minimum, maximums[b] - ((maximums[b] - minimums[b]) * surplus / histograms[b].count()));
       buckets.add(new ImmutableBucket(minimum, maximum, targetSize));
       minimum = maximum;
       count = surplus;
       targetSize *= phi;
     }
-    while (it.hasNext()) {
-      count += (b = it.next()).count();
+    while (b + 1 < barsInUse) {
+      count += histograms[++b].count();
     }
-    buckets.add(new ImmutableBucket(minimum, nextUpIfEqual(minimum, b.maximum()), count));
+    buckets.add(new ImmutableBucket(minimum, nextUpIfEqual(minimum, maximums[b]), count));
     return buckets;
   }
 
@@ -215,12 +325,12 @@ public class BarSplittingBiasedHistogram implements Histogram {
 
   @Override
   public double getMinimum() {
-    return bars.get(0).minimum();
+    return minimums[0];
   }
 
   @Override
   public double getMaximum() {
-    return nextDown(bars.get(bars.size() - 1).maximum());
+    return nextDown(maximums[barsInUse - 1]);
   }
 
   @Override
@@ -233,6 +343,26 @@ public class BarSplittingBiasedHistogram implements Histogram {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   *   The bars are walked once to build a {@link #snapshot()}, against which each quantile is a binary search.
+   * </p>
+   */
+  @Override
+  public double[][] getQuantileBounds(double[] quantiles) {
+    return snapshot().getQuantileBounds(quantiles);
+  }
+
+  /**
+   * Returns an immutable snapshot of this histogram.
+   *
+   * @return a histogram snapshot
+   */
+  public HistogramSnapshot snapshot() {
+    return HistogramSnapshot.of(singletonList(HistogramSnapshot.Stripe.capture(this)));
+  }
+
   private double[] evaluateQuantileFromMax(double quantile) {
     double[] sizeBounds = getSizeBounds();
     double lowThreshold = (1.0 - quantile) * sizeBounds[0];
@@ -241,18 +371,17 @@ public class BarSplittingBiasedHistogram implements Histogram {
     double lowCount = 0;
     double highCount = 0;
 
-    for (ListIterator<Bar> it = bars.listIterator(bars.size()); it.hasPrevious(); ) {
-      Bar b = it.previous();
-      lowCount += b.count() * (1.0 - b.epsilon());
-      highCount += b.count() * (1.0 + b.epsilon());
+    for (int b = barsInUse - 1; b >= 0; b--) {
+      long count = histograms[b].count();
+      lowCount += count * (1.0 - barEpsilon);
+      highCount += count * (1.0 + barEpsilon);
 
       if (highCount >= lowThreshold) {
-        double upperBound = b.maximum();
-        while (lowCount < highThreshold && it.hasPrevious()) {
-          b = it.previous();
-          lowCount += b.count() * (1.0 - b.epsilon());
+        double upperBound = maximums[b];
+        while (lowCount < highThreshold && b > 0) {
+          lowCount += histograms[--b].count() * (1.0 - barEpsilon);
         }
-        return new double[] {b.minimum(), upperBound};
+        return new double[] {minimums[b], upperBound};
       }
     }
     throw new AssertionError();
@@ -266,18 +395,17 @@ public class BarSplittingBiasedHistogram implements Histogram {
     double lowCount = 0;
     double highCount = 0;
 
-    for (ListIterator<Bar> it = bars.listIterator(); it.hasNext(); ) {
-      Bar b = it.next();
-      lowCount += b.count() * (1.0 - b.epsilon());
-      highCount += b.count() * (1.0 + b.epsilon());
+    for (int b = 0; b < barsInUse; b++) {
+      long count = histograms[b].count();
+      lowCount += count * (1.0 - barEpsilon);
+      highCount += count * (1.0 + barEpsilon);
 
       if (highCount >= lowThreshold) {
-        double lowerBound = b.minimum();
-        while (lowCount < highThreshold && it.hasNext()) {
-          b = it.next();
-          lowCount += b.count() * (1.0 - b.epsilon());
+        double lowerBound = minimums[b];
+        while (lowCount < highThreshold && b + 1 < barsInUse) {
+          lowCount += histograms[++b].count() * (1.0 - barEpsilon);
         }
-        return new double[] {lowerBound, b.maximum()};
+        return new double[] {lowerBound, maximums[b]};
       }
     }
     throw new AssertionError();
@@ -287,44 +415,149 @@ public class BarSplittingBiasedHistogram implements Histogram {
     return size() * maxSizeTable[barIndex];
   }
 
-  private void split(Bar x, int xIndex) {
+  private boolean split(int xIndex) {
     int mergePoint = Integer.MAX_VALUE;
-    if (bars.size() < barCount || (mergePoint = mergeBars()) >= 0) {
-      long before = x.count();
-      Bar split = x.split(ratio);
-      size += (x.count() + split.count()) - before;
-
-      if (xIndex < mergePoint) {
-        bars.add(xIndex + 1, split);
-      } else if (xIndex > mergePoint) {
-        bars.add(xIndex, split);
-      } else {
+    if (barsInUse < barCount || (mergePoint = mergeBars()) >= 0) {
+      if (xIndex > mergePoint) {
+        //the merged-away bar sat below us
+        xIndex--;
+      } else if (xIndex == mergePoint) {
         throw new AssertionError("split at merge point!");
       }
+      splitBar(xIndex);
+      return true;
+    } else {
+      return false;
     }
   }
 
+  /*
+   * This method is problematic.  What it's doing is attempting to split this bar in to two pieces, such that their
+   * counts are in the ratio ρ (the bar adjusted φ).
+   *  ______
+   * |      |
+   * |      |
+   * |      |
+   * |      |     ______     ______
+   * |      |    |      |   |      |
+   * | this | => |  s1  | + |  s2  |
+   * |______|    |______|   |______|
+   *
+   * So:
+   *   s2.count() = s1.count() * ρ
+   *   s1.count() + s2.count() = this.count()
+   *
+   *   s2.count() = (ρ / (1 + ρ)) * this.count()
+   *
+   * Define:
+   *   θ = 1 - (ρ / (1 + ρ))
+   *
+   * So we split off (1 - θ) of the total count to form s2.  We then have to decide the bounds for s1 and s2...
+   * this is where things go wrong.
+   *
+   *     _______________
+   *    |         |     |
+   *    |         |   __|
+   *    |   ____  |  /  |
+   *    |  /    \_|_/   |
+   *    | /       |     |
+   *    |/      θ-qtle  |
+   *    |_________|_____|
+   *   min      split  max
+   *
+   * The 'correct' place to split the bar is at the θ-quantile of the distribution within the bar.  We don't know this
+   * however.  In fact we know nothing (Jon Snow) - instead we approximate the distribution as flat within the bar,
+   * so:
+   *     __________ __________
+   *    |          |          |
+   *    |    s1    |    s2    |
+   *    |__________|__________|
+   *   min  min+θ*(max-min)  max
+   *
+   * This inaccurate splitting corrupts our quantile measurements. What follows is a pseudo-mathematical justification
+   * for why this is okay.
+   *
+   * We define three regions of interest:
+   *
+   * θ-qtle = min + θ*(max-min); perfect split, uninteresting.
+   *
+   * θ-qtle > min + θ*(max-min); in this region:
+   *  * any quantile determined to fall within the bounds of s1 has it's upper boundary under-estimated. A major issue,
+   *    since this makes the upper bound look lower (read better) for a latency measure, while lying to our user.
+   *  * any quantile determined to fall within the bounds of s2 has it's lower boundary under-estimated. A non-issue,
+   *    this increases our uncertainty, but correctness is maintained.
+   *
+   * θ-qtle < min + θ*(max-min); in this region:
+   *  * any quantile determined to fall within the bounds of s1 has it's upper boundary over-estimated. A non-issue,
+   *    this increases our uncertainty, but correctness is maintained.
+   *  * any quantile determined to fall within the bounds of s2 has it's lower boundary over-estimated. A minor issue,
+   *    since for our purposes an excessive latency measure is to our detriment, but not that of our users.
+   *
+   * Finally, here comes the wooo... in the tail (where the high-percentiles exist) regions where
+   * θ-qtle > min + θ*(max-min) are rare since these are associated with regions of net +ve slope, and yet tails must
+   * have net -ve slope.
+   *
+   * I therefore declare everything safe, and sweep all this nonsense under the rug.
+   */
+  private void splitBar(int index) {
+    ExponentialHistogram lower = histograms[index];
+    ExponentialHistogram upper = acquire();
+
+    long before = lower.count();
+    lower.split(ratio, upper);
+    long lowerCount = lower.count();
+    long upperCount = upper.count();
+    size += (lowerCount + upperCount) - before;
+
+    double splitRatio = ((double) upperCount) / (lowerCount + upperCount);
+    double minimum = minimums[index];
+    double maximum = maximums[index];
+    double upperMinimum = maximum - ((maximum - minimum) * splitRatio);
+
+    int insert = index + 1;
+    arraycopy(minimums, insert, minimums, insert + 1, barsInUse - insert);
+    arraycopy(maximums, insert, maximums, insert + 1, barsInUse - insert);
+    arraycopy(oldest, insert, oldest, insert + 1, barsInUse - insert);
+    arraycopy(histograms, insert, histograms, insert + 1, barsInUse - insert);
+    barsInUse++;
+
+    maximums[index] = upperMinimum;
+    minimums[insert] = upperMinimum;
+    maximums[insert] = maximum;
+    histograms[insert] = upper;
+    oldest[index] = lower.oldest();
+    oldest[insert] = upper.oldest();
+  }
+
   private int mergeBars() {
     int lowestAggregateIndex = -1;
     double lowestAggregate = Double.POSITIVE_INFINITY;
 
-    for (int index = 0; index < bars.size() - 1; index++) {
-      Bar current = bars.get(index);
-      Bar next = bars.get(index + 1);
-      double aggregate = (((double) current.count()) / maxSizeTable[index]) + (((double) next.count()) / maxSizeTable[index + 1]);
+    for (int index = 0; index < barsInUse - 1; index++) {
+      double aggregate = (((double) histograms[index].count()) / maxSizeTable[index]) + (((double) histograms[index + 1].count()) / maxSizeTable[index + 1]);
       if (aggregate < lowestAggregate) {
         lowestAggregate = aggregate;
         lowestAggregateIndex = index;
       }
     }
     
-    if (bars.get(lowestAggregateIndex).count() + bars.get(lowestAggregateIndex + 1).count() < maxBarSize(lowestAggregateIndex)) {
-      Bar upper = bars.remove(lowestAggregateIndex + 1);
-      Bar lower = bars.get(lowestAggregateIndex);
+    ExponentialHistogram lower = histograms[lowestAggregateIndex];
+    ExponentialHistogram upper = histograms[lowestAggregateIndex + 1];
+    if (lower.count() + upper.count() < maxBarSize(lowestAggregateIndex)) {
       long before = lower.count() + upper.count();
       lower.merge(upper);
       size += lower.count() - before;
-      return lowestAggregateIndex + 1;
+      maximums[lowestAggregateIndex] = maximums[lowestAggregateIndex + 1];
+      oldest[lowestAggregateIndex] = Math.min(oldest[lowestAggregateIndex], oldest[lowestAggregateIndex + 1]);
+
+      int remove = lowestAggregateIndex + 1;
+      arraycopy(minimums, remove + 1, minimums, remove, barsInUse - remove - 1);
+      arraycopy(maximums, remove + 1, maximums, remove, barsInUse - remove - 1);
+      arraycopy(oldest, remove + 1, oldest, remove, barsInUse - remove - 1);
+      arraycopy(histograms, remove + 1, histograms, remove, barsInUse - remove - 1);
+      histograms[--barsInUse] = null;
+      release(upper);
+      return remove;
     } else {
       return -1;
     }
@@ -332,15 +565,14 @@ public class BarSplittingBiasedHistogram implements Histogram {
   
   private int getBarIndex(double value) {
     int low = 0;
-    int high = bars.size() - 1;
+    int high = barsInUse - 1;
 
     int mid;
     do {
       mid = (high + low) >>> 1;
-      Bar bar = bars.get(mid);
-      if (value >= bar.maximum()) {
+      if (value >= maximums[mid]) {
         low = mid + 1;
-      } else if (value < bar.minimum()) {
+      } else if (value < minimums[mid]) {
         high = mid - 1;
       } else {
         return mid;
@@ -350,6 +582,30 @@ public class BarSplittingBiasedHistogram implements Histogram {
     return mid;
   }
 
+  private void addEmptyBar() {
+    ExponentialHistogram histogram = acquire();
+    histogram.reset();
+    minimums[0] = Double.NaN;
+    maximums[0] = Double.NaN;
+    oldest[0] = NO_EVENTS;
+    histograms[0] = histogram;
+    barsInUse = 1;
+  }
+
+  private ExponentialHistogram acquire() {
+    if (spareCount == 0) {
+      return new ExponentialHistogram(barEpsilon, window);
+    } else {
+      ExponentialHistogram spare = spares[--spareCount];
+      spares[spareCount] = null;
+      return spare;
+    }
+  }
+
+  private void release(ExponentialHistogram histogram) {
+    spares[spareCount++] = histogram;
+  }
+
   @Override
   public long size() {
     return size;
@@ -360,8 +616,24 @@ public class BarSplittingBiasedHistogram implements Histogram {
     return new double[] { size * (1 - barEpsilon), size * (1 + barEpsilon) };
   }
 
-  List<Bar> bars() {
-    return bars;
+  int barsInUse() {
+    return barsInUse;
+  }
+
+  double barMinimum(int index) {
+    return minimums[index];
+  }
+
+  double barMaximum(int index) {
+    return maximums[index];
+  }
+
+  long barCount(int index) {
+    return histograms[index].count();
+  }
+
+  double barEpsilon() {
+    return barEpsilon;
   }
 
   double alphaPhi() {
@@ -375,139 +647,4 @@ public class BarSplittingBiasedHistogram implements Histogram {
   int bucketCount() {
     return bucketCount;
   }
-
-  static final class Bar {
-
-    private final ExponentialHistogram eh;
-    private double minimum = Double.NaN;
-    private double maximum = Double.NaN;
-
-    Bar(double epsilon, long window) {
-      this.eh = new ExponentialHistogram(epsilon, window);
-    }
-
-    private Bar(ExponentialHistogram eh, double minimum, double maximum) {
-      this.eh = eh;
-      this.minimum = minimum;
-      this.maximum = maximum;
-    }
-
-    void insert(double value, long time) {
-      if (!(value >= minimum)) {
-        minimum = value;
-      }
-      if (!(value < maximum)) {
-        maximum = nextUp(value);
-      }
-      eh.insert(time);
-    }
-
-    long expire(long time) {
-      return eh.expire(time);
-    }
-
-    long count() {
-      return eh.count();
-    }
-
-    @Override
-    public String toString() {
-      return "[" + minimum + " --" + count() + "-> " + maximum + "]";
-    }
-
-    /*
-     * This method is problematic.  What it's doing is attempting to split this bar in to two pieces, such that their
-     * counts are in the ratio ρ (the bar adjusted φ).
-     *  ______
-     * |      |
-     * |      |
-     * |      |
-     * |      |     ______     ______
-     * |      |    |      |   |      |
-     * | this | => |  s1  | + |  s2  |
-     * |______|    |______|   |______|
-     *
-     * So:
-     *   s2.count() = s1.count() * ρ
-     *   s1.count() + s2.count() = this.count()
-     *
-     *   s2.count() = (ρ / (1 + ρ)) * this.count()
-     *
-     * Define:
-     *   θ = 1 - (ρ / (1 + ρ))
-     *
-     * So we split off (1 - θ) of the total count to form s2.  We then have to decide the bounds for s1 and s2...
-     * this is where things go wrong.
-     *
-     *     _______________
-     *    |         |     |
-     *    |         |   __|
-     *    |   ____  |  /  |
-     *    |  /    \_|_/   |
-     *    | /       |     |
-     *    |/      θ-qtle  |
-     *    |_________|_____|
-     *   min      split  max
-     *
-     * The 'correct' place to split the bar is at the θ-quantile of the distribution within the bar.  We don't know this
-     * however.  In fact we know nothing (Jon Snow) - instead we approximate the distribution as flat within the bar,
-     * so:
-     *     __________ __________
-     *    |          |          |
-     *    |    s1    |    s2    |
-     *    |__________|__________|
-     *   min  min+θ*(max-min)  max
-     *
-     * This inaccurate splitting corrupts our quantile measurements. What follows is a pseudo-mathematical justification
-     * for why this is okay.
-     *
-     * We define three regions of interest:
-     *
-     * θ-qtle = min + θ*(max-min); perfect split, uninteresting.
-     *
-     * θ-qtle > min + θ*(max-min); in this region:
-     *  * any quantile determined to fall within the bounds of s1 has it's upper boundary under-estimated. A major issue,
-     *    since this makes the upper bound look lower (read better) for a latency measure, while lying to our user.
-     *  * any quantile determined to fall within the bounds of s2 has it's lower boundary under-estimated. A non-issue,
-     *    this increases our uncertainty, but correctness is maintained.
-     *
-     * θ-qtle < min + θ*(max-min); in this region:
-     *  * any quantile determined to fall within the bounds of s1 has it's upper boundary over-estimated. A non-issue,
-     *    this increases our uncertainty, but correctness is maintained.
-     *  * any quantile determined to fall within the bounds of s2 has it's lower boundary over-estimated. A minor issue,
-     *    since for our purposes an excessive latency measure is to our detriment, but not that of our users.
-     *
-     * Finally, here comes the wooo... in the tail (where the high-percentiles exist) regions where
-     * θ-qtle > min + θ*(max-min) are rare since these are associated with regions of net +ve slope, and yet tails must
-     * have net -ve slope.
-     *
-     * I therefore declare everything safe, and sweep all this nonsense under the rug.
-     */
-    Bar split(double targetRatio) {
-      ExponentialHistogram split = eh.split(targetRatio);
-      double ratio = ((double) split.count()) / (eh.count() + split.count());
-      double upperMinimum = maximum - ((maximum - minimum) * ratio);
-      double upperMaximum = maximum;
-      this.maximum = upperMinimum;
-      
-      return new Bar(split, upperMinimum, upperMaximum);
-    }
-
-    void merge(Bar higher) {
-      eh.merge(higher.eh);
-      maximum = higher.maximum;
-    }
-
-    double minimum() {
-      return minimum;
-    }
-
-    double maximum() {
-      return maximum;
-    }
-
-    double epsilon() {
-      return eh.epsilon();
-    }
-  }
 }
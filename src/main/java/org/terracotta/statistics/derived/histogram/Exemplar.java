@@ -0,0 +1,65 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+/**
+ * A single sampled event retained alongside a histogram, so that the events behind a bucket can be traced.
+ */
+public final class Exemplar {
+
+  private final double value;
+  private final long time;
+  private final Object context;
+
+  Exemplar(double value, long time, Object context) {
+    this.value = value;
+    this.time = time;
+    this.context = context;
+  }
+
+  /**
+   * Returns the event value.
+   *
+   * @return the event value
+   */
+  public double value() {
+    return value;
+  }
+
+  /**
+   * Returns the event timestamp.
+   *
+   * @return the event timestamp
+   */
+  public long time() {
+    return time;
+  }
+
+  /**
+   * Returns the caller supplied context of the event (a thread name or key hash for example).
+   *
+   * @return the event context, or {@code null}
+   */
+  public Object context() {
+    return context;
+  }
+
+  @Override
+  public String toString() {
+    return "[value=" + value + " @" + time + (context == null ? "" : " " + context) + "]";
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A histogram that retains a bounded sample of exemplar events alongside the events it counts.
+ * <p>
+ *   Exemplars are sampled by an {@link ExemplarReservoir}, and so are maintained over the same sliding window as the
+ *   underlying histogram.  This class is as thread-safe as the histogram it wraps.
+ * </p>
+ * <p>
+ *   The reservoir is stratified by power-of-two value range rather than by histogram bucket: bucket boundaries move as
+ *   the histogram adapts to its input, while the exemplar bins must stay fixed.  The exemplars of a bucket are those
+ *   retained by the bins it overlaps that fall within its bounds, so a narrow bucket sharing a bin with a heavily
+ *   populated neighbour may hold few (or no) exemplars of its own.
+ * </p>
+ */
+public class ExemplarHistogram implements Histogram {
+
+  private static final AtomicLongFieldUpdater<ExemplarHistogram> NOW_UPDATER = AtomicLongFieldUpdater.newUpdater(ExemplarHistogram.class, "now");
+
+  private final Histogram histogram;
+  private final ExemplarReservoir exemplars;
+  private volatile long now = Long.MIN_VALUE;
+
+  /**
+   * Creates an exemplar retaining view of {@code histogram}.
+   *
+   * @param histogram the histogram counting events
+   * @param exemplarsPerBin exemplars retained per power-of-two value range
+   * @param window sliding window size, matching that of the histogram
+   */
+  public ExemplarHistogram(Histogram histogram, int exemplarsPerBin, long window) {
+    this.histogram = histogram;
+    this.exemplars = new ExemplarReservoir(exemplarsPerBin, window);
+  }
+
+  /**
+   * Records an event and offers it as an exemplar.
+   *
+   * @param value event value
+   * @param time event timestamp
+   * @param context caller supplied context, or {@code null}
+   */
+  public void event(double value, long time, Object context) {
+    histogram.event(value, time);
+    exemplars.offer(value, time, context);
+    advance(time);
+  }
+
+  @Override
+  public void event(double value, long time) {
+    event(value, time, null);
+  }
+
+  @Override
+  public void event(double value, long count, long time) throws IllegalArgumentException {
+    histogram.event(value, count, time);
+    exemplars.offer(value, time, null);
+    advance(time);
+  }
+
+  @Override
+  public void expire(long time) {
+    histogram.expire(time);
+    advance(time);
+  }
+
+  /**
+   * Returns the live exemplars that fall within the given bucket.
+   *
+   * @param bucket a bucket of this histogram
+   * @return the bucket's exemplars, ordered by value
+   */
+  public List<Exemplar> getExemplars(Bucket bucket) {
+    return exemplars.exemplars(bucket.minimum(), bucket.maximum(), now);
+  }
+
+  /**
+   * Returns all live exemplars.
+   *
+   * @return the exemplars, ordered by value
+   */
+  public List<Exemplar> getExemplars() {
+    return exemplars.exemplars(now);
+  }
+
+  @Override
+  public List<Bucket> getBuckets() {
+    return histogram.getBuckets();
+  }
+
+  @Override
+  public double getMinimum() {
+    return histogram.getMinimum();
+  }
+
+  @Override
+  public double getMaximum() {
+    return histogram.getMaximum();
+  }
+
+  @Override
+  public double[] getQuantileBounds(double quantile) throws IllegalArgumentException {
+    return histogram.getQuantileBounds(quantile);
+  }
+
+  @Override
+  public double[][] getQuantileBounds(double[] quantiles) throws IllegalArgumentException {
+    return histogram.getQuantileBounds(quantiles);
+  }
+
+  @Override
+  public long size() {
+    return histogram.size();
+  }
+
+  @Override
+  public double[] getSizeBounds() {
+    return histogram.getSizeBounds();
+  }
+
+  @Override
+  public String toString() {
+    return histogram.toString();
+  }
+
+  private void advance(long time) {
+    NOW_UPDATER.accumulateAndGet(this, time, Math::max);
+  }
+}
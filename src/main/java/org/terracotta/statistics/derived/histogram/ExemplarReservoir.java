@@ -0,0 +1,170 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.lang.Long.numberOfLeadingZeros;
+import static java.util.Comparator.comparingDouble;
+
+/**
+ * A fixed size, sliding window sample of events stratified by value.
+ * <p>
+ *   Events are binned by the position of the highest set bit of their (integral) value, so each power-of-two range of
+ *   values holds its own reservoir.  Rare tail values therefore only compete with each other for retention, and are
+ *   not crowded out by the body of the distribution.  Within a bin, retention is by reservoir sampling (Vitter's
+ *   Algorithm R) over the events seen since the bin's contents last left the window.  Each bin tracks the timestamp of
+ *   its oldest exemplar, so the bin is only scanned when that exemplar is replaced.
+ * </p>
+ * <p>
+ *   Memory use is fixed at construction: {@code 65 * exemplarsPerBin} exemplars at most.  This class is thread-safe,
+ *   each bin being independently locked.
+ * </p>
+ */
+public class ExemplarReservoir {
+
+  private static final int BINS = Long.SIZE + 1;
+
+  private final long window;
+  private final Bin[] bins;
+
+  /**
+   * Creates a reservoir retaining {@code exemplarsPerBin} exemplars per power-of-two value range.
+   *
+   * @param exemplarsPerBin exemplars retained per bin
+   * @param window sliding window size
+   * @throws IllegalArgumentException if {@code exemplarsPerBin} is not positive
+   */
+  public ExemplarReservoir(int exemplarsPerBin, long window) throws IllegalArgumentException {
+    if (exemplarsPerBin <= 0) {
+      throw new IllegalArgumentException("exemplarsPerBin must be positive: " + exemplarsPerBin);
+    }
+    this.window = window;
+    this.bins = new Bin[BINS];
+    for (int i = 0; i < BINS; i++) {
+      bins[i] = new Bin(exemplarsPerBin);
+    }
+  }
+
+  /**
+   * Offers an event for retention.
+   *
+   * @param value event value
+   * @param time event timestamp
+   * @param context caller supplied context, or {@code null}
+   */
+  public void offer(double value, long time, Object context) {
+    bins[bin(value)].offer(value, time, context, window);
+  }
+
+  /**
+   * Returns the live exemplars with values in {@code [minimum, maximum)}, ordered by value.
+   *
+   * @param minimum inclusive lower bound
+   * @param maximum exclusive upper bound
+   * @param time current timestamp
+   * @return the matching exemplars
+   */
+  public List<Exemplar> exemplars(double minimum, double maximum, long time) {
+    List<Exemplar> result = new ArrayList<>();
+    for (int i = bin(minimum); i <= bin(nextDownOrSame(maximum)) && i < BINS; i++) {
+      bins[i].collect(minimum, maximum, time - window, result);
+    }
+    result.sort(comparingDouble(Exemplar::value));
+    return result;
+  }
+
+  /**
+   * Returns all live exemplars, ordered by value.
+   *
+   * @param time current timestamp
+   * @return the live exemplars
+   */
+  public List<Exemplar> exemplars(long time) {
+    return exemplars(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, time);
+  }
+
+  private static double nextDownOrSame(double value) {
+    double down = Math.nextDown(value);
+    return Double.isNaN(down) ? value : down;
+  }
+
+  private static int bin(double value) {
+    if (value >= 1.0) {
+      return BINS - numberOfLeadingZeros((long) value);
+    } else {
+      //zero, negative and NaN values
+      return 0;
+    }
+  }
+
+  private static final class Bin {
+
+    private final Exemplar[] exemplars;
+    private long seen;
+    private long oldest = Long.MAX_VALUE;
+
+    Bin(int size) {
+      this.exemplars = new Exemplar[size];
+    }
+
+    synchronized void offer(double value, long time, Object context, long window) {
+      long n = ++seen;
+      int slot;
+      if (n <= exemplars.length) {
+        slot = (int) (n - 1);
+      } else if ((time - oldest) >= window) {
+        //the window has moved on - the sample restarts from the live exemplars
+        slot = oldestSlot();
+        seen = exemplars.length;
+      } else {
+        long candidate = ThreadLocalRandom.current().nextLong(n);
+        if (candidate >= exemplars.length) {
+          return;
+        }
+        slot = (int) candidate;
+      }
+      Exemplar replaced = exemplars[slot];
+      exemplars[slot] = new Exemplar(value, time, context);
+      if (replaced != null && replaced.time() == oldest) {
+        oldest = exemplars[oldestSlot()].time();
+      } else {
+        oldest = Math.min(oldest, time);
+      }
+    }
+
+    private int oldestSlot() {
+      int oldestSlot = 0;
+      for (int i = 1; i < exemplars.length && exemplars[i] != null; i++) {
+        if (exemplars[i].time() < exemplars[oldestSlot].time()) {
+          oldestSlot = i;
+        }
+      }
+      return oldestSlot;
+    }
+
+    synchronized void collect(double minimum, double maximum, long since, List<Exemplar> result) {
+      for (Exemplar exemplar : exemplars) {
+        if (exemplar != null && exemplar.time() > since && exemplar.value() >= minimum && exemplar.value() < maximum) {
+          result.add(exemplar);
+        }
+      }
+    }
+  }
+}
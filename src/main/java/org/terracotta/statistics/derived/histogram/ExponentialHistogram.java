@@ -42,6 +42,12 @@ public class ExponentialHistogram {
   
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
 
+  /*
+   * Merging and splitting need working space proportional to the histogram size.  This is held per-thread and reused
+   * so that steady state maintenance of a histogram (and of the bars of a BarSplittingBiasedHistogram) is garbage free.
+   */
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
   private final double epsilon;
   private final int mergeThreshold;
   private final long window;
@@ -79,32 +85,44 @@ public class ExponentialHistogram {
     if (b.mergeThreshold != mergeThreshold) {
       throw new IllegalArgumentException();
     }
-    merge(b.boxes, b.total);
+    if (b == this) {
+      Scratch scratch = SCRATCH.get();
+      long[] copy = scratch.incoming(boxes.length);
+      arraycopy(boxes, 0, copy, 0, boxes.length);
+      merge(copy, boxes.length, total, scratch);
+    } else {
+      merge(b.boxes, b.boxes.length, b.total, SCRATCH.get());
+    }
   }
 
-  private void merge(long[] bBoxes, long bTotal) {
-    long[] aBoxes = this.boxes;
+  private void merge(long[] bBoxes, int bLength, long bTotal, Scratch scratch) {
+    int aLength = this.boxes.length;
+    long[] aBoxes = scratch.current(aLength);
+    arraycopy(this.boxes, 0, aBoxes, 0, aLength);
     long aTotal = this.total;
 
-    int[] canonical = tailedLCanonical(mergeThreshold - 1, aTotal + bTotal);
+    int[] canonical = scratch.canonical;
+    int canonicalLength = tailedLCanonical(mergeThreshold - 1, aTotal + bTotal, canonical);
 
-    initializeArrays(canonical.length - 1);
+    clearArrays(canonicalLength - 1);
     this.total = aTotal + bTotal;
-    this.last = this.total == 0 ? 0 : 1L << (canonical.length - 1);
+    this.last = this.total == 0 ? 0 : 1L << (canonicalLength - 1);
 
-    long[] overflow = EMPTY_LONG_ARRAY;
-    for (int logSize = 0; logSize < canonical.length; logSize++) {
+    int overflowLength = 0;
+    for (int logSize = 0; logSize < canonicalLength; logSize++) {
       int boxCount = canonical[logSize];
 
       int min = min_l(logSize);
       int max = max_l(logSize);
-      long[] merged = merge(aBoxes, bBoxes, min, max, overflow);
-      int limit = reverseSort(merged);
-      System.arraycopy(merged, 0, boxes, min, boxCount);
+      int mergedLength = merge(aBoxes, aLength, bBoxes, bLength, min, max, overflowLength, scratch);
+      long[] merged = scratch.merged;
+      int limit = reverseSort(merged, 0, mergedLength);
+      arraycopy(merged, 0, boxes, min, boxCount);
 
       int overflowSize = limit - boxCount;
-      overflow = new long[overflowSize >> 1];
-      for (int j = 0; j < overflow.length; j++) {
+      overflowLength = overflowSize >> 1;
+      long[] overflow = scratch.overflow(overflowLength);
+      for (int j = 0; j < overflowLength; j++) {
         overflow[j] = merged[boxCount + (2 * j)];
       }
     }
@@ -125,35 +143,42 @@ public class ExponentialHistogram {
         //MIN_VALUE means a box is unused so we avoid it
         time++;
       }
-      merge(makeBoxes(time, count), count);
+      Scratch scratch = SCRATCH.get();
+      int length = makeBoxes(time, count, scratch);
+      merge(scratch.incoming, length, count, scratch);
     }
   }
 
-  private long[] makeBoxes(long time, long count) {
-    int[] canonical = tailedLCanonical(mergeThreshold - 1, count);
-
+  private int makeBoxes(long time, long count, Scratch scratch) {
+    int[] canonical = scratch.canonical;
+    int canonicalLength = tailedLCanonical(mergeThreshold - 1, count, canonical);
 
-    long[] boxes = new long[min_l(canonical.length)];
-    Arrays.fill(boxes, MIN_VALUE);
+    int length = min_l(canonicalLength);
+    long[] boxes = scratch.incoming(length);
+    Arrays.fill(boxes, 0, length, MIN_VALUE);
 
-    for (int i = 0; i < canonical.length; i++) {
+    for (int i = 0; i < canonicalLength; i++) {
       int min = min_l(i);
       fill(boxes, min, min + canonical[i], time);
     }
-    return boxes;
+    return length;
   }
 
-  private static int[] tailedLCanonical(int l, long count) {
+  /**
+   * Writes the tailed l-canonical form of {@code count} in to {@code form}, returning its length.
+   */
+  private static int tailedLCanonical(int l, long count, int[] form) {
     if (count <= l) {
-      return new int[]{(int) count};
+      form[0] = (int) count;
+      return 1;
     } else {
-      int[] form = lCanonical(l, count - l);
+      int length = lCanonical(l, count - l, form);
       form[0] += l;
-      return form;
+      return length;
     }
   }
 
-  private static int[] lCanonical(int l, long count) {
+  private static int lCanonical(int l, long count, int[] canonical) {
     long num = count + l;
     long denom = l + 1;
     int j = numberOfTrailingZeros(highestOneBit(num / denom));
@@ -161,37 +186,33 @@ public class ExponentialHistogram {
     long offset = (num - (denom << j));
     long prefixRep = offset & ((1L << j) - 1);
 
-    int[] canonical = new int[j + 1];
-
     for (int i = 0; i < j; i++) {
       canonical[i] = l + (int) (((prefixRep >>> i) & 1));
     }
 
     canonical[j] = (int) ((offset >>> j) + 1);
 
-    return canonical;
+    return j + 1;
   }
 
-  private static long[] merge(long[] a, long[] b, int min, int max, long[] c) {
+  /**
+   * Gathers the pending overflow and the boxes of both histograms at one level in to {@code scratch.merged}, returning
+   * the number gathered.
+   */
+  private static int merge(long[] a, int aLength, long[] b, int bLength, int min, int max, int overflowLength, Scratch scratch) {
     int width = max - min;
-    if (max <= a.length) {
-      if (max <= b.length) {
-        long[] merged = copyOf(c, c.length + 2 * width);
-        arraycopy(a, min, merged, c.length, width);
-        arraycopy(b, min, merged, c.length + width, width);
-        return merged;
-      } else {
-        long[] merged = copyOf(c, c.length + width);
-        arraycopy(a, min, merged, c.length, width);
-        return merged;
-      }
-    } else if (max <= b.length) {
-      long[] merged = copyOf(c, c.length + width);
-      arraycopy(b, min, merged, c.length, width);
-      return merged;
-    } else {
-      return c;
+    long[] merged = scratch.merged(overflowLength + 2 * width);
+    arraycopy(scratch.overflow, 0, merged, 0, overflowLength);
+    int length = overflowLength;
+    if (max <= aLength) {
+      arraycopy(a, min, merged, length, width);
+      length += width;
     }
+    if (max <= bLength) {
+      arraycopy(b, min, merged, length, width);
+      length += width;
+    }
+    return length;
   }
 
   /**
@@ -269,6 +290,24 @@ public class ExponentialHistogram {
     return 0;
   }
 
+  /**
+   * Returns the timestamp of the oldest live box.
+   *
+   * @return the oldest box timestamp, or {@code Long.MAX_VALUE} if there are no live boxes
+   */
+  long oldest() {
+    long oldest = Long.MAX_VALUE;
+    for (int logSize = (Long.SIZE - 1) - numberOfLeadingZeros(last); logSize >= 0; logSize--) {
+      for (int i = min_l(logSize); i < max_l(logSize); i++) {
+        long end = boxes[i];
+        if (end != MIN_VALUE && end < oldest) {
+          oldest = end;
+        }
+      }
+    }
+    return oldest;
+  }
+
   private int min_l(int logSize) {
     if (logSize == 0) {
       return 0;
@@ -299,24 +338,46 @@ public class ExponentialHistogram {
    * @return the new histogram
    */
   public ExponentialHistogram split(double fraction) {
-    long[] originalBoxes = boxes;
-
     ExponentialHistogram that = new ExponentialHistogram(epsilon, window);
+    split(fraction, that);
+    return that;
+  }
+
+  /**
+   * Split an exponential histogram off this one in to the supplied histogram.
+   * <p>
+   *   The previous content of {@code that} is discarded, after the split it will contain {code fraction} of the events
+   *   in this one.
+   * </p>
+   * @param fraction splitting fraction
+   * @param that histogram to split in to
+   * @throws IllegalArgumentException if the two merge-thresholds or windows are not equal
+   */
+  void split(double fraction, ExponentialHistogram that) {
+    if (that.mergeThreshold != mergeThreshold || that.window != window) {
+      throw new IllegalArgumentException();
+    }
+    Scratch scratch = SCRATCH.get();
+    int originalLength = boxes.length;
+    long[] originalBoxes = scratch.current(originalLength);
+    arraycopy(boxes, 0, originalBoxes, 0, originalLength);
 
     that.total = round(this.total * fraction);
     this.total -= that.total;
 
-    int[] thisCanonical = tailedLCanonical(mergeThreshold - 1, this.total);
-    int[] thatCanonical = tailedLCanonical(mergeThreshold - 1, that.total);
-    this.last = this.total == 0 ? 0 : 1L << (thisCanonical.length - 1);
-    that.last = that.total == 0 ? 0 : 1L << (thatCanonical.length - 1);
+    int[] thisCanonical = scratch.canonical;
+    int[] thatCanonical = scratch.otherCanonical;
+    int thisLength = tailedLCanonical(mergeThreshold - 1, this.total, thisCanonical);
+    int thatLength = tailedLCanonical(mergeThreshold - 1, that.total, thatCanonical);
+    this.last = this.total == 0 ? 0 : 1L << (thisLength - 1);
+    that.last = that.total == 0 ? 0 : 1L << (thatLength - 1);
 
-    this.initializeArrays(thisCanonical.length - 1);
-    that.initializeArrays(thatCanonical.length - 1);
+    this.clearArrays(thisLength - 1);
+    that.clearArrays(thatLength - 1);
 
-    for (int logSize = 0; logSize < max(thisCanonical.length, thatCanonical.length); logSize++) {
-      int thisBoxCount = logSize < thisCanonical.length ? thisCanonical[logSize] : 0;
-      int thatBoxCount = logSize < thatCanonical.length ? thatCanonical[logSize] : 0;
+    for (int logSize = 0; logSize < max(thisLength, thatLength); logSize++) {
+      int thisBoxCount = logSize < thisLength ? thisCanonical[logSize] : 0;
+      int thatBoxCount = logSize < thatLength ? thatCanonical[logSize] : 0;
 
       /*
        * transfer(...) reverse-sorts putting the highest (i.e. most recent) stuff first.  This means we bias recent stuff
@@ -327,35 +388,34 @@ public class ExponentialHistogram {
        * just life.  Sorry!
        */
       if (fraction < 0.5) {
-        transfer(originalBoxes, that.boxes, logSize, thatBoxCount);
-        transfer(originalBoxes, this.boxes, logSize, thisBoxCount);
+        transfer(originalBoxes, originalLength, that.boxes, logSize, thatBoxCount, scratch);
+        transfer(originalBoxes, originalLength, this.boxes, logSize, thisBoxCount, scratch);
       } else {
-        transfer(originalBoxes, this.boxes, logSize, thisBoxCount);
-        transfer(originalBoxes, that.boxes, logSize, thatBoxCount);
+        transfer(originalBoxes, originalLength, this.boxes, logSize, thisBoxCount, scratch);
+        transfer(originalBoxes, originalLength, that.boxes, logSize, thatBoxCount, scratch);
       }
     }
 
-    return that;
   }
 
-  private void transfer(long[] originalBoxes, long[] targetBoxes, int logSize, int count) {
+  private void transfer(long[] originalBoxes, int originalLength, long[] targetBoxes, int logSize, int count, Scratch scratch) {
     if (count > 0) {
       int min = min_l(logSize);
-      int max = max_l(logSize);
       int limit = min + count;
 
-      int available = reverseSort(originalBoxes, min, max) - min;
+      int available = sortLevel(originalBoxes, originalLength, logSize);
 
       int pulldown = count - available;
       if (pulldown > 0) {
-
-        long[] pulled = doubleUp(pull(originalBoxes, logSize + 1, (pulldown + 1) >> 1));
+        int pairs = (pulldown + 1) >> 1;
+        pull(originalBoxes, originalLength, logSize + 1, pairs, scratch, 0);
+        long[] pulled = doubleUp(scratch, 0, pairs);
 
         System.arraycopy(originalBoxes, min, targetBoxes, min, available);
         Arrays.fill(originalBoxes, min, min + available, Long.MIN_VALUE);
 
         System.arraycopy(pulled, 0, targetBoxes, min + available, pulldown);
-        System.arraycopy(pulled, pulldown, originalBoxes, min, pulled.length - pulldown);
+        System.arraycopy(pulled, pulldown, originalBoxes, min, (pairs << 1) - pulldown);
       } else {
         System.arraycopy(originalBoxes, min, targetBoxes, min, count);
         Arrays.fill(originalBoxes, min, limit, Long.MIN_VALUE);
@@ -363,37 +423,57 @@ public class ExponentialHistogram {
     }
   }
 
-  private long[] pull(long[] originalBoxes, int logSize, int count) {
+  /**
+   * Pulls the {@code count} most recent boxes at {@code logSize} in to {@code scratch.pulled} at {@code offset},
+   * splitting larger boxes as necessary.  The space above {@code offset + count} is used for the recursion.
+   */
+  private void pull(long[] originalBoxes, int originalLength, int logSize, int count, Scratch scratch, int offset) {
     int min = min_l(logSize);
-    int max = max_l(logSize);
     int limit = min + count;
 
-    int available = reverseSort(originalBoxes, min, max) - min;
+    int available = sortLevel(originalBoxes, originalLength, logSize);
 
     int pulldown = count - available;
     if (pulldown > 0) {
+      int pairs = (pulldown + 1) >> 1;
+      int above = offset + count;
+      pull(originalBoxes, originalLength, logSize + 1, pairs, scratch, above);
+      long[] pulled = doubleUp(scratch, above, pairs);
 
-      long[] pulled = doubleUp(pull(originalBoxes, logSize + 1, (pulldown + 1) >> 1));
-
-      long[] boxes = Arrays.copyOfRange(originalBoxes, min, limit);
+      System.arraycopy(originalBoxes, min, pulled, offset, available);
       Arrays.fill(originalBoxes, min, min + available, Long.MIN_VALUE);
 
-      System.arraycopy(pulled, 0, boxes, available, pulldown);
-      System.arraycopy(pulled, pulldown, originalBoxes, min, pulled.length - pulldown);
-      return boxes;
+      System.arraycopy(pulled, above, pulled, offset + available, pulldown);
+      System.arraycopy(pulled, above + pulldown, originalBoxes, min, (pairs << 1) - pulldown);
     } else {
-      long[] boxes = Arrays.copyOfRange(originalBoxes, min, limit);
+      long[] pulled = scratch.pulled(offset + count);
+      System.arraycopy(originalBoxes, min, pulled, offset, count);
       Arrays.fill(originalBoxes, min, limit, Long.MIN_VALUE);
-      return boxes;
     }
   }
 
-  private long[] doubleUp(long[] a) {
-    long[] da = new long[a.length << 1];
-    for (int i = 0; i < a.length; i++) {
-      da[(i << 1) + 1] = da[i << 1] = a[i];
+  /**
+   * Reverse sorts the boxes at {@code logSize}, returning the number that are occupied.
+   */
+  private int sortLevel(long[] boxes, int length, int logSize) {
+    int min = min_l(logSize);
+    int max = max_l(logSize);
+    if (max > length) {
+      throw new ArrayIndexOutOfBoundsException();
     }
-    return da;
+    return reverseSort(boxes, min, max) - min;
+  }
+
+  /**
+   * Doubles each of the {@code count} boxes at {@code offset} in {@code scratch.pulled} in to a pair of half-size
+   * boxes, in place.
+   */
+  private static long[] doubleUp(Scratch scratch, int offset, int count) {
+    long[] pulled = scratch.pulled(offset + (count << 1));
+    for (int i = count - 1; i >= 0; i--) {
+      pulled[offset + (i << 1) + 1] = pulled[offset + (i << 1)] = pulled[offset + i];
+    }
+    return pulled;
   }
 
   @Override
@@ -418,10 +498,6 @@ public class ExponentialHistogram {
     return sb.toString();
   }
   
-  private static int reverseSort(long[] a) {
-    return reverseSort(a, 0, a.length);
-  }
-
   private static int reverseSort(long[] a, int fromIndex, int toIndex) {
     if (fromIndex < 0 || toIndex > a.length) {
       throw new ArrayIndexOutOfBoundsException();
@@ -452,6 +528,18 @@ public class ExponentialHistogram {
     }
   }
 
+  /**
+   * Empties this histogram, retaining its allocated capacity.
+   */
+  void reset() {
+    total = 0;
+    last = 0;
+    fill(boxes, MIN_VALUE);
+    for (int i = 0; i < insert.length; i++) {
+      insert[i] = max_l(i) - 1;
+    }
+  }
+
   private void ensureCapacity(int logSize) {
     int max = max_l(logSize);
     if (max > boxes.length) {
@@ -473,6 +561,21 @@ public class ExponentialHistogram {
     }
   }
 
+  /**
+   * Empties this histogram in preparation for holding {@code logMax + 1} box sizes, reusing the current arrays if they
+   * are large enough.
+   */
+  private void clearArrays(int logMax) {
+    if (insert.length < logMax + 1) {
+      initializeArrays(logMax);
+    } else {
+      fill(boxes, Long.MIN_VALUE);
+      for (int i = 0; i < insert.length; i++) {
+        insert[i] = max_l(i) - 1;
+      }
+    }
+  }
+
   /**
    * Return the fractional accuracy of this exponential histogram
    *
@@ -481,4 +584,37 @@ public class ExponentialHistogram {
   public double epsilon() {
     return epsilon;
   }
+
+  private static final class Scratch {
+
+    final int[] canonical = new int[Long.SIZE + 1];
+    final int[] otherCanonical = new int[Long.SIZE + 1];
+
+    long[] current = EMPTY_LONG_ARRAY;
+    long[] incoming = EMPTY_LONG_ARRAY;
+    long[] merged = EMPTY_LONG_ARRAY;
+    long[] overflow = EMPTY_LONG_ARRAY;
+    long[] pulled = EMPTY_LONG_ARRAY;
+
+    long[] current(int capacity) {
+      return current.length < capacity ? (current = new long[capacity]) : current;
+    }
+
+    long[] incoming(int capacity) {
+      return incoming.length < capacity ? (incoming = new long[capacity]) : incoming;
+    }
+
+    long[] merged(int capacity) {
+      return merged.length < capacity ? (merged = new long[capacity]) : merged;
+    }
+
+    long[] overflow(int capacity) {
+      return overflow.length < capacity ? (overflow = new long[capacity]) : overflow;
+    }
+
+    long[] pulled(int capacity) {
+      //pulled boxes are built up recursively, so growth must preserve them
+      return pulled.length < capacity ? (pulled = copyOf(pulled, max(capacity, pulled.length << 1))) : pulled;
+    }
+  }
 }
@@ -64,6 +64,25 @@ public interface Histogram {
    */
   double[] getQuantileBounds(double quantile) throws IllegalArgumentException;
 
+  /**
+   * Returns the bounds {@code [minimum, maximum)} on each of the given quantiles.
+   * <p>
+   *   All bounds are evaluated against the same histogram state.  Implementations are encouraged to override this to
+   *   evaluate the whole set in a single pass.
+   * </p>
+   *
+   * @param quantiles desired quantiles
+   * @return the quantile bounds, in the order requested
+   * @throws IllegalArgumentException if any quantile is outside the range [0.0..1.0]
+   */
+  default double[][] getQuantileBounds(double[] quantiles) throws IllegalArgumentException {
+    double[][] bounds = new double[quantiles.length][];
+    for (int i = 0; i < quantiles.length; i++) {
+      bounds[i] = getQuantileBounds(quantiles[i]);
+    }
+    return bounds;
+  }
+
   /**
    * @return the number of elements in the histogram
    */
@@ -76,6 +95,26 @@ public interface Histogram {
 
   void event(double value, long time);
 
+  /**
+   * Record {@code count} events of the given {@code value} occurring at the given {@code time}.
+   * <p>
+   *   Implementations are encouraged to override this with a bulk insertion.
+   * </p>
+   *
+   * @param value event value
+   * @param count event count
+   * @param time event time
+   * @throws IllegalArgumentException if count is negative
+   */
+  default void event(double value, long count, long time) throws IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException("negative count");
+    }
+    for (long i = 0; i < count; i++) {
+      event(value, time);
+    }
+  }
+
   void expire(long time);
 
   /**
@@ -0,0 +1,198 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Buffers histogram events per recording thread, replaying them in to a single-threaded sink on demand.
+ * <p>
+ *   Each recording thread appends to a private buffer with no atomic read-modify-write operations and no shared
+ *   writes.  A {@link #drain()} swaps every thread's active buffer for its (empty) inactive one, waits for any write in
+ *   progress against the old buffer to complete, and then replays the old buffer in to the sink.  A thread that fills
+ *   its buffer drains the recorder itself.
+ * </p>
+ * <p>
+ *   Draining, and so every sink invocation, happens while holding the monitor of the {@code lock} supplied at
+ *   construction.  Readers of the sink's state should hold the same monitor, and drain before reading.
+ * </p>
+ * <p>
+ *   Every thread that records holds two buffers of {@code bufferSize} events (16 bytes each).  These are retained by
+ *   the recorder until the thread dies, and by the thread's {@link ThreadLocal} map until the stale entry is expunged
+ *   after the recorder itself is discarded.
+ * </p>
+ */
+public class HistogramRecorder {
+
+  private static final AtomicLongFieldUpdater<Slot> EPOCH_UPDATER = AtomicLongFieldUpdater.newUpdater(Slot.class, "epoch");
+
+  private final int bufferSize;
+  private final Object lock;
+  private final EventSink sink;
+
+  private final CopyOnWriteArrayList<Slot> slots = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<Slot> localSlot = ThreadLocal.withInitial(this::register);
+
+  /**
+   * Creates a recorder replaying in to {@code sink}.
+   *
+   * @param bufferSize number of events buffered per thread between drains (costing {@code 32 * bufferSize} bytes per thread)
+   * @param lock monitor held while draining
+   * @param sink the receiver of drained events
+   * @throws IllegalArgumentException if {@code bufferSize} is not positive
+   */
+  public HistogramRecorder(int bufferSize, Object lock, EventSink sink) throws IllegalArgumentException {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+    this.lock = requireNonNull(lock);
+    this.sink = requireNonNull(sink);
+  }
+
+  /**
+   * Records an event in the calling thread's buffer.
+   *
+   * @param value event value
+   * @param time event timestamp
+   */
+  public void record(double value, long time) {
+    Slot slot = localSlot.get();
+    while (!slot.record(value, time)) {
+      drain();
+    }
+  }
+
+  /**
+   * Replays all buffered events in to the sink.
+   * <p>
+   *   Events are replayed per thread, in the order each thread recorded them.
+   * </p>
+   */
+  public void drain() {
+    synchronized (lock) {
+      for (Slot slot : slots) {
+        Buffer buffer = slot.flip();
+        for (int i = 0; i < buffer.size; i++) {
+          sink.event(buffer.values[i], buffer.times[i]);
+        }
+        buffer.size = 0;
+        slot.inactive = buffer;
+        Thread owner = slot.owner.get();
+        if (owner == null || !owner.isAlive()) {
+          slots.remove(slot);
+        }
+      }
+    }
+  }
+
+  private Slot register() {
+    Slot slot = new Slot(Thread.currentThread(), bufferSize);
+    slots.add(slot);
+    return slot;
+  }
+
+  /**
+   * The receiver of drained events.
+   */
+  @FunctionalInterface
+  public interface EventSink {
+
+    /**
+     * Accepts a single event.
+     *
+     * @param value event value
+     * @param time event timestamp
+     */
+    void event(double value, long time);
+  }
+
+  static final class Buffer {
+
+    final double[] values;
+    final long[] times;
+    int size;
+
+    Buffer(int capacity) {
+      this.values = new double[capacity];
+      this.times = new long[capacity];
+    }
+  }
+
+  static final class Slot {
+
+    final WeakReference<Thread> owner;
+
+    /*
+     * Odd while the owning thread is writing to the active buffer.  Only ever written by the owning thread.
+     */
+    volatile long epoch;
+    volatile Buffer active;
+    Buffer inactive;
+
+    Slot(Thread owner, int bufferSize) {
+      this.owner = new WeakReference<>(owner);
+      this.active = new Buffer(bufferSize);
+      this.inactive = new Buffer(bufferSize);
+    }
+
+    /**
+     * Called only by the owning thread.
+     *
+     * @return {@code false} if the active buffer is full
+     */
+    boolean record(double value, long time) {
+      long start = epoch;
+      //volatile write: a drain that then swaps the buffer will see we are mid-write
+      epoch = start + 1;
+      try {
+        Buffer buffer = active;
+        int size = buffer.size;
+        if (size == buffer.values.length) {
+          return false;
+        } else {
+          buffer.values[size] = value;
+          buffer.times[size] = time;
+          buffer.size = size + 1;
+          return true;
+        }
+      } finally {
+        //ordered write: publishes the buffer contents to the draining thread
+        EPOCH_UPDATER.lazySet(this, start + 2);
+      }
+    }
+
+    /**
+     * Called only while draining: swaps the buffers and waits for the owner to finish with the old one.
+     *
+     * @return the previously active buffer
+     */
+    Buffer flip() {
+      Buffer old = active;
+      active = inactive;
+      long observed = epoch;
+      for (int spins = 0; (observed & 1) != 0 && epoch == observed; spins++) {
+        Striped.backoff(spins);
+      }
+      return old;
+    }
+  }
+}
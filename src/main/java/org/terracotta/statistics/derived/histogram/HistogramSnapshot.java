@@ -0,0 +1,986 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.nextDown;
+import static java.util.Arrays.binarySearch;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.sort;
+import static java.util.Collections.unmodifiableList;
+import static org.terracotta.statistics.derived.histogram.BarSplittingBiasedHistogram.nextUpIfEqual;
+
+/**
+ * An immutable point-in-time view of one or more {@link BarSplittingBiasedHistogram} stripes.
+ * <p>
+ *   The bars of every stripe are merged once, in to primitive arrays ordered by bar minimum and by bar maximum, along
+ *   with the running count bounds in each direction.  Each quantile query is then a pair of binary searches over those
+ *   arrays rather than a fresh sort of every stripe's bars.
+ * </p>
+ * <p>
+ *   Snapshots taken on different nodes can be exchanged using {@link #writeTo(DataOutput)} and
+ *   {@link #readFrom(DataInput)}, and combined using {@link #merge(HistogramSnapshot)}.  Merging is associative.  When
+ *   folding many snapshots together use {@link #merge(HistogramSnapshot, int)}, which compacts each intermediate result,
+ *   so that the aggregate stays bounded in size and each fold step costs {@code O(n log n)} in the bound.
+ * </p>
+ */
+public final class HistogramSnapshot {
+
+  private static final byte ENCODING_VERSION = 1;
+
+  /**
+   * Upper bound on the number of bars accepted when decoding, so that a corrupt stream cannot force a huge allocation.
+   */
+  static final int MAXIMUM_ENCODED_BARS = 1 << 20;
+
+  private final int bucketCount;
+  private final double phi;
+  private final double alphaPhi;
+  private final double barEpsilon;
+  private final long size;
+  private final double[] sizeBounds;
+
+  /*
+   * Bars ordered by minimum: [byMinimum[i], maximumByMinimum[i]) holding countByMinimum[i] events.
+   *
+   * upperFromMinimum[i] is the upper bound on the count of bars 0..i and lowerToMinimum[i] the lower bound on the count
+   * of bars i..n-1 (the bars at or above byMinimum[i]).
+   */
+  private final double[] byMinimum;
+  private final double[] maximumByMinimum;
+  private final double[] countByMinimum;
+  private final double[] upperFromMinimum;
+  private final double[] lowerToMinimum;
+
+  /*
+   * Bar maximums in ascending order: byMaximum[i] == maximumByMinimum[maximumOrder[i]].
+   *
+   * lowerFromMaximum[i] is the lower bound on the count of bars 0..i and upperToMaximum[i] the upper bound on the count
+   * of bars i..n-1 (in maximum order).
+   */
+  private final int[] maximumOrder;
+  private final double[] byMaximum;
+  private final double[] lowerFromMaximum;
+  private final double[] upperToMaximum;
+
+  private volatile List<Histogram.Bucket> buckets;
+
+  private HistogramSnapshot(int bucketCount, double phi, double alphaPhi, double barEpsilon, long size, double[] sizeBounds,
+                            double[] byMinimum, double[] maximumByMinimum, double[] countByMinimum, int[] maximumOrder) {
+    this.bucketCount = bucketCount;
+    this.phi = phi;
+    this.alphaPhi = alphaPhi;
+    this.barEpsilon = barEpsilon;
+    this.size = size;
+    this.sizeBounds = sizeBounds;
+    this.byMinimum = byMinimum;
+    this.maximumByMinimum = maximumByMinimum;
+    this.countByMinimum = countByMinimum;
+    this.maximumOrder = maximumOrder;
+
+    int barCount = byMinimum.length;
+    this.byMaximum = new double[barCount];
+    double[] countByMaximum = new double[barCount];
+    for (int i = 0; i < barCount; i++) {
+      byMaximum[i] = maximumByMinimum[maximumOrder[i]];
+      countByMaximum[i] = countByMinimum[maximumOrder[i]];
+    }
+
+    this.upperFromMinimum = cumulativeFromStart(countByMinimum, 1.0 + barEpsilon);
+    this.lowerToMinimum = cumulativeFromEnd(countByMinimum, 1.0 - barEpsilon);
+    this.lowerFromMaximum = cumulativeFromStart(countByMaximum, 1.0 - barEpsilon);
+    this.upperToMaximum = cumulativeFromEnd(countByMaximum, 1.0 + barEpsilon);
+  }
+
+  static HistogramSnapshot of(List<Stripe> stripes) {
+    if (stripes.isEmpty()) {
+      throw new IllegalArgumentException("No histograms to snapshot");
+    }
+    Stripe first = stripes.get(0);
+
+    int stripeCount = stripes.size();
+    double[][] minimums = new double[stripeCount][];
+    double[][] maximums = new double[stripeCount][];
+    double[][] counts = new double[stripeCount][];
+    int[][] maximumOrders = new int[stripeCount][];
+    long size = 0;
+    double[] sizeBounds = new double[2];
+    for (int s = 0; s < stripeCount; s++) {
+      Stripe stripe = stripes.get(s);
+      minimums[s] = stripe.minimums;
+      maximums[s] = stripe.maximums;
+      counts[s] = stripe.counts;
+      maximumOrders[s] = new int[stripe.minimums.length];
+      for (int b = 0; b < maximumOrders[s].length; b++) {
+        //a stripe's bars are contiguous, so they are ordered identically by minimum and by maximum
+        maximumOrders[s][b] = b;
+      }
+      size += stripe.size;
+      sizeBounds[0] += stripe.sizeBounds[0];
+      sizeBounds[1] += stripe.sizeBounds[1];
+    }
+    return combine(first.bucketCount, first.phi, first.alphaPhi, first.barEpsilon, size, sizeBounds,
+        minimums, maximums, counts, maximumOrders);
+  }
+
+  /**
+   * Combines sorted runs of bars in to a snapshot.
+   * <p>
+   *   Each run is ordered by bar minimum, and {@code maximumOrders[r]} lists the indices of run {@code r} in ascending
+   *   maximum order.
+   * </p>
+   */
+  private static HistogramSnapshot combine(int bucketCount, double phi, double alphaPhi, double barEpsilon, long size, double[] sizeBounds,
+                                           double[][] minimums, double[][] maximums, double[][] counts, int[][] maximumOrders) {
+    int barCount = 0;
+    for (double[] run : minimums) {
+      barCount += run.length;
+    }
+
+    double[] byMinimum = new double[barCount];
+    double[] maximumByMinimum = new double[barCount];
+    double[] countByMinimum = new double[barCount];
+    int[][] positions = new int[minimums.length][];
+    for (int r = 0; r < minimums.length; r++) {
+      positions[r] = new int[minimums[r].length];
+    }
+    long[] order = mergeOrder(minimums, barCount);
+    for (int i = 0; i < barCount; i++) {
+      int r = (int) (order[i] >>> 32);
+      int b = (int) order[i];
+      byMinimum[i] = minimums[r][b];
+      maximumByMinimum[i] = maximums[r][b];
+      countByMinimum[i] = counts[r][b];
+      positions[r][b] = i;
+    }
+
+    double[][] maximumRuns = new double[maximums.length][];
+    for (int r = 0; r < maximums.length; r++) {
+      maximumRuns[r] = new double[maximums[r].length];
+      for (int k = 0; k < maximumRuns[r].length; k++) {
+        maximumRuns[r][k] = maximums[r][maximumOrders[r][k]];
+      }
+    }
+    int[] maximumOrder = new int[barCount];
+    order = mergeOrder(maximumRuns, barCount);
+    for (int i = 0; i < barCount; i++) {
+      int r = (int) (order[i] >>> 32);
+      int k = (int) order[i];
+      maximumOrder[i] = positions[r][maximumOrders[r][k]];
+    }
+
+    return new HistogramSnapshot(bucketCount, phi, alphaPhi, barEpsilon, size, sizeBounds,
+        byMinimum, maximumByMinimum, countByMinimum, maximumOrder);
+  }
+
+  /**
+   * Reads a snapshot previously written using {@link #writeTo(DataOutput)}.
+   * <p>
+   *   Encodings of more than {@value #MAXIMUM_ENCODED_BARS} bars are rejected; large aggregates should be
+   *   {@link #compact(int) compacted} before they are written.
+   * </p>
+   *
+   * @param in the input to read from
+   * @return the decoded snapshot
+   * @throws IOException if the input cannot be read, or does not contain a valid snapshot
+   */
+  public static HistogramSnapshot readFrom(DataInput in) throws IOException {
+    byte version = in.readByte();
+    if (version != ENCODING_VERSION) {
+      throw new IOException("Unsupported histogram snapshot encoding: " + version);
+    }
+    int bucketCount = in.readInt();
+    double phi = in.readDouble();
+    double alphaPhi = in.readDouble();
+    double barEpsilon = in.readDouble();
+    long size = in.readLong();
+    double[] sizeBounds = new double[] {in.readDouble(), in.readDouble()};
+    int barCount = in.readInt();
+    if (bucketCount <= 0 || barCount <= 0 || barCount > MAXIMUM_ENCODED_BARS) {
+      throw new IOException("Corrupt histogram snapshot: " + bucketCount + " buckets, " + barCount + " bars");
+    }
+
+    double[] byMinimum = new double[barCount];
+    double[] maximumByMinimum = new double[barCount];
+    double[] countByMinimum = new double[barCount];
+    for (int i = 0; i < barCount; i++) {
+      byMinimum[i] = in.readDouble();
+      maximumByMinimum[i] = in.readDouble();
+      countByMinimum[i] = in.readDouble();
+    }
+    int[] maximumOrder = new int[barCount];
+    boolean[] seen = new boolean[barCount];
+    for (int i = 0; i < barCount; i++) {
+      int index = in.readInt();
+      if (index < 0 || index >= barCount || seen[index]) {
+        throw new IOException("Corrupt histogram snapshot: invalid bar index " + index);
+      }
+      seen[index] = true;
+      maximumOrder[i] = index;
+    }
+    return new HistogramSnapshot(bucketCount, phi, alphaPhi, barEpsilon, size, sizeBounds,
+        byMinimum, maximumByMinimum, countByMinimum, maximumOrder);
+  }
+
+  /**
+   * Writes this snapshot in a compact binary form readable by {@link #readFrom(DataInput)}.
+   * <p>
+   *   The encoding is 57 bytes of header, plus 28 bytes per bar.
+   * </p>
+   *
+   * @param out the output to write to
+   * @throws IOException if the output cannot be written
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeByte(ENCODING_VERSION);
+    out.writeInt(bucketCount);
+    out.writeDouble(phi);
+    out.writeDouble(alphaPhi);
+    out.writeDouble(barEpsilon);
+    out.writeLong(size);
+    out.writeDouble(sizeBounds[0]);
+    out.writeDouble(sizeBounds[1]);
+    out.writeInt(byMinimum.length);
+    for (int i = 0; i < byMinimum.length; i++) {
+      out.writeDouble(byMinimum[i]);
+      out.writeDouble(maximumByMinimum[i]);
+      out.writeDouble(countByMinimum[i]);
+    }
+    for (int index : maximumOrder) {
+      out.writeInt(index);
+    }
+  }
+
+  /**
+   * Returns the merge of this snapshot and {@code that}.
+   * <p>
+   *   The result answers queries as if it were a snapshot of all of the stripes of both inputs.  Merging is associative,
+   *   and the result holds the bars of both inputs; use {@link #merge(HistogramSnapshot, int)} to bound the size of a
+   *   large aggregate.
+   * </p>
+   *
+   * @param that snapshot to merge with
+   * @return the merged snapshot
+   * @throws IllegalArgumentException if the two snapshots have different bucket counts, biases or bar precisions
+   */
+  public HistogramSnapshot merge(HistogramSnapshot that) throws IllegalArgumentException {
+    if (bucketCount != that.bucketCount || phi != that.phi || barEpsilon != that.barEpsilon) {
+      throw new IllegalArgumentException("Incompatible histogram snapshots");
+    }
+    return combine(bucketCount, phi, alphaPhi, barEpsilon, size + that.size,
+        new double[] {sizeBounds[0] + that.sizeBounds[0], sizeBounds[1] + that.sizeBounds[1]},
+        new double[][] {byMinimum, that.byMinimum},
+        new double[][] {maximumByMinimum, that.maximumByMinimum},
+        new double[][] {countByMinimum, that.countByMinimum},
+        new int[][] {maximumOrder, that.maximumOrder});
+  }
+
+  /**
+   * Returns the merge of this snapshot and {@code that}, compacted to at most {@code maxBars} bars.
+   * <p>
+   *   This is equivalent to {@code merge(that).compact(maxBars)}, and is the form to use when folding an unbounded
+   *   number of snapshots in to a single aggregate.
+   * </p>
+   *
+   * @param that snapshot to merge with
+   * @param maxBars the maximum number of bars to retain
+   * @return the merged and compacted snapshot
+   * @throws IllegalArgumentException if the two snapshots are incompatible, or {@code maxBars} is less than one
+   */
+  public HistogramSnapshot merge(HistogramSnapshot that, int maxBars) throws IllegalArgumentException {
+    if (maxBars < 1) {
+      throw new IllegalArgumentException("maxBars must be positive: " + maxBars);
+    }
+    return merge(that).compact(maxBars);
+  }
+
+  /**
+   * Returns an equivalent snapshot holding at most {@code maxBars} bars.
+   * <p>
+   *   Overlapping bars are first flattened in to contiguous bars, and then the adjacent pair with the smallest combined
+   *   count is repeatedly merged until the bar limit is met, at a cost of {@code O(n log n)} in the number of bars.
+   *   Compaction loses precision in exchange for bounding the size of the snapshot, so {@code maxBars} should be
+   *   comfortably larger than the bucket count.
+   * </p>
+   *
+   * @param maxBars the maximum number of bars to retain
+   * @return a compacted snapshot, or this snapshot if it is already small enough
+   * @throws IllegalArgumentException if {@code maxBars} is less than one
+   */
+  public HistogramSnapshot compact(int maxBars) throws IllegalArgumentException {
+    if (maxBars < 1) {
+      throw new IllegalArgumentException("maxBars must be positive: " + maxBars);
+    } else if (byMinimum.length <= maxBars) {
+      return this;
+    }
+    //empty bars carry no events (and are unbounded if their stripe is empty) so they are dropped
+    int occupied = 0;
+    double[] minimums = new double[byMinimum.length];
+    double[] maximums = new double[byMinimum.length];
+    double[] counts = new double[byMinimum.length];
+    for (int i = 0; i < byMinimum.length; i++) {
+      if (countByMinimum[i] > 0) {
+        minimums[occupied] = byMinimum[i];
+        maximums[occupied] = maximumByMinimum[i];
+        counts[occupied++] = countByMinimum[i];
+      }
+    }
+    if (occupied == 0) {
+      minimums[occupied] = byMinimum[0];
+      maximums[occupied] = maximumByMinimum[0];
+      counts[occupied++] = countByMinimum[0];
+    }
+    Bars bars = new Bars(copyOf(minimums, occupied), copyOf(maximums, occupied), copyOf(counts, occupied));
+    bars.merge();
+    bars.coalesce(maxBars);
+
+    int[] order = new int[bars.size];
+    for (int i = 0; i < order.length; i++) {
+      //flattened bars are contiguous, so they are ordered identically by minimum and by maximum
+      order[i] = i;
+    }
+    return new HistogramSnapshot(bucketCount, phi, alphaPhi, barEpsilon, size, sizeBounds.clone(),
+        copyOf(bars.minimums, bars.size), copyOf(bars.maximums, bars.size), copyOf(bars.counts, bars.size), order);
+  }
+
+  /**
+   * Returns the snapshot buckets.
+   *
+   * @return the snapshot buckets
+   * @see Histogram#getBuckets()
+   */
+  public List<Histogram.Bucket> getBuckets() {
+    List<Histogram.Bucket> result = buckets;
+    if (result == null) {
+      buckets = result = unmodifiableList(calculateBuckets());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the minimum value.
+   *
+   * @return the minimum value
+   * @see Histogram#getMinimum()
+   */
+  public double getMinimum() {
+    return getQuantileBounds(0.0)[0];
+  }
+
+  /**
+   * Returns the maximum value.
+   *
+   * @return the maximum value
+   * @see Histogram#getMaximum()
+   */
+  public double getMaximum() {
+    return nextDown(getQuantileBounds(1.0)[1]);
+  }
+
+  /**
+   * Returns the bounds {@code [minimum, maximum)} on the given quantile.
+   *
+   * @param quantile desired quantile
+   * @return the quantile bounds
+   * @throws IllegalArgumentException if {@code quantile} if outside the range [0.0..1.0]
+   * @see Histogram#getQuantileBounds(double)
+   */
+  public double[] getQuantileBounds(double quantile) throws IllegalArgumentException {
+    if (quantile > 1.0 || quantile < 0.0) {
+      throw new IllegalArgumentException("Invalid quantile requested: " + quantile);
+    } else {
+      double[] fromMinimum = evaluateQuantileFromMin(quantile);
+      double[] fromMaximum = evaluateQuantileFromMax(quantile);
+      if (Double.compare(fromMinimum[1] - fromMinimum[0], fromMaximum[1] - fromMaximum[0]) <= 0) {
+        return fromMinimum;
+      } else {
+        return fromMaximum;
+      }
+    }
+  }
+
+  /**
+   * Returns the bounds {@code [minimum, maximum)} on each of the given quantiles.
+   *
+   * @param quantiles desired quantiles
+   * @return the quantile bounds, in the order requested
+   * @throws IllegalArgumentException if any quantile is outside the range [0.0..1.0]
+   * @see Histogram#getQuantileBounds(double[])
+   */
+  public double[][] getQuantileBounds(double[] quantiles) throws IllegalArgumentException {
+    double[][] bounds = new double[quantiles.length][];
+    for (int i = 0; i < quantiles.length; i++) {
+      bounds[i] = getQuantileBounds(quantiles[i]);
+    }
+    return bounds;
+  }
+
+  /**
+   * @return the number of elements in the snapshot
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * @return the bounds on the number of elements in the snapshot
+   */
+  public double[] getSizeBounds() {
+    return sizeBounds.clone();
+  }
+
+  int barCount() {
+    return byMinimum.length;
+  }
+
+  private double[] evaluateQuantileFromMin(double quantile) {
+    double lowThreshold = quantile * sizeBounds[0];
+    double highThreshold = quantile * sizeBounds[1];
+
+    int lower = firstReaching(upperFromMinimum, lowThreshold);
+    if (lower < 0) {
+      throw new AssertionError();
+    }
+    int upper = firstReaching(lowerFromMaximum, highThreshold);
+    if (upper < 0) {
+      upper = byMaximum.length - 1;
+    }
+    return new double[] {byMinimum[lower], byMaximum[upper]};
+  }
+
+  private double[] evaluateQuantileFromMax(double quantile) {
+    double lowThreshold = (1.0 - quantile) * sizeBounds[0];
+    double highThreshold = (1.0 - quantile) * sizeBounds[1];
+
+    int upper = lastReaching(upperToMaximum, lowThreshold);
+    if (upper < 0) {
+      throw new AssertionError();
+    }
+    int lower = lastReaching(lowerToMinimum, highThreshold);
+    if (lower < 0) {
+      lower = 0;
+    }
+    return new double[] {byMinimum[lower], byMaximum[upper]};
+  }
+
+  private List<Histogram.Bucket> calculateBuckets() {
+    Bars bars = new Bars(byMinimum, maximumByMinimum, countByMinimum);
+    bars.merge();
+
+    List<Histogram.Bucket> result = new ArrayList<>(bucketCount);
+    double targetSize = size * alphaPhi; // * phi^0
+    int b = 0;
+    double minimum = bars.minimums[b];
+    double count = bars.counts[b];
+    for (int i = 0; i < bucketCount - 1 && b + 1 < bars.size; i++) {
+      while (count < targetSize && b + 1 < bars.size) {
+        count += bars.counts[++b];
+      }
+
+      double surplus = count - targetSize;
+      double maximum = nextUpIfEqual(minimum, bars.maximums[b] - ((bars.maximums[b] - bars.minimums[b]) * surplus / bars.counts[b]));
+      result.add(new ImmutableBucket(minimum, maximum, targetSize));
+      minimum = maximum;
+      count = surplus;
+      targetSize *= phi;
+    }
+    while (b + 1 < bars.size) {
+      count += bars.counts[++b];
+    }
+    result.add(new ImmutableBucket(minimum, nextUpIfEqual(minimum, bars.maximums[b]), count));
+    return result;
+  }
+
+  /**
+   * Returns the index of the first element of the ascending {@code cumulative} array that is at least
+   * {@code threshold}, or {@code -1} if there is none.
+   */
+  private static int firstReaching(double[] cumulative, double threshold) {
+    int low = 0;
+    int high = cumulative.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] >= threshold) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low == cumulative.length ? -1 : low;
+  }
+
+  /**
+   * Returns the index of the last element of the descending {@code cumulative} array that is at least
+   * {@code threshold}, or {@code -1} if there is none.
+   */
+  private static int lastReaching(double[] cumulative, double threshold) {
+    int low = 0;
+    int high = cumulative.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] >= threshold) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low - 1;
+  }
+
+  private static double[] cumulativeFromStart(double[] counts, double factor) {
+    double[] cumulative = new double[counts.length];
+    double total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative[i] = (total += counts[i] * factor);
+    }
+    return cumulative;
+  }
+
+  private static double[] cumulativeFromEnd(double[] counts, double factor) {
+    double[] cumulative = new double[counts.length];
+    double total = 0;
+    for (int i = counts.length - 1; i >= 0; i--) {
+      cumulative[i] = (total += counts[i] * factor);
+    }
+    return cumulative;
+  }
+
+  /**
+   * Returns the k-way merge order of the sorted {@code runs}.
+   * <p>
+   *   Each element of the result packs the run index in to the upper, and the index within the run in to the lower
+   *   32 bits.  Equal values are taken from the lowest numbered run first, so the result matches a stable sort of the
+   *   concatenated runs.
+   * </p>
+   */
+  private static long[] mergeOrder(double[][] runs, int total) {
+    int[] heads = new int[runs.length];
+    int[] heap = new int[runs.length];
+    int heapSize = 0;
+    for (int r = 0; r < runs.length; r++) {
+      if (runs[r].length > 0) {
+        heap[heapSize] = r;
+        siftUp(runs, heads, heap, heapSize++);
+      }
+    }
+
+    long[] order = new long[total];
+    for (int i = 0; i < total; i++) {
+      int r = heap[0];
+      order[i] = ((long) r << 32) | heads[r];
+      if (++heads[r] == runs[r].length) {
+        heap[0] = heap[--heapSize];
+      }
+      siftDown(runs, heads, heap, heapSize);
+    }
+    return order;
+  }
+
+  private static void siftUp(double[][] runs, int[] heads, int[] heap, int index) {
+    int r = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (precedes(runs, heads, heap[parent], r)) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = r;
+  }
+
+  private static void siftDown(double[][] runs, int[] heads, int[] heap, int heapSize) {
+    if (heapSize == 0) {
+      return;
+    }
+    int r = heap[0];
+    int index = 0;
+    int child;
+    while ((child = 2 * index + 1) < heapSize) {
+      if (child + 1 < heapSize && precedes(runs, heads, heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (precedes(runs, heads, r, heap[child])) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = r;
+  }
+
+  private static boolean precedes(double[][] runs, int[] heads, int a, int b) {
+    int compare = Double.compare(runs[a][heads[a]], runs[b][heads[b]]);
+    return compare < 0 || (compare == 0 && a < b);
+  }
+
+  /**
+   * A copy of the state of a single {@link BarSplittingBiasedHistogram}.
+   * <p>
+   *   Stripes are captured while the histogram is guarded against concurrent modification, and then combined in to a
+   *   snapshot without further access to the histogram.
+   * </p>
+   */
+  static final class Stripe {
+
+    final int bucketCount;
+    final double phi;
+    final double alphaPhi;
+    final double barEpsilon;
+    final long size;
+    final double[] sizeBounds;
+    final double[] minimums;
+    final double[] maximums;
+    final double[] counts;
+
+    private Stripe(BarSplittingBiasedHistogram histogram) {
+      this.bucketCount = histogram.bucketCount();
+      this.phi = histogram.phi();
+      this.alphaPhi = histogram.alphaPhi();
+      this.barEpsilon = histogram.barEpsilon();
+      this.size = histogram.size();
+      this.sizeBounds = histogram.getSizeBounds();
+      int bars = histogram.barsInUse();
+      this.minimums = new double[bars];
+      this.maximums = new double[bars];
+      this.counts = new double[bars];
+      for (int b = 0; b < bars; b++) {
+        minimums[b] = histogram.barMinimum(b);
+        maximums[b] = histogram.barMaximum(b);
+        counts[b] = histogram.barCount(b);
+      }
+    }
+
+    static Stripe capture(BarSplittingBiasedHistogram histogram) {
+      return new Stripe(histogram);
+    }
+  }
+
+  /**
+   * A growable list of bars, ordered by minimum, stored as parallel primitive arrays.
+   */
+  static final class Bars {
+
+    double[] minimums;
+    double[] maximums;
+    double[] counts;
+    int size;
+
+    Bars(double[] minimums, double[] maximums, double[] counts) {
+      this.minimums = minimums.clone();
+      this.maximums = maximums.clone();
+      this.counts = counts.clone();
+      this.size = minimums.length;
+    }
+
+    private Bars(int capacity) {
+      this.minimums = new double[capacity];
+      this.maximums = new double[capacity];
+      this.counts = new double[capacity];
+    }
+
+    /**
+     * Resolves overlapping bars in to contiguous non-overlapping bars.
+     * <p>
+     *   Each bar spreads its count uniformly over its range, so the flattened bars are the pieces between consecutive
+     *   distinct bar bounds, each holding the summed density of the bars covering it.  The bounds are sorted once, the
+     *   density and coverage changes at each bound are accumulated in difference arrays, and the pieces are then
+     *   written out in a single sequential sweep.  This costs {@code O(n log n)} in the number of bars, however deeply
+     *   they overlap.
+     * </p>
+     * <p>
+     *   Zero-width bars contribute their count to the piece starting (or else ending) at their position.  Bars with
+     *   unordered (NaN) bounds, as found in empty stripes, take no part and are retained after the flattened bars.
+     * </p>
+     *
+     * @return {@code true} if any bars overlapped
+     */
+    boolean merge() {
+      boolean overlapping = false;
+      for (int i = 0; i + 1 < size; i++) {
+        if (maximums[i] > minimums[i + 1]) {
+          overlapping = true;
+          break;
+        }
+      }
+      if (!overlapping) {
+        return false;
+      }
+
+      double[] bounds = new double[size << 1];
+      int boundCount = 0;
+      for (int i = 0; i < size; i++) {
+        if (minimums[i] <= maximums[i]) {
+          bounds[boundCount++] = minimums[i];
+          bounds[boundCount++] = maximums[i];
+        }
+      }
+      sort(bounds, 0, boundCount);
+      int distinct = 0;
+      for (int i = 0; i < boundCount; i++) {
+        if (distinct == 0 || bounds[i] != bounds[distinct - 1]) {
+          bounds[distinct++] = bounds[i];
+        }
+      }
+
+      double[] densityChange = new double[distinct];
+      double[] densityError = new double[distinct];
+      int[] coverageChange = new int[distinct];
+      double[] pointCounts = new double[distinct];
+      boolean[] points = new boolean[distinct];
+      for (int i = 0; i < size; i++) {
+        double minimum = minimums[i];
+        double maximum = maximums[i];
+        if (minimum < maximum) {
+          int lower = binarySearch(bounds, 0, distinct, minimum);
+          int upper = binarySearch(bounds, 0, distinct, maximum);
+          double density = counts[i] / (maximum - minimum);
+          accumulate(densityChange, densityError, lower, density);
+          accumulate(densityChange, densityError, upper, -density);
+          coverageChange[lower]++;
+          coverageChange[upper]--;
+        } else if (minimum == maximum) {
+          int point = binarySearch(bounds, 0, distinct, minimum);
+          pointCounts[point] += counts[i];
+          points[point] = true;
+        }
+      }
+
+      Bars output = new Bars(distinct + size);
+      /*
+       * Narrow bars have enormous densities, so the density changes and the running density are compensated (Neumaier)
+       * sums - plain addition would lose the densities of wide bars to the cancellation when a narrow bar ends.
+       */
+      double density = 0.0;
+      double compensation = 0.0;
+      int coverage = 0;
+      for (int b = 0; b < distinct; b++) {
+        coverage += coverageChange[b];
+        if (coverage == 0) {
+          //uncovered gaps reset the accumulated density, discarding any rounding drift
+          density = 0.0;
+          compensation = 0.0;
+        } else {
+          double change = densityChange[b];
+          double sum = density + change;
+          compensation += roundingError(density, change, sum) + densityError[b];
+          density = sum;
+        }
+        if (coverage > 0 && b + 1 < distinct) {
+          double width = bounds[b + 1] - bounds[b];
+          output.append(bounds[b], bounds[b + 1], (density + compensation) * width + pointCounts[b]);
+        } else if (points[b]) {
+          if (output.size > 0 && output.maximums[output.size - 1] == bounds[b]) {
+            output.counts[output.size - 1] += pointCounts[b];
+          } else {
+            output.append(bounds[b], bounds[b], pointCounts[b]);
+          }
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        if (!(minimums[i] <= maximums[i])) {
+          output.append(minimums[i], maximums[i], counts[i]);
+        }
+      }
+
+      this.minimums = output.minimums;
+      this.maximums = output.maximums;
+      this.counts = output.counts;
+      this.size = output.size;
+      return true;
+    }
+
+    /**
+     * Adds {@code value} to {@code sums[i]}, accumulating the rounding error in {@code errors[i]}.
+     */
+    private static void accumulate(double[] sums, double[] errors, int i, double value) {
+      double sum = sums[i] + value;
+      errors[i] += roundingError(sums[i], value, sum);
+      sums[i] = sum;
+    }
+
+    /**
+     * Returns the rounding error in {@code sum}, the floating point sum of {@code a} and {@code b}.
+     */
+    private static double roundingError(double a, double b, double sum) {
+      return abs(a) >= abs(b) ? (a - sum) + b : (b - sum) + a;
+    }
+
+    /**
+     * Merges adjacent bars, lowest combined count first, until at most {@code maxBars} remain.
+     * <p>
+     *   Adjacent pairs are held in a heap keyed by their combined count, with the bars linked to their surviving
+     *   neighbours, so coalescing costs {@code O(n log n)} in the number of bars.  Pairs invalidated by an earlier merge
+     *   are discarded lazily as they reach the top of the heap.
+     * </p>
+     */
+    void coalesce(int maxBars) {
+      if (size <= maxBars) {
+        return;
+      }
+      int[] previous = new int[size];
+      int[] following = new int[size];
+      for (int i = 0; i < size; i++) {
+        previous[i] = i - 1;
+        following[i] = i + 1 < size ? i + 1 : -1;
+      }
+      PairHeap pairs = new PairHeap(size);
+      for (int i = 0; i + 1 < size; i++) {
+        pairs.add(counts[i] + counts[i + 1], i, i + 1);
+      }
+
+      int remaining = size;
+      while (remaining > maxBars) {
+        int left = pairs.left();
+        int right = pairs.right();
+        double count = pairs.count();
+        pairs.remove();
+        if (following[left] != right || counts[left] + counts[right] != count) {
+          //stale: one of the bars has since been merged with another neighbour
+          continue;
+        }
+        maximums[left] = maximums[right];
+        counts[left] = count;
+        int after = following[right];
+        following[left] = after;
+        if (after >= 0) {
+          previous[after] = left;
+          pairs.add(counts[left] + counts[after], left, after);
+        }
+        //mark the absorbed bar dead: it is no longer anyone's neighbour
+        previous[right] = following[right] = -2;
+        if (previous[left] >= 0) {
+          pairs.add(counts[previous[left]] + counts[left], previous[left], left);
+        }
+        remaining--;
+      }
+
+      int out = 0;
+      for (int i = 0; i >= 0; i = following[i]) {
+        minimums[out] = minimums[i];
+        maximums[out] = maximums[i];
+        counts[out++] = counts[i];
+      }
+      size = out;
+    }
+
+    private void append(double minimum, double maximum, double count) {
+      if (size == minimums.length) {
+        int capacity = max(4, size + (size >> 1));
+        minimums = copyOf(minimums, capacity);
+        maximums = copyOf(maximums, capacity);
+        counts = copyOf(counts, capacity);
+      }
+      minimums[size] = minimum;
+      maximums[size] = maximum;
+      counts[size++] = count;
+    }
+
+    /**
+     * A binary min-heap of adjacent bar pairs, ordered by combined count and then by position.
+     */
+    static final class PairHeap {
+
+      private double[] counts;
+      private int[] lefts;
+      private int[] rights;
+      private int size;
+
+      PairHeap(int capacity) {
+        this.counts = new double[max(1, capacity)];
+        this.lefts = new int[counts.length];
+        this.rights = new int[counts.length];
+      }
+
+      double count() {
+        return counts[0];
+      }
+
+      int left() {
+        return lefts[0];
+      }
+
+      int right() {
+        return rights[0];
+      }
+
+      void add(double count, int left, int right) {
+        if (size == counts.length) {
+          counts = copyOf(counts, size << 1);
+          lefts = copyOf(lefts, size << 1);
+          rights = copyOf(rights, size << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+          int parent = (i - 1) >>> 1;
+          if (!less(count, left, parent)) {
+            break;
+          }
+          set(i, counts[parent], lefts[parent], rights[parent]);
+          i = parent;
+        }
+        set(i, count, left, right);
+      }
+
+      void remove() {
+        int last = --size;
+        double count = counts[last];
+        int left = lefts[last];
+        int right = rights[last];
+        int i = 0;
+        while (true) {
+          int child = (i << 1) + 1;
+          if (child >= size) {
+            break;
+          }
+          if (child + 1 < size && less(counts[child + 1], lefts[child + 1], child)) {
+            child++;
+          }
+          if (!less(counts[child], lefts[child], count, left)) {
+            break;
+          }
+          set(i, counts[child], lefts[child], rights[child]);
+          i = child;
+        }
+        if (size > 0) {
+          set(i, count, left, right);
+        }
+      }
+
+      private boolean less(double count, int left, int i) {
+        return less(count, left, counts[i], lefts[i]);
+      }
+
+      private static boolean less(double aCount, int aLeft, double bCount, int bLeft) {
+        return aCount < bCount || aCount == bCount && aLeft < bLeft;
+      }
+
+      private void set(int i, double count, int left, int right) {
+        counts[i] = count;
+        lefts[i] = left;
+        rights[i] = right;
+      }
+    }
+  }
+}
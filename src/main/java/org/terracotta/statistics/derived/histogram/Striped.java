@@ -28,6 +28,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -42,42 +43,106 @@ public class Striped<T> {
 
   private static final ThreadLocal<Integer> threadHash = ThreadLocal.withInitial(() -> 0);
 
-  static final class Cell<T> {
+  private static final int SPINS_BEFORE_YIELD = 64;
+
+  /*
+   * Cells are padded on both sides so that the guard words of cells allocated together (and so likely adjacent in
+   * memory) do not share a cache line.  Superclass fields are laid out before subclass fields, so the padding is split
+   * across the class hierarchy.
+   */
+  abstract static class CellLeftPadding {
+    @SuppressWarnings("unused")
+    long p01, p02, p03, p04, p05, p06, p07;
+  }
+
+  abstract static class CellFields<T> extends CellLeftPadding {
 
     @SuppressWarnings("rawtypes")
-    static final AtomicIntegerFieldUpdater<Cell> GUARD_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Cell.class, "guard");
+    static final AtomicIntegerFieldUpdater<CellFields> GUARD_UPDATER = AtomicIntegerFieldUpdater.newUpdater(CellFields.class, "guard");
 
     final T entity;
     volatile int guard;
 
-    Cell(T value) {
+    CellFields(T value) {
       entity = requireNonNull(value);
     }
+  }
+
+  static final class Cell<T> extends CellFields<T> {
+
+    static final int FREE = 0;
+    static final int HELD = 1;
+    static final int RETIRED = 2;
+
+    @SuppressWarnings("unused")
+    long q01, q02, q03, q04, q05, q06, q07;
+
+    Cell(T value) {
+      super(value);
+    }
 
     final boolean process(Consumer<T> process) {
-      if (GUARD_UPDATER.compareAndSet(this, 0, 1)) {
+      if (GUARD_UPDATER.compareAndSet(this, FREE, HELD)) {
         try {
           process.accept(entity);
           return true;
         } finally {
-          GUARD_UPDATER.set(this, 0);
+          GUARD_UPDATER.set(this, FREE);
         }
       } else {
         return false;
       }
     }
 
+    /**
+     * Acquires the guard, backing off while it is held.
+     *
+     * @return {@code false} if the cell has been retired
+     */
+    final boolean acquire() {
+      for (int spins = 0; ; spins++) {
+        int state = guard;
+        if (state == RETIRED) {
+          return false;
+        } else if (state == FREE && GUARD_UPDATER.compareAndSet(this, FREE, HELD)) {
+          return true;
+        } else {
+          backoff(spins);
+        }
+      }
+    }
+
+    final void release() {
+      GUARD_UPDATER.set(this, FREE);
+    }
+
+    final boolean retired() {
+      return guard == RETIRED;
+    }
+
     @Override
     public String toString() {
-      while (!GUARD_UPDATER.compareAndSet(this, 0, 1));
-      try {
-        return entity.toString();
-      } finally {
-        GUARD_UPDATER.set(this, 0);
+      if (acquire()) {
+        try {
+          return entity.toString();
+        } finally {
+          release();
+        }
+      } else {
+        return "retired";
       }
     }
   }
 
+  /**
+   * Spins briefly, and then yields, to let the holder of a guard make progress.
+   */
+  static void backoff(int attempt) {
+    if (attempt >= SPINS_BEFORE_YIELD) {
+      Thread.yield();
+    }
+  }
+
   private final AtomicInteger stripeGuard = new AtomicInteger();
 
   private final Supplier<T> constructor;
@@ -128,7 +193,7 @@ public class Striped<T> {
     }
 
     boolean collide = false;                // True if last slot nonempty
-    for (;;) {
+    for (int attempt = 0; ; attempt++) {
       Cell<T>[] cs;
       Cell<T> cell;
       if ((cs = cells) != null) {
@@ -157,8 +222,12 @@ public class Striped<T> {
           contended = false;      // Continue after rehash
         } else if (cell.process(process)) {
           return;
+        } else if (cell.retired()) {
+          retireSlot(cs, (n - 1) & hash, cell);
+          continue;                   // Slot is being cleared
         } else if (n >= NCPU || cells != cs) {
           collide = false;            // At max size or stale
+          backoff(attempt);           // No more stripes to spread over
         } else if (!collide) {
           collide = true;
         } else if (stripeGuard.compareAndSet(0, 1)) {
@@ -193,6 +262,94 @@ public class Striped<T> {
         }
       } else if (base.process(process)) {
         return;
+      } else {
+        backoff(attempt);
+      }
+    }
+  }
+
+  /**
+   * Processes every live stripe, each while holding its guard.
+   * <p>
+   *   This gives {@code process} a consistent view of each stripe in turn, at the cost of briefly blocking writers
+   *   to that stripe.
+   * </p>
+   *
+   * @param process stripe processing function
+   */
+  protected final void processAll(Consumer<T> process) {
+    processHeld(base, process);
+    Cell<T>[] cs = cells;
+    if (cs != null) {
+      for (Cell<T> cell : cs) {
+        if (cell != null) {
+          processHeld(cell, process);
+        }
+      }
+    }
+  }
+
+  private static <T> void processHeld(Cell<T> cell, Consumer<T> process) {
+    if (cell.acquire()) {
+      try {
+        process.accept(cell.entity);
+      } finally {
+        cell.release();
+      }
+    }
+  }
+
+  /**
+   * Retires the idle stripes.
+   * <p>
+   *   Each stripe other than the base is tested, while holding its guard, against {@code idle}.  Stripes that match
+   *   are removed, and will be lazily replaced with new stripes if contention requires it.  The predicate must
+   *   therefore only match stripes whose state can be discarded.
+   * </p>
+   *
+   * @param idle predicate identifying discardable stripes
+   * @return the number of stripes retired
+   */
+  protected final int retire(Predicate<T> idle) {
+    Cell<T>[] cs = cells;
+    if (cs == null) {
+      return 0;
+    }
+    int retired = 0;
+    for (int i = 0; i < cs.length; i++) {
+      Cell<T> cell = cs[i];
+      if (cell != null && cell.acquire()) {
+        boolean retire = false;
+        try {
+          retire = idle.test(cell.entity);
+        } finally {
+          if (retire) {
+            Cell.GUARD_UPDATER.set(cell, Cell.RETIRED);
+          } else {
+            cell.release();
+          }
+        }
+        if (retire) {
+          retireSlot(cs, i, cell);
+          retired++;
+        }
+      }
+    }
+    return retired;
+  }
+
+  private void retireSlot(Cell<T>[] cs, int index, Cell<T> cell) {
+    for (int attempt = 0; cs[index] == cell; attempt++) {
+      if (stripeGuard.compareAndSet(0, 1)) {
+        try {
+          if (cs[index] == cell) {
+            cs[index] = null;
+          }
+        } finally {
+          stripeGuard.set(0);
+        }
+      } else {
+        backoff(attempt);
       }
     }
   }
@@ -257,20 +414,23 @@ public class Striped<T> {
 
       while (index >= 0 && index < limit) {
         Cell<T> cell = array[index++];
-        if (cell != null) {
-          visitCell(cell, action);
+        if (cell != null && visitCell(cell, action)) {
           return true;
         }
       }
       return false;
     }
 
-    private static <T> void visitCell(Cell<T> cell, Consumer<? super Cell<T>> action) {
-      while (!Cell.GUARD_UPDATER.compareAndSet(cell, 0, 1));
-      try {
-        action.accept(cell);
-      } finally {
-        Cell.GUARD_UPDATER.set(cell, 0);
+    private static <T> boolean visitCell(Cell<T> cell, Consumer<? super Cell<T>> action) {
+      if (cell.acquire()) {
+        try {
+          action.accept(cell);
+          return true;
+        } finally {
+          cell.release();
+        }
+      } else {
+        return false;
       }
     }
 
@@ -281,7 +441,8 @@ public class Striped<T> {
 
     @Override
     public int characteristics() {
-      return Spliterator.SIZED | Spliterator.SUBSIZED;
+      //empty and retired slots are skipped, so the size is only an estimate
+      return Spliterator.NONNULL;
     }
   }
 }
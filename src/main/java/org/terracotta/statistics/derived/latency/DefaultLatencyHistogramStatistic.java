@@ -18,7 +18,11 @@ package org.terracotta.statistics.derived.latency;
 
 import org.terracotta.statistics.Time;
 import org.terracotta.statistics.derived.histogram.BarSplittingBiasedHistogram;
+import org.terracotta.statistics.derived.histogram.Exemplar;
+import org.terracotta.statistics.derived.histogram.ExemplarReservoir;
 import org.terracotta.statistics.derived.histogram.Histogram;
+import org.terracotta.statistics.derived.histogram.HistogramRecorder;
+import org.terracotta.statistics.derived.histogram.HistogramSnapshot;
 import org.terracotta.statistics.observer.ChainedEventObserver;
 
 import java.time.Duration;
@@ -27,6 +31,7 @@ import java.util.function.Function;
 import java.util.function.LongSupplier;
 
 import static java.lang.Math.nextDown;
+import static java.util.Collections.emptyList;
 
 /**
  * @author Mathieu Carbou
@@ -36,6 +41,8 @@ public class DefaultLatencyHistogramStatistic implements LatencyHistogramStatist
   private final BarSplittingBiasedHistogram histogram;
   private final LongSupplier timeSupplier;
   private final long pruningDelay;
+  private final HistogramRecorder recorder;
+  private final ExemplarReservoir exemplars;
 
   // histogram querying without any expire call
   private final LatencyHistogramQuery query = new LatencyHistogramQuery() {
@@ -66,16 +73,48 @@ public class DefaultLatencyHistogramStatistic implements LatencyHistogramStatist
         return Double.isNaN(v) ? null : new long[]{(long) v, (long) v};
       }
       double[] bounds = histogram.getQuantileBounds(percent);
-      if (Double.isNaN(bounds[0]) || Double.isNaN(bounds[1])) {
-        return null;
+      return toPercentileBounds(bounds);
+    }
+
+    @Override
+    public Long[] percentiles(double... percents) {
+      double[][] bounds = histogram.getQuantileBounds(percents);
+      Long[] values = new Long[percents.length];
+      for (int i = 0; i < percents.length; i++) {
+        values[i] = nullOrVal(percents[i] == 0.0 ? histogram.getMinimum() : nextDown(bounds[i][1]));
+      }
+      return values;
+    }
+
+    @Override
+    public long[][] percentileBounds(double[] percents) {
+      double[][] bounds = histogram.getQuantileBounds(percents);
+      long[][] values = new long[percents.length][];
+      for (int i = 0; i < percents.length; i++) {
+        if (percents[i] == 0.0) {
+          double v = histogram.getMinimum();
+          values[i] = Double.isNaN(v) ? null : new long[]{(long) v, (long) v};
+        } else {
+          values[i] = toPercentileBounds(bounds[i]);
+        }
       }
-      return new long[]{(long) bounds[0], (long) nextDown(bounds[1])};
+      return values;
     }
 
     @Override
     public List<Histogram.Bucket> buckets() {
       return histogram.getBuckets();
     }
+
+    @Override
+    public List<Exemplar> exemplars(Histogram.Bucket bucket) {
+      return exemplars == null ? emptyList() : exemplars.exemplars(bucket.minimum(), bucket.maximum(), timeSupplier.getAsLong());
+    }
+
+    @Override
+    public List<Exemplar> exemplars() {
+      return exemplars == null ? emptyList() : exemplars.exemplars(timeSupplier.getAsLong());
+    }
   };
 
   private long nextPruning;
@@ -103,9 +142,78 @@ public class DefaultLatencyHistogramStatistic implements LatencyHistogramStatist
       int bucketCount,
       Duration window,
       LongSupplier timeSupplier) {
+    this(phi, bucketCount, window, timeSupplier, 0);
+  }
+
+  /**
+   * Create a histogram maintained over a sliding time window, with per-thread event buffering.
+   * <p>
+   * When {@code recordingBufferSize} is positive, events are buffered per recording thread without locking, and folded
+   * in to the histogram when it is queried, or when a thread fills its buffer.  This removes the monitor from the
+   * event path for heavily concurrent recording.
+   * </p>
+   * <p>
+   * Buffering costs {@code 32 * recordingBufferSize} bytes for every thread that has ever recorded an event.  The
+   * recorder only releases a thread's buffers once that thread has died, and because each buffer is held in a
+   * {@link ThreadLocal}, buffers belonging to a discarded histogram stay reachable from long-lived (e.g. pooled)
+   * threads until their thread-local maps happen to expunge the stale entry.  Keep the buffer size modest when many
+   * threads record, or when histograms are frequently created and discarded.
+   * </p>
+   *
+   * @param phi                 histogram bucket bias factor
+   * @param bucketCount         number of buckets
+   * @param window              sliding window size, in ns
+   * @param timeSupplier        the supplier of time, which must be in the same unit as the time passed to the {{@link #event(long, long)}} method.
+   * @param recordingBufferSize per-thread event buffer size, or zero to record events directly
+   * @see HistogramRecorder
+   */
+  public DefaultLatencyHistogramStatistic(
+      double phi,
+      int bucketCount,
+      Duration window,
+      LongSupplier timeSupplier,
+      int recordingBufferSize) {
+    this(phi, bucketCount, window, timeSupplier, recordingBufferSize, 0);
+  }
+
+  /**
+   * Create a histogram maintained over a sliding time window, optionally retaining exemplar events.
+   * <p>
+   * When {@code exemplarsPerBin} is positive, recorded events are sampled in to an {@link ExemplarReservoir} holding {@code exemplarsPerBin} events per power-of-two latency range.  The
+   * sampled events can then be retrieved per bucket through {@link LatencyHistogramQuery#exemplars(Histogram.Bucket)}.
+   * </p>
+   *
+   * @param phi                 histogram bucket bias factor
+   * @param bucketCount         number of buckets
+   * @param window              sliding window size, in ns
+   * @param timeSupplier        the supplier of time, which must be in the same unit as the time passed to the {{@link #event(long, long)}} method.
+   * @param recordingBufferSize per-thread event buffer size, or zero to record events directly
+   * @param exemplarsPerBin     exemplars retained per latency range, or zero to disable exemplar retention
+   */
+  public DefaultLatencyHistogramStatistic(
+      double phi,
+      int bucketCount,
+      Duration window,
+      LongSupplier timeSupplier,
+      int recordingBufferSize,
+      int exemplarsPerBin) {
     this.timeSupplier = timeSupplier;
     this.histogram = new BarSplittingBiasedHistogram(phi, bucketCount, window.toNanos());
     this.pruningDelay = window.toNanos() / 2;
+    if (recordingBufferSize < 0) {
+      throw new IllegalArgumentException("recordingBufferSize must not be negative: " + recordingBufferSize);
+    } else if (recordingBufferSize == 0) {
+      this.recorder = null;
+    } else {
+      this.recorder = new HistogramRecorder(recordingBufferSize, this, this::record);
+    }
+    if (exemplarsPerBin < 0) {
+      throw new IllegalArgumentException("exemplarsPerBin must not be negative: " + exemplarsPerBin);
+    } else if (exemplarsPerBin == 0) {
+      this.exemplars = null;
+    } else {
+      this.exemplars = new ExemplarReservoir(exemplarsPerBin, window.toNanos());
+    }
   }
 
   public DefaultLatencyHistogramStatistic(double phi,
@@ -145,13 +253,67 @@ public class DefaultLatencyHistogramStatistic implements LatencyHistogramStatist
   }
 
   @Override
-  public synchronized void event(long time, long latency) {
-    histogram.event(latency, time);
-    tryExpire(false, () -> time);
+  public Long[] percentiles(double... percents) {
+    return query(h -> h.percentiles(percents));
+  }
+
+  @Override
+  public long[][] percentileBounds(double[] percents) {
+    return query(h -> h.percentileBounds(percents));
+  }
+
+  /**
+   * Returns an immutable snapshot of the histogram, following expiry of any events that have left the window.
+   * <p>
+   *   Snapshots are mergeable and serializable, allowing latency histograms to be aggregated across nodes.
+   * </p>
+   *
+   * @return a histogram snapshot
+   */
+  public synchronized HistogramSnapshot snapshot() {
+    drain();
+    tryExpire(true, timeSupplier);
+    return histogram.snapshot();
+  }
+
+  @Override
+  public void event(long time, long latency) {
+    event(time, latency, null);
+  }
+
+  /**
+   * Records a latency event, offering it as an exemplar with the given context if exemplars are being retained.
+   *
+   * @param time    event timestamp
+   * @param latency event latency
+   * @param context small caller supplied context (a thread name or key hash for example), or {@code null}
+   */
+  public void event(long time, long latency, Object context) {
+    if (exemplars != null) {
+      exemplars.offer(latency, time, context);
+    }
+    if (recorder == null) {
+      synchronized (this) {
+        record(latency, time);
+      }
+    } else {
+      recorder.record(latency, time);
+    }
+  }
+
+  @Override
+  public List<Exemplar> exemplars(Histogram.Bucket bucket) {
+    return query(h -> h.exemplars(bucket));
+  }
+
+  @Override
+  public List<Exemplar> exemplars() {
+    return query(LatencyHistogramQuery::exemplars);
   }
 
   @Override
   public synchronized <T> T query(Function<LatencyHistogramQuery, T> fn) {
+    drain();
     tryExpire(true, timeSupplier);
     return fn.apply(query);
   }
@@ -166,6 +328,19 @@ public class DefaultLatencyHistogramStatistic implements LatencyHistogramStatist
         '}');
   }
 
+  // Must be called holding this monitor
+  private void record(double latency, long time) {
+    histogram.event(latency, time);
+    tryExpire(false, () -> time);
+  }
+
+  // Must be called holding this monitor
+  private void drain() {
+    if (recorder != null) {
+      recorder.drain();
+    }
+  }
+
   // Expire the histogram if it is time to expire it, or if force is true AND it is dirty
   private void tryExpire(boolean force, LongSupplier time) {
     long now = time.getAsLong();
@@ -175,6 +350,13 @@ public class DefaultLatencyHistogramStatistic implements LatencyHistogramStatist
     }
   }
 
+  private static long[] toPercentileBounds(double[] bounds) {
+    if (Double.isNaN(bounds[0]) || Double.isNaN(bounds[1])) {
+      return null;
+    }
+    return new long[]{(long) bounds[0], (long) nextDown(bounds[1])};
+  }
+
   private static Long nullOrVal(double val) {
     return Double.isNaN(val) ? null : (long) val;
   }
@@ -17,22 +17,79 @@
 package org.terracotta.statistics.derived.latency;
 
 import org.terracotta.statistics.derived.OperationResultSampler;
+import org.terracotta.statistics.observer.ChainedEventObserver;
 import org.terracotta.statistics.observer.ChainedOperationObserver;
 
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * A JSR-107 latency monitor, reporting in microseconds.
+ * <p>
+ * Latencies are accumulated over the lifetime of the monitor, or over a sliding window when one is configured.
+ * {@link #clear()} resets the accumulated state in place: each accumulation cell is reset while holding the same guard
+ * that recording takes, so every event racing with a clear is either discarded by it or retained after it, and is
+ * never lost to a replaced accumulator nor counted twice.  The cells are reset one after another rather than
+ * atomically, so a read concurrent with a clear (e.g. {@link #average()}) may see it partially applied, combining
+ * cleared cells with cells still to be cleared.
+ * </p>
+ *
  * @author cdennis
  * @author Mathieu Carbou
  */
 public class Jsr107LatencyMonitor<T extends Enum<T>> implements ChainedOperationObserver<T>, LatencyStatistic {
 
   private final OperationResultSampler<T> sampling;
-  private final AtomicReference<LatencyAccumulator> statistic = new AtomicReference<>(LatencyAccumulator.empty());
+  private final Latencies latencies;
 
   public Jsr107LatencyMonitor(Set<T> targets, double sampling) {
-    this.sampling = new OperationResultSampler<>(targets, sampling, (time, latency) -> statistic.get().accumulate(latency));
+    LatencyAccumulator accumulator = LatencyAccumulator.empty();
+    this.latencies = new Latencies() {
+      @Override
+      public void event(long time, long latency) {
+        accumulator.accumulate(latency);
+      }
+
+      @Override
+      public LatencySnapshot snapshot() {
+        return accumulator.snapshot();
+      }
+
+      @Override
+      public void clear() {
+        accumulator.reset();
+      }
+    };
+    this.sampling = new OperationResultSampler<>(targets, sampling, latencies);
+  }
+
+  /**
+   * Creates a monitor reporting over a sliding window.
+   *
+   * @param targets  the operation results monitored
+   * @param sampling the fraction of operations sampled
+   * @param window   sliding window size
+   * @param unit     sliding window size unit
+   */
+  public Jsr107LatencyMonitor(Set<T> targets, double sampling, long window, TimeUnit unit) {
+    LatencySimpleMovingAverage average = new LatencySimpleMovingAverage(window, unit);
+    this.latencies = new Latencies() {
+      @Override
+      public void event(long time, long latency) {
+        average.event(time, latency);
+      }
+
+      @Override
+      public LatencySnapshot snapshot() {
+        return average.snapshot();
+      }
+
+      @Override
+      public void clear() {
+        average.clear();
+      }
+    };
+    this.sampling = new OperationResultSampler<>(targets, sampling, latencies);
   }
 
   @Override
@@ -50,31 +107,36 @@ public class Jsr107LatencyMonitor<T extends Enum<T>> implements ChainedOperation
    */
   @Override
   public double average() {
-    LatencyAccumulator accumulator = statistic.get();
-    long count = accumulator.count();
-    if (count == 0) {
+    LatencySnapshot snapshot = latencies.snapshot();
+    if (snapshot.isEmpty()) {
       //Someone involved with 107 can't do math
       return 0d;
     } else {
       //We use nanoseconds, 107 uses microseconds
-      return accumulator.total() / 1_000.0 / count;
+      return snapshot.total() / 1_000.0 / snapshot.count();
     }
   }
 
   @Override
   public Long minimum() {
-    LatencyAccumulator accumulator = statistic.get();
-    return accumulator.isEmpty() ? 0L : accumulator.minimum() / 1_000L;
+    LatencySnapshot snapshot = latencies.snapshot();
+    return snapshot.isEmpty() ? 0L : snapshot.minimum() / 1_000L;
   }
 
   @Override
   public Long maximum() {
-    LatencyAccumulator accumulator = statistic.get();
-    return accumulator.isEmpty() ? 0L : accumulator.maximum() / 1_000L;
+    LatencySnapshot snapshot = latencies.snapshot();
+    return snapshot.isEmpty() ? 0L : snapshot.maximum() / 1_000L;
   }
 
-  public synchronized void clear() {
-    statistic.set(LatencyAccumulator.empty());
+  public void clear() {
+    latencies.clear();
   }
 
+  private interface Latencies extends ChainedEventObserver {
+
+    LatencySnapshot snapshot();
+
+    void clear();
+  }
 }
@@ -16,16 +16,21 @@
  */
 package org.terracotta.statistics.derived.latency;
 
+import org.terracotta.statistics.derived.histogram.Striped;
 import org.terracotta.statistics.observer.ChainedEventObserver;
 
-import java.util.concurrent.atomic.LongAccumulator;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
- * This accumulator accumulate latency metrics. It is lock-free so when computing
- * some values,it is possible that a thread is writing some values while
- * the snapshot is being computed. So there is the possibility of an error in the
- * result.
+ * This accumulator accumulate latency metrics.
+ * <p>
+ * The count, total, minimum and maximum are kept together in cells, striped under contention, so that an event costs
+ * a single guard acquisition rather than an atomic update per metric.  Recording only contends with other writers to
+ * the same stripe, or with a concurrent read: {@link #snapshot()}, and the accessors built on it, visit each stripe in
+ * turn while holding its guard, so readers briefly block writers (and wait on them) stripe by stripe.  Each stripe is
+ * read consistently, but the stripes are not read at a single instant, so a read may reflect only part of a concurrent
+ * write.
+ * </p>
  *
  * @author Mathieu Carbou
  */
@@ -34,10 +39,7 @@ public class LatencyAccumulator implements LatencyStatistic, ChainedEventObserve
   private static final long DEFAULT_MIN = Long.MAX_VALUE;
   private static final long DEFAULT_MAX = Long.MIN_VALUE;
 
-  private final LongAdder count = new LongAdder();
-  private final LongAdder total = new LongAdder();
-  private final LongAccumulator minimum = new LongAccumulator(Math::min, DEFAULT_MIN);
-  private final LongAccumulator maximum = new LongAccumulator(Math::max, DEFAULT_MAX);
+  private final Stripes stripes = new Stripes();
 
   private LatencyAccumulator(long... latencies) {
     for (long latency : latencies) {
@@ -46,29 +48,48 @@ public class LatencyAccumulator implements LatencyStatistic, ChainedEventObserve
   }
 
   public void accumulate(long latency) {
-    count.increment();
-    total.add(latency);
-    minimum.accumulate(latency);
-    maximum.accumulate(latency);
+    stripes.accumulate(latency);
   }
 
   public void accumulate(LatencyAccumulator accumulator) {
-    count.add(accumulator.count());
-    total.add(accumulator.total());
-    minimum.accumulate(accumulator.minimum());
-    maximum.accumulate(accumulator.maximum());
+    LatencySnapshot snapshot = accumulator.snapshot();
+    if (!snapshot.isEmpty()) {
+      stripes.accumulate(snapshot.count(), snapshot.total(), snapshot.minimum(), snapshot.maximum());
+    }
+  }
+
+  /**
+   * Resets this accumulator to the empty state.
+   * <p>
+   * Each stripe is reset while holding its guard, so a latency accumulated concurrently with a reset lands either
+   * before its stripe's reset (and is discarded by it) or after (and is retained), and is never lost or partially
+   * applied.  The stripes are reset in turn rather than at a single instant, so a concurrent read may observe some
+   * stripes reset and others not.
+   * </p>
+   */
+  void reset() {
+    stripes.reset();
+  }
+
+  /**
+   * Returns the count, total, minimum and maximum latencies, read in a single pass.
+   *
+   * @return a snapshot of this accumulator
+   */
+  public LatencySnapshot snapshot() {
+    return stripes.snapshot();
   }
 
   public long count() {
-    return count.sum();
+    return snapshot().count();
   }
 
   public long total() {
-    return total.sum();
+    return snapshot().total();
   }
 
   public boolean isEmpty() {
-    return count.sum() == 0;
+    return count() == 0;
   }
 
   @Override
@@ -78,27 +99,29 @@ public class LatencyAccumulator implements LatencyStatistic, ChainedEventObserve
 
   @Override
   public Long maximum() {
-    return isEmpty() ? null : maximum.get();
+    return snapshot().maximum();
   }
 
   @Override
   public Long minimum() {
-    return isEmpty() ? null : minimum.get();
+    return snapshot().minimum();
   }
 
   @Override
   public double average() {
-    return ((double) total.sum()) / count.sum();
+    LatencySnapshot snapshot = snapshot();
+    return ((double) snapshot.total()) / snapshot.count();
   }
 
   @Override
   public String toString() {
+    LatencySnapshot snapshot = snapshot();
     return "LatencyAccumulator{" +
-        "count=" + count() +
-        ", total=" + total() +
-        ", minimum=" + minimum() +
-        ", maximum=" + maximum() +
-        ", average=" + average() +
+        "count=" + snapshot.count() +
+        ", total=" + snapshot.total() +
+        ", minimum=" + snapshot.minimum() +
+        ", maximum=" + snapshot.maximum() +
+        ", average=" + ((double) snapshot.total()) / snapshot.count() +
         '}';
   }
 
@@ -110,4 +133,78 @@ public class LatencyAccumulator implements LatencyStatistic, ChainedEventObserve
     return new LatencyAccumulator();
   }
 
+  private static final class Stripes extends Striped<Cell> {
+
+    Stripes() {
+      super(Cell::new);
+    }
+
+    void accumulate(long latency) {
+      process(cell -> cell.accumulate(latency));
+    }
+
+    void accumulate(long count, long total, long minimum, long maximum) {
+      process(cell -> cell.accumulate(count, total, minimum, maximum));
+    }
+
+    void reset() {
+      processAll(Cell::reset);
+    }
+
+    LatencySnapshot snapshot() {
+      Sum sum = new Sum();
+      processAll(sum);
+      return sum.count == 0 ? LatencySnapshot.empty() : new LatencySnapshot(sum.count, sum.total, sum.minimum, sum.maximum);
+    }
+  }
+
+  private static final class Sum implements Consumer<Cell> {
+
+    long count;
+    long total;
+    long minimum = DEFAULT_MIN;
+    long maximum = DEFAULT_MAX;
+
+    @Override
+    public void accept(Cell cell) {
+      count += cell.count;
+      total += cell.total;
+      minimum = Math.min(minimum, cell.minimum);
+      maximum = Math.max(maximum, cell.maximum);
+    }
+  }
+
+  /*
+   * Cell state is only accessed while holding the guard of the enclosing stripe, so plain fields suffice.  Cells are
+   * not padded: each is allocated alongside the padded stripe that guards it, which keeps the metrics of adjacent
+   * stripes off each other's cache lines.
+   */
+  static final class Cell {
+
+    long count;
+    long total;
+    long minimum = DEFAULT_MIN;
+    long maximum = DEFAULT_MAX;
+
+    void accumulate(long latency) {
+      count++;
+      total += latency;
+      minimum = Math.min(minimum, latency);
+      maximum = Math.max(maximum, latency);
+    }
+
+    void accumulate(long count, long total, long minimum, long maximum) {
+      this.count += count;
+      this.total += total;
+      this.minimum = Math.min(this.minimum, minimum);
+      this.maximum = Math.max(this.maximum, maximum);
+    }
+
+    void reset() {
+      count = 0;
+      total = 0;
+      minimum = DEFAULT_MIN;
+      maximum = DEFAULT_MAX;
+    }
+  }
 }
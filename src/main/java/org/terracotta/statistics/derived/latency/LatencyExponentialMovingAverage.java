@@ -0,0 +1,154 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.latency;
+
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.ValueStatistic;
+import org.terracotta.statistics.observer.ChainedEventObserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.terracotta.statistics.Time.time;
+
+/**
+ * An exponentially weighted moving average of latency.
+ * <p>
+ *   Latencies are summed in striped adders, and the mean latency of each tick interval is folded in to the average.
+ *   Intervals without events leave the average untouched.  Ticks are driven by recorded events and reads, so no
+ *   background thread is needed.  Memory use is constant regardless of the averaging window, and recording is
+ *   lock-free.
+ * </p>
+ */
+public class LatencyExponentialMovingAverage implements ChainedEventObserver, ValueStatistic<Double> {
+
+  private static final long DEFAULT_TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final long tickInterval;
+  private final double alpha;
+
+  private volatile long lastTick;
+  private volatile double average = Double.NaN;
+
+  /**
+   * Creates an average over a {@code window} time constant, ticking every five seconds.
+   *
+   * @param window averaging time constant
+   * @param unit unit of {@code window}
+   */
+  public LatencyExponentialMovingAverage(long window, TimeUnit unit) {
+    this(window, unit, DEFAULT_TICK_INTERVAL, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Creates an average over a {@code window} time constant, with the given tick interval.
+   *
+   * @param window averaging time constant
+   * @param windowUnit unit of {@code window}
+   * @param tickInterval interval between updates of the average
+   * @param tickUnit unit of {@code tickInterval}
+   * @throws IllegalArgumentException if either duration is not positive
+   */
+  public LatencyExponentialMovingAverage(long window, TimeUnit windowUnit, long tickInterval, TimeUnit tickUnit) throws IllegalArgumentException {
+    long windowNanos = windowUnit.toNanos(window);
+    this.tickInterval = tickUnit.toNanos(tickInterval);
+    if (windowNanos <= 0 || this.tickInterval <= 0) {
+      throw new IllegalArgumentException("window and tick interval must be positive");
+    }
+    this.alpha = 1.0 - Math.exp(-((double) this.tickInterval) / windowNanos);
+    this.lastTick = time();
+  }
+
+  /**
+   * The classic one minute load average.
+   *
+   * @return a one minute latency average
+   */
+  public static LatencyExponentialMovingAverage oneMinute() {
+    return new LatencyExponentialMovingAverage(1, TimeUnit.MINUTES);
+  }
+
+  /**
+   * The classic five minute load average.
+   *
+   * @return a five minute latency average
+   */
+  public static LatencyExponentialMovingAverage fiveMinute() {
+    return new LatencyExponentialMovingAverage(5, TimeUnit.MINUTES);
+  }
+
+  /**
+   * The classic fifteen minute load average.
+   *
+   * @return a fifteen minute latency average
+   */
+  public static LatencyExponentialMovingAverage fifteenMinute() {
+    return new LatencyExponentialMovingAverage(15, TimeUnit.MINUTES);
+  }
+
+  /**
+   * @return The average in ns or NaN if no value
+   */
+  public double average() {
+    tickIfNecessary(time());
+    return average;
+  }
+
+  @Override
+  public Double value() {
+    return average();
+  }
+
+  @Override
+  public StatisticType type() {
+    return StatisticType.GAUGE;
+  }
+
+  @Override
+  public void event(long time, long latency) {
+    tickIfNecessary(time);
+    count.increment();
+    total.add(latency);
+  }
+
+  private void tickIfNecessary(long time) {
+    if (time - lastTick >= tickInterval) {
+      tick(time);
+    }
+  }
+
+  private synchronized void tick(long time) {
+    long elapsed = time - lastTick;
+    if (elapsed >= tickInterval) {
+      lastTick += (elapsed / tickInterval) * tickInterval;
+      long tickCount = count.sum();
+      long tickTotal = total.sum();
+      count.add(-tickCount);
+      total.add(-tickTotal);
+      if (tickCount > 0) {
+        double mean = ((double) tickTotal) / tickCount;
+        if (Double.isNaN(average)) {
+          average = mean;
+        } else {
+          average += alpha * (mean - average);
+        }
+      }
+    }
+  }
+}
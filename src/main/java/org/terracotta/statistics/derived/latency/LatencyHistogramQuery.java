@@ -16,10 +16,13 @@
  */
 package org.terracotta.statistics.derived.latency;
 
+import org.terracotta.statistics.derived.histogram.Exemplar;
 import org.terracotta.statistics.derived.histogram.Histogram;
 
 import java.util.List;
 
+import static java.util.Collections.emptyList;
+
 /**
  * @author Mathieu Carbou
  */
@@ -56,6 +59,46 @@ public interface LatencyHistogramQuery {
    */
   long[] percentileBounds(double percent);
 
+  /**
+   * @param percents the percentages (0.0-1.0)
+   * @return for each percentage, in the order requested, the value below which percent% of the observations may be found or null if no value.
+   * Will return the upper bound of each approximated range.
+   */
+  default Long[] percentiles(double... percents) {
+    Long[] values = new Long[percents.length];
+    for (int i = 0; i < percents.length; i++) {
+      values[i] = percentile(percents[i]);
+    }
+    return values;
+  }
+
+  /**
+   * @param percents the percentages (0.0-1.0)
+   * @return for each percentage, in the order requested, the inclusive bounds (min and max) representing the range containing the right value for the given percent%-ile.
+   */
+  default long[][] percentileBounds(double[] percents) {
+    long[][] bounds = new long[percents.length][];
+    for (int i = 0; i < percents.length; i++) {
+      bounds[i] = percentileBounds(percents[i]);
+    }
+    return bounds;
+  }
+
   List<Histogram.Bucket> buckets();
 
+  /**
+   * @param bucket a bucket returned by {@link #buckets()}
+   * @return the sampled exemplar events falling within the bucket, ordered by latency, or an empty list if exemplars are not retained.
+   */
+  default List<Exemplar> exemplars(Histogram.Bucket bucket) {
+    return emptyList();
+  }
+
+  /**
+   * @return all sampled exemplar events, ordered by latency, or an empty list if exemplars are not retained.
+   */
+  default List<Exemplar> exemplars() {
+    return emptyList();
+  }
+
 }
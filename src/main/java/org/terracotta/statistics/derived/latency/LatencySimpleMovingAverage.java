@@ -18,12 +18,11 @@ package org.terracotta.statistics.derived.latency;
 
 import org.terracotta.statistics.observer.ChainedEventObserver;
 
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
 import static org.terracotta.statistics.Time.time;
 
 /**
@@ -34,11 +33,9 @@ public class LatencySimpleMovingAverage implements ChainedEventObserver, Latency
 
   private static final int PARTITION_COUNT = 10;
 
-  private final Queue<LatencyPeriodAccumulator> archive = new ConcurrentLinkedQueue<>();
-  private final AtomicReference<LatencyPeriodAccumulator> activePartition;
-
   private final long windowSize;
   private final long partitionSize;
+  private final Partition[] partitions;
 
   public LatencySimpleMovingAverage(long time, TimeUnit unit) {
     this(time, unit, PARTITION_COUNT);
@@ -46,108 +43,116 @@ public class LatencySimpleMovingAverage implements ChainedEventObserver, Latency
 
   public LatencySimpleMovingAverage(long time, TimeUnit unit, int partitionCount) {
     this.windowSize = unit.toNanos(time);
-    this.partitionSize = windowSize / partitionCount;
-    this.activePartition = new AtomicReference<>(new LatencyPeriodAccumulator(Long.MIN_VALUE, partitionSize));
+    this.partitionSize = Math.max(1L, windowSize / partitionCount);
+    // a window of partitionCount partitions can straddle two more partial partitions at either end
+    this.partitions = new Partition[partitionCount + 2];
+    for (int i = 0; i < partitions.length; i++) {
+      partitions[i] = new Partition();
+    }
   }
 
-  @Override
-  public final double average() {
+  /**
+   * Returns the count, total, minimum and maximum latencies over the current window, collected in a single pass.
+   *
+   * @return a snapshot of the window
+   */
+  public LatencySnapshot snapshot() {
     long startTime = time() - windowSize;
 
-    LatencyPeriodAccumulator current = activePartition.get();
-    if (current.isBefore(startTime)) {
-      return Double.NaN;
-    } else {
-      long total = current.accumulator().total();
-      long count = current.accumulator().count();
-
-      for (Iterator<LatencyPeriodAccumulator> it = archive.iterator(); it.hasNext(); ) {
-        LatencyPeriodAccumulator partition = it.next();
-        if (partition == current) {
-          break;
-        } else if (partition.isBefore(startTime)) {
-          it.remove();
-        } else {
-          total += partition.accumulator().total();
-          count += partition.accumulator().count();
+    long count = 0L;
+    long total = 0L;
+    long minimum = Long.MAX_VALUE;
+    long maximum = Long.MIN_VALUE;
+    for (Partition partition : partitions) {
+      long epoch = partition.epoch();
+      if (epoch != Partition.EMPTY && epoch != Partition.RESETTING && (epoch + 1) * partitionSize > startTime) {
+        LatencySnapshot partitionSnapshot = partition.accumulator().snapshot();
+        if (!partitionSnapshot.isEmpty()) {
+          count += partitionSnapshot.count();
+          total += partitionSnapshot.total();
+          minimum = Math.min(minimum, partitionSnapshot.minimum());
+          maximum = Math.max(maximum, partitionSnapshot.maximum());
         }
       }
+    }
+    return count == 0L ? LatencySnapshot.empty() : new LatencySnapshot(count, total, minimum, maximum);
+  }
 
-      return ((double) total) / count;
+  /**
+   * Discards all accumulated latencies.
+   * <p>
+   * Each partition is reset while holding the guards of its accumulator, so every concurrently recorded latency is
+   * either discarded or retained, never partially.  The partitions (and their stripes) are reset in turn, so a
+   * concurrent read may observe the clear only partially applied.
+   * </p>
+   */
+  void clear() {
+    for (Partition partition : partitions) {
+      partition.accumulator().reset();
     }
   }
 
   @Override
-  public final Long maximum() {
-    long startTime = time() - windowSize;
-
-    LatencyPeriodAccumulator current = activePartition.get();
-    if (current.isBefore(startTime)) {
-      return null;
-    } else {
-      long maximum = current.maximum();
-      for (Iterator<LatencyPeriodAccumulator> it = archive.iterator(); it.hasNext(); ) {
-        LatencyPeriodAccumulator partition = it.next();
-        if (partition == current) {
-          break;
-        } else if (partition.isBefore(startTime)) {
-          it.remove();
-        } else {
-          maximum = Math.max(maximum, partition.maximum());
-        }
-      }
+  public final double average() {
+    return snapshot().average();
+  }
 
-      return maximum;
-    }
+  @Override
+  public final Long maximum() {
+    return snapshot().maximum();
   }
 
   @Override
   public final Long minimum() {
-    long startTime = time() - windowSize;
-
-    LatencyPeriodAccumulator current = activePartition.get();
-    if (current.isBefore(startTime)) {
-      return null;
-    } else {
-      long minimum = current.minimum();
-      for (Iterator<LatencyPeriodAccumulator> it = archive.iterator(); it.hasNext(); ) {
-        LatencyPeriodAccumulator partition = it.next();
-        if (partition == current) {
-          break;
-        } else if (partition.isBefore(startTime)) {
-          it.remove();
-        } else {
-          minimum = Math.min(minimum, partition.minimum());
-        }
-      }
-
-      return minimum;
-    }
+    return snapshot().minimum();
   }
 
   @Override
   public void event(long timeNs, long latencyNs) {
-    while (true) {
-      LatencyPeriodAccumulator partition = activePartition.get();
-      if (partition.tryAccumulate(timeNs, latencyNs)) {
-        return;
-      } else {
-        if (activePartition.compareAndSet(partition, new LatencyPeriodAccumulator(timeNs, partitionSize, latencyNs))) {
-          archive(partition);
-          return;
-        }
-      }
-    }
+    long epoch = floorDiv(timeNs, partitionSize);
+    partitions[(int) floorMod(epoch, (long) partitions.length)].accumulate(epoch, latencyNs);
   }
 
-  private void archive(LatencyPeriodAccumulator partition) {
-    archive.add(partition);
-    long startTime = partition.end() - windowSize;
-    for (LatencyPeriodAccumulator earliest = archive.peek(); earliest != null && earliest.isBefore(startTime); earliest = archive.peek()) {
-      if (archive.remove(earliest)) {
-        break;
+  /**
+   * A reusable ring slot, accumulating the latencies of the period {@code [epoch * partitionSize, (epoch + 1) * partitionSize)}.
+   */
+  static final class Partition {
+
+    static final long EMPTY = Long.MIN_VALUE;
+    static final long RESETTING = Long.MIN_VALUE + 1;
+
+    private static final AtomicLongFieldUpdater<Partition> EPOCH_UPDATER = AtomicLongFieldUpdater.newUpdater(Partition.class, "epoch");
+
+    private final LatencyAccumulator accumulator = LatencyAccumulator.empty();
+    private volatile long epoch = EMPTY;
+
+    long epoch() {
+      return epoch;
+    }
+
+    LatencyAccumulator accumulator() {
+      return accumulator;
+    }
+
+    /*
+     * Late latencies, for periods the ring has already moved past, are accumulated in the current owner of the slot,
+     * as the previous active partition would have done.
+     */
+    void accumulate(long target, long latency) {
+      while (true) {
+        long current = epoch;
+        if (current == RESETTING) {
+          Thread.yield();
+        } else if (current >= target) {
+          accumulator.accumulate(latency);
+          return;
+        } else if (EPOCH_UPDATER.compareAndSet(this, current, RESETTING)) {
+          accumulator.reset();
+          accumulator.accumulate(latency);
+          epoch = target;
+          return;
+        }
       }
     }
   }
-
 }
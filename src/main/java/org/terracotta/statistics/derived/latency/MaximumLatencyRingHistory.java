@@ -0,0 +1,206 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.latency;
+
+import org.terracotta.statistics.Sample;
+import org.terracotta.statistics.SampledStatistic;
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.observer.ChainedEventObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a history of the maximum operation latencies over a specific window, in fixed primitive arrays.
+ * <p>
+ * This behaves as {@link MaximumLatencyHistory}, but windows are slots of a preallocated ring rather than objects in a
+ * queue: recording a latency within the current window is a single {@code getAndAccumulate} on its slot, and opening a
+ * window allocates nothing.  The history can be read in to caller supplied arrays, so that long histories can be
+ * polled without creating garbage.
+ * <p>
+ * Opening a window is not lock-free: the opening thread claims the ring, and concurrent recorders spin, and then
+ * yield, until the new window is published.  A descheduled opener therefore briefly stalls every recorder, once per
+ * window.
+ * <p>
+ * As with {@link MaximumLatencyHistory} the history is based on a sample count and not a time frame: only windows
+ * in which events occurred are recorded.
+ */
+public class MaximumLatencyRingHistory implements ChainedEventObserver, SampledStatistic<Long> {
+
+  private static final AtomicLongFieldUpdater<MaximumLatencyRingHistory> SEQUENCE_UPDATER = AtomicLongFieldUpdater.newUpdater(MaximumLatencyRingHistory.class, "sequence");
+
+  private static final int SPINS_BEFORE_YIELD = 64;
+
+  private final int historySize;
+  private final long windowSizeNs;
+  private final LongSupplier timeSupplier;
+  private final AtomicLongArray starts;
+  private final AtomicLongArray maximums;
+
+  /*
+   * The number of windows opened so far, or its complement while a new window is being opened.
+   */
+  private volatile long sequence;
+  private volatile long drift;
+
+  /**
+   * @param historySize    The number of samples to keep
+   * @param windowSize     The size of the window over which the reduction is applied. A small value is better for more details, but history might discard values faster.
+   * @param windowSizeUnit Window size unit
+   * @param timeSupplier   The supplier of absolute time in ms, used to timestamp the history.
+   */
+  public MaximumLatencyRingHistory(int historySize, long windowSize, TimeUnit windowSizeUnit, LongSupplier timeSupplier) {
+    if (historySize <= 0) {
+      throw new IllegalArgumentException("historySize must be positive: " + historySize);
+    }
+    this.historySize = historySize;
+    this.windowSizeNs = TimeUnit.NANOSECONDS.convert(windowSize, windowSizeUnit);
+    this.timeSupplier = timeSupplier;
+    this.starts = new AtomicLongArray(historySize);
+    this.maximums = new AtomicLongArray(historySize);
+    this.drift = Time.time() - timeSupplier.getAsLong() * 1_000_000;
+  }
+
+  @Override
+  public void event(long timeNs, long latencyNs) {
+    for (int attempt = 0; ; attempt++) {
+      long seq = sequence;
+      if (seq < 0) {
+        // another thread is opening a window
+        if (attempt >= SPINS_BEFORE_YIELD) {
+          Thread.yield();
+        }
+      } else if (seq > 0 && timeNs < starts.get(slot(seq - 1)) + windowSizeNs) {
+        maximums.getAndAccumulate(slot(seq - 1), latencyNs, Math::max);
+        return;
+      } else if (SEQUENCE_UPDATER.compareAndSet(this, seq, ~seq)) {
+        int slot = slot(seq);
+        starts.set(slot, timeNs);
+        maximums.set(slot, latencyNs);
+        // The difference between system time and nano time needs to be recomputed
+        // in case the computer went to sleep. In this case, the system time advance but not the nano time.
+        this.drift = Time.time() - timeSupplier.getAsLong() * 1_000_000;
+        sequence = seq + 1;
+        return;
+      }
+    }
+  }
+
+  @Override
+  public Long value() {
+    long seq = sequence;
+    long current = seq < 0 ? ~seq : seq;
+    if (current == 0) {
+      return null;
+    }
+    int slot = slot(current - 1);
+    long maximum = maximums.get(slot);
+    if (starts.get(slot) + windowSizeNs <= Time.time()) {
+      return null;
+    }
+    return maximum;
+  }
+
+  @Override
+  public StatisticType type() {
+    return StatisticType.GAUGE;
+  }
+
+  @Override
+  public List<Sample<Long>> history() {
+    return history(Long.MIN_VALUE);
+  }
+
+  @Override
+  public List<Sample<Long>> history(long sinceMillis) {
+    long[] timestamps = new long[historySize];
+    long[] values = new long[historySize];
+    int count = history(sinceMillis, timestamps, values);
+    List<Sample<Long>> history = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      history.add(new Sample<>(timestamps[i], values[i]));
+    }
+    return history;
+  }
+
+  /**
+   * Copies the history, oldest first, in to the supplied arrays.
+   * <p>
+   * If the arrays are shorter than the history then only the most recent samples are copied.
+   *
+   * @param timestamps array receiving the window start times, in ms
+   * @param values     array receiving the window maximums, in ns
+   * @return the number of samples copied
+   */
+  public int history(long[] timestamps, long[] values) {
+    return history(Long.MIN_VALUE, timestamps, values);
+  }
+
+  /**
+   * Copies the history of windows starting at or after {@code sinceMillis}, oldest first, in to the supplied arrays.
+   * <p>
+   * If the arrays are shorter than the history then only the most recent samples are copied.
+   *
+   * @param sinceMillis starting point of history in ms
+   * @param timestamps  array receiving the window start times, in ms
+   * @param values      array receiving the window maximums, in ns
+   * @return the number of samples copied
+   */
+  public int history(long sinceMillis, long[] timestamps, long[] values) {
+    long drift = this.drift;
+    long sinceNs = sinceMillis == Long.MIN_VALUE ? Long.MIN_VALUE : sinceMillis * 1_000_000 + drift;
+    long seq = sequence;
+    long end = seq < 0 ? ~seq : seq;
+    long first = Math.max(0, end - Math.min(historySize, Math.min(timestamps.length, values.length)));
+
+    int count = 0;
+    long firstCopied = end;
+    for (long k = first; k < end; k++) {
+      int slot = slot(k);
+      long start = starts.get(slot);
+      long maximum = maximums.get(slot);
+      if (start >= sinceNs) {
+        if (count == 0) {
+          firstCopied = k;
+        }
+        timestamps[count] = (start - drift) / 1_000_000;
+        values[count] = maximum;
+        count++;
+      }
+    }
+
+    // discard any samples whose slots were reclaimed by windows opened while copying
+    long after = sequence;
+    long claimed = after < 0 ? ~after + 1 : after;
+    long overwritten = Math.min(count, claimed - historySize - firstCopied);
+    if (overwritten > 0) {
+      count -= (int) overwritten;
+      System.arraycopy(timestamps, (int) overwritten, timestamps, 0, count);
+      System.arraycopy(values, (int) overwritten, values, 0, count);
+    }
+    return count;
+  }
+
+  private int slot(long sequence) {
+    return (int) (sequence % historySize);
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.ValueStatistic;
+import org.terracotta.statistics.observer.ChainedOperationObserver;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
+import static org.terracotta.statistics.Time.time;
+
+/**
+ * Estimates the number of distinct keys operated upon, over the lifetime of the observer or over a sliding window.
+ * <p>
+ *   Keys are only seen through {@link #end(long, long, Enum, Object)}, so this observer must be fed by a keyed
+ *   operation (see {@link org.terracotta.statistics.observer.OperationObserver#end(Enum, Object)}).  Windowed
+ *   instances keep a ring of {@value #GENERATIONS} {@link HyperLogLog} sketches, each covering a slice of the window,
+ *   and recycle the oldest sketch as the window slides.  Memory use is fixed at construction.
+ * </p>
+ *
+ * @param <T> the operation result type
+ */
+public class DistinctKeys<T extends Enum<T>> implements ChainedOperationObserver<T>, ValueStatistic<Long> {
+
+  private static final int GENERATIONS = 4;
+  private static final long EMPTY = Long.MIN_VALUE;
+  private static final long RESETTING = Long.MIN_VALUE + 1;
+
+  private final Set<T> targets;
+  private final int precision;
+  private final HyperLogLog lifetime;
+  private final Ring ring;
+
+  /**
+   * Creates a lifetime distinct key estimator.
+   *
+   * @param targets   the operation results whose keys are counted
+   * @param precision the sketch precision
+   * @see HyperLogLog#HyperLogLog(int)
+   */
+  public DistinctKeys(Set<T> targets, int precision) {
+    this.targets = EnumSet.copyOf(targets);
+    this.precision = precision;
+    this.lifetime = new HyperLogLog(precision);
+    this.ring = null;
+  }
+
+  /**
+   * Creates a sliding window distinct key estimator.
+   *
+   * @param targets   the operation results whose keys are counted
+   * @param precision the sketch precision
+   * @param window    sliding window size
+   * @param unit      sliding window size unit
+   * @see HyperLogLog#HyperLogLog(int)
+   */
+  public DistinctKeys(Set<T> targets, int precision, long window, TimeUnit unit) {
+    this.targets = EnumSet.copyOf(targets);
+    this.precision = precision;
+    this.lifetime = null;
+    this.ring = new Ring(precision, Math.max(1L, unit.toNanos(window) / GENERATIONS));
+  }
+
+  @Override
+  public void begin(long time) {
+    //no-op
+  }
+
+  @Override
+  public void end(long time, long latency, T result) {
+    //no key - nothing to count
+  }
+
+  @Override
+  public void end(long time, long latency, T result, Object key) {
+    if (key != null && targets.contains(result)) {
+      if (ring == null) {
+        lifetime.offer(key);
+      } else {
+        ring.offer(time, key);
+      }
+    }
+  }
+
+  /**
+   * Returns a sketch of the keys seen within the current window, merged from the live generations.
+   *
+   * @return a merged sketch
+   */
+  public HyperLogLog sketch() {
+    HyperLogLog merged = new HyperLogLog(precision);
+    if (ring == null) {
+      merged.merge(lifetime);
+    } else {
+      ring.mergeInto(merged, time());
+    }
+    return merged;
+  }
+
+  /**
+   * @return the estimated number of distinct keys within the window
+   */
+  @Override
+  public Long value() {
+    return sketch().estimate();
+  }
+
+  @Override
+  public StatisticType type() {
+    return StatisticType.GAUGE;
+  }
+
+  /**
+   * A ring of sketches, with each sketch owning the keys of the period
+   * {@code [generation * generationLength, (generation + 1) * generationLength)}.
+   */
+  private static final class Ring {
+
+    private final long generationLength;
+    private final HyperLogLog[] sketches = new HyperLogLog[GENERATIONS];
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+
+    Ring(int precision, long generationLength) {
+      this.generationLength = generationLength;
+      for (int g = 0; g < GENERATIONS; g++) {
+        sketches[g] = new HyperLogLog(precision);
+        generations.set(g, EMPTY);
+      }
+    }
+
+    void offer(long time, Object key) {
+      sketch(floorDiv(time, generationLength)).offer(key);
+    }
+
+    void mergeInto(HyperLogLog merged, long time) {
+      long oldest = floorDiv(time, generationLength) - GENERATIONS;
+      for (int g = 0; g < GENERATIONS; g++) {
+        long generation = generations.get(g);
+        if (generation != EMPTY && generation != RESETTING && generation > oldest) {
+          merged.merge(sketches[g]);
+        }
+      }
+    }
+
+    /*
+     * Late keys, for generations that have already been recycled, are counted in the current owner of the slot.
+     */
+    private HyperLogLog sketch(long generation) {
+      int g = (int) floorMod(generation, (long) GENERATIONS);
+      while (true) {
+        long current = generations.get(g);
+        if (current == RESETTING) {
+          Thread.yield();
+        } else if (current >= generation) {
+          return sketches[g];
+        } else if (generations.compareAndSet(g, current, RESETTING)) {
+          sketches[g].clear();
+          generations.set(g, generation);
+          return sketches[g];
+        }
+      }
+    }
+  }
+}
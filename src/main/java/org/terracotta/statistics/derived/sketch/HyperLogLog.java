@@ -0,0 +1,245 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.Long.numberOfLeadingZeros;
+
+/**
+ * A HyperLogLog distinct value estimator (Flajolet, Fusy, Gandouet and Meunier).
+ * <p>
+ *   The sketch holds {@code 2^precision} single byte registers, packed eight to a word and updated lock-free, giving a
+ *   relative standard error of roughly {@code 1.04 / sqrt(2^precision)}.  Small cardinalities are estimated by linear
+ *   counting.  Sketches of equal precision can be merged, and can be written to and read from a compact binary form,
+ *   so that estimates can be aggregated across tiers and nodes.
+ * </p>
+ * <p>
+ *   Keys are hashed from their {@link Object#hashCode()}, so distinct keys with colliding hash codes are counted once.
+ * </p>
+ */
+public class HyperLogLog {
+
+  /**
+   * The smallest supported precision.
+   */
+  public static final int MINIMUM_PRECISION = 4;
+
+  /**
+   * The largest supported precision.
+   */
+  public static final int MAXIMUM_PRECISION = 18;
+
+  private static final byte ENCODING_VERSION = 1;
+
+  private final int precision;
+  private final int registerCount;
+  private final AtomicLongArray registers;
+
+  /**
+   * Creates an empty sketch with {@code 2^precision} registers.
+   *
+   * @param precision the register index width, in bits
+   * @throws IllegalArgumentException if the precision is not supported
+   */
+  public HyperLogLog(int precision) throws IllegalArgumentException {
+    if (precision < MINIMUM_PRECISION || precision > MAXIMUM_PRECISION) {
+      throw new IllegalArgumentException("Precision must be between " + MINIMUM_PRECISION + " and " + MAXIMUM_PRECISION + ": " + precision);
+    }
+    this.precision = precision;
+    this.registerCount = 1 << precision;
+    this.registers = new AtomicLongArray(registerCount >>> 3);
+  }
+
+  public int precision() {
+    return precision;
+  }
+
+  /**
+   * Records a key.
+   *
+   * @param key the key to record
+   */
+  public void offer(Object key) {
+    offerHash(mix(key.hashCode()));
+  }
+
+  /**
+   * Records a pre-hashed key.  The hash must be uniformly distributed over all 64 bits.
+   *
+   * @param hash the key hash
+   */
+  public void offerHash(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - precision));
+    int rank = numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    raise(index, rank);
+  }
+
+  /**
+   * Returns the estimated number of distinct keys recorded.
+   *
+   * @return the cardinality estimate
+   */
+  public long estimate() {
+    double sum = 0.0;
+    int zeros = 0;
+    for (int word = 0; word < registers.length(); word++) {
+      long value = registers.get(word);
+      for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+        int register = (int) ((value >>> shift) & 0xff);
+        if (register == 0) {
+          zeros++;
+        }
+        sum += Double.longBitsToDouble((1023L - register) << 52);
+      }
+    }
+    double m = registerCount;
+    double estimate = alpha(registerCount) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      estimate = m * Math.log(m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Folds the registers of {@code other} in to this sketch, so that this sketch estimates the cardinality of the
+   * union of both key sets.
+   *
+   * @param other the sketch to merge
+   * @throws IllegalArgumentException if the sketches differ in precision
+   */
+  public void merge(HyperLogLog other) throws IllegalArgumentException {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+    }
+    for (int word = 0; word < registers.length(); word++) {
+      long value = other.registers.get(word);
+      for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+        int register = (int) ((value >>> shift) & 0xff);
+        if (register != 0) {
+          raise((word << 3) | (shift >>> 3), register);
+        }
+      }
+    }
+  }
+
+  /**
+   * Zeroes all registers.  Keys recorded concurrently with a clear may or may not be retained.
+   */
+  public void clear() {
+    for (int word = 0; word < registers.length(); word++) {
+      registers.set(word, 0L);
+    }
+  }
+
+  /**
+   * Reads a sketch previously written using {@link #writeTo(DataOutput)}.
+   *
+   * @param in the input to read from
+   * @return the decoded sketch
+   * @throws IOException if the input cannot be read, or does not contain a valid sketch (including one holding a
+   *                     register value no key could produce at its precision)
+   */
+  public static HyperLogLog readFrom(DataInput in) throws IOException {
+    byte version = in.readByte();
+    if (version != ENCODING_VERSION) {
+      throw new IOException("Unsupported HyperLogLog encoding: " + version);
+    }
+    int precision = in.readByte();
+    if (precision < MINIMUM_PRECISION || precision > MAXIMUM_PRECISION) {
+      throw new IOException("Corrupt HyperLogLog: precision " + precision);
+    }
+    HyperLogLog sketch = new HyperLogLog(precision);
+    int maximumRank = Long.SIZE - precision + 1;
+    for (int word = 0; word < sketch.registers.length(); word++) {
+      long value = in.readLong();
+      for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+        int register = (int) ((value >>> shift) & 0xff);
+        if (register > maximumRank) {
+          throw new IOException("Corrupt HyperLogLog: register value " + register + " exceeds " + maximumRank);
+        }
+      }
+      sketch.registers.set(word, value);
+    }
+    return sketch;
+  }
+
+  /**
+   * Writes this sketch in a compact binary form readable by {@link #readFrom(DataInput)}.
+   * <p>
+   *   The encoding is 2 bytes of header (version and precision), followed by the register words as written by
+   *   {@link DataOutput#writeLong(long)}: {@code 2^(precision - 3)} longs, each packing eight single byte registers,
+   *   for a total of one byte per register.
+   * </p>
+   *
+   * @param out the output to write to
+   * @throws IOException if the output cannot be written
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeByte(ENCODING_VERSION);
+    out.writeByte(precision);
+    for (int word = 0; word < registers.length(); word++) {
+      out.writeLong(registers.get(word));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "HyperLogLog{precision=" + precision + ", estimate=" + estimate() + '}';
+  }
+
+  private void raise(int index, int rank) {
+    int word = index >>> 3;
+    int shift = (index & 7) << 3;
+    long current;
+    while (((current = registers.get(word)) >>> shift & 0xff) < rank) {
+      long updated = (current & ~(0xffL << shift)) | ((long) rank << shift);
+      if (registers.compareAndSet(word, current, updated)) {
+        return;
+      }
+    }
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1.0 + 1.079 / m);
+    }
+  }
+
+  /*
+   * The 64-bit finalizer of MurmurHash3, spreading the (32-bit) hash code over all 64 bits.
+   */
+  static long mix(int hashCode) {
+    long h = hashCode * 0x9e3779b97f4a7c15L;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Space-Saving heavy hitter sketch (Metwally, Agrawal and El Abbadi).
+ * <p>
+ *   At most {@code capacity} keys are monitored.  When an unmonitored key arrives and the sketch is full, the key
+ *   with the smallest count is evicted and the new key inherits its count as an overestimation error.  Any key with a
+ *   true frequency greater than {@code total / capacity} is guaranteed to be monitored, and every reported count
+ *   overestimates the true count by at most its error.
+ * </p>
+ * <p>
+ *   Monitored keys are kept in a binary min-heap on count, so updates cost {@code O(log capacity)}.  This class is
+ *   not thread-safe.
+ * </p>
+ */
+class SpaceSaving {
+
+  private final Object[] keys;
+  private final long[] counts;
+  private final long[] errors;
+  private final int[] heap;
+  private final int[] position;
+  private final Map<Object, Integer> index;
+  private int size;
+
+  SpaceSaving(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.keys = new Object[capacity];
+    this.counts = new long[capacity];
+    this.errors = new long[capacity];
+    this.heap = new int[capacity];
+    this.position = new int[capacity];
+    this.index = new HashMap<>(capacity * 2);
+  }
+
+  void offer(Object key, long count) {
+    Integer slot = index.get(key);
+    if (slot != null) {
+      counts[slot] += count;
+      siftDown(position[slot]);
+    } else if (size < keys.length) {
+      int s = size++;
+      keys[s] = key;
+      counts[s] = count;
+      errors[s] = 0;
+      index.put(key, s);
+      heap[s] = s;
+      position[s] = s;
+      siftUp(s);
+    } else {
+      int s = heap[0];
+      index.remove(keys[s]);
+      long minimum = counts[s];
+      keys[s] = key;
+      counts[s] = minimum + count;
+      errors[s] = minimum;
+      index.put(key, s);
+      siftDown(0);
+    }
+  }
+
+  void clear() {
+    index.clear();
+    Arrays.fill(keys, null);
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void forEach(Visitor visitor) {
+    for (int i = 0; i < size; i++) {
+      visitor.visit(keys[i], counts[i], errors[i]);
+    }
+  }
+
+  private void siftUp(int i) {
+    int slot = heap[i];
+    long count = counts[slot];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      int parentSlot = heap[parent];
+      if (counts[parentSlot] <= count) {
+        break;
+      }
+      place(i, parentSlot);
+      i = parent;
+    }
+    place(i, slot);
+  }
+
+  private void siftDown(int i) {
+    int slot = heap[i];
+    long count = counts[slot];
+    int half = size >>> 1;
+    while (i < half) {
+      int child = (i << 1) + 1;
+      int right = child + 1;
+      if (right < size && counts[heap[right]] < counts[heap[child]]) {
+        child = right;
+      }
+      if (count <= counts[heap[child]]) {
+        break;
+      }
+      place(i, heap[child]);
+      i = child;
+    }
+    place(i, slot);
+  }
+
+  private void place(int i, int slot) {
+    heap[i] = slot;
+    position[slot] = i;
+  }
+
+  @FunctionalInterface
+  interface Visitor {
+    void visit(Object key, long count, long error);
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.Table;
+import org.terracotta.statistics.ValueStatistic;
+import org.terracotta.statistics.ValueStatistics;
+import org.terracotta.statistics.derived.histogram.Striped;
+import org.terracotta.statistics.observer.ChainedOperationObserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Comparator.comparingLong;
+import static org.terracotta.statistics.Time.time;
+
+/**
+ * Tracks the approximate most frequent keys of each operation result over a sliding window.
+ * <p>
+ *   Keys are only seen through {@link #end(long, long, Enum, Object)}, so this observer must be fed by a keyed
+ *   operation (see {@link org.terracotta.statistics.observer.OperationObserver#end(Enum, Object)}).  Each result is
+ *   tracked by {@link SpaceSaving} sketches, one per window generation: the window is divided in to
+ *   {@value #GENERATIONS} generations, and the oldest generation is cleared and reused as the window slides.  The
+ *   sketches are striped under contention, and merged when queried.
+ * </p>
+ * <p>
+ *   Memory use is bounded by {@code stripes * results * generations * capacity} monitored keys, independent of the
+ *   number of distinct keys observed.
+ * </p>
+ *
+ * @param <T> the operation result type
+ */
+public class TopKeys<T extends Enum<T>> implements ChainedOperationObserver<T> {
+
+  private static final int GENERATIONS = 4;
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private final T[] results;
+  private final int k;
+  private final long generationLength;
+  private final Stripes stripes;
+
+  /**
+   * Creates a top {@code k} tracker monitoring {@code 4 * k} keys per result and generation.
+   *
+   * @param type   the operation result type
+   * @param k      the number of keys reported per result
+   * @param window sliding window size
+   * @param unit   sliding window size unit
+   */
+  public TopKeys(Class<T> type, int k, long window, TimeUnit unit) {
+    this(type, k, 4 * k, window, unit);
+  }
+
+  /**
+   * Creates a top {@code k} tracker monitoring {@code capacity} keys per result and generation.
+   * <p>
+   *   A larger capacity reduces the count overestimation and the chance of missing a heavy hitter.
+   * </p>
+   *
+   * @param type     the operation result type
+   * @param k        the number of keys reported per result
+   * @param capacity the number of keys monitored per result and generation
+   * @param window   sliding window size
+   * @param unit     sliding window size unit
+   * @throws IllegalArgumentException if {@code k} is not positive, or exceeds {@code capacity}
+   */
+  public TopKeys(Class<T> type, int k, int capacity, long window, TimeUnit unit) throws IllegalArgumentException {
+    if (k <= 0 || capacity < k) {
+      throw new IllegalArgumentException("Require 0 < k <= capacity: k=" + k + " capacity=" + capacity);
+    }
+    this.results = type.getEnumConstants();
+    this.k = k;
+    this.generationLength = Math.max(1L, unit.toNanos(window) / GENERATIONS);
+    this.stripes = new Stripes(results.length, capacity);
+  }
+
+  @Override
+  public void begin(long time) {
+    //no-op
+  }
+
+  @Override
+  public void end(long time, long latency, T result) {
+    //no key - nothing to track
+  }
+
+  @Override
+  public void end(long time, long latency, T result, Object key) {
+    if (key != null) {
+      stripes.offer(result.ordinal(), key, floorDiv(time, generationLength));
+    }
+  }
+
+  /**
+   * Returns the approximate top keys for the given result over the current window, most frequent first.
+   *
+   * @param result the operation result
+   * @return at most {@code k} heavy hitters
+   */
+  public List<HeavyHitter> top(T result) {
+    Map<Object, long[]> merged = new HashMap<>();
+    long oldest = floorDiv(time(), generationLength) - GENERATIONS;
+    stripes.collect(result.ordinal(), oldest, (key, count, error) -> {
+      long[] estimate = merged.computeIfAbsent(key, x -> new long[2]);
+      estimate[0] += count;
+      estimate[1] += error;
+    });
+
+    List<HeavyHitter> top = new ArrayList<>(merged.size());
+    merged.forEach((key, estimate) -> top.add(new HeavyHitter(key, estimate[0], estimate[1])));
+    top.sort(comparingLong(HeavyHitter::count).reversed());
+    return unmodifiableList(top.size() > k ? new ArrayList<>(top.subList(0, k)) : top);
+  }
+
+  /**
+   * Returns a table of the top keys of every result.
+   * <p>
+   *   Rows are named {@code <result>#<rank>}, ranks starting at one, and hold the key (as a string), its estimated
+   *   count and the maximum overestimation of that count.
+   * </p>
+   *
+   * @return the top keys table
+   */
+  public Table table() {
+    Table.Builder builder = Table.newBuilder("key", "count", "error");
+    for (T result : results) {
+      List<HeavyHitter> top = top(result);
+      for (int i = 0; i < top.size(); i++) {
+        HeavyHitter hitter = top.get(i);
+        builder.withRow(result.name() + "#" + (i + 1), row -> row
+            .setStatistic("key", StatisticType.GAUGE, String.valueOf(hitter.key()))
+            .setStatistic("count", StatisticType.COUNTER, hitter.count())
+            .setStatistic("error", StatisticType.COUNTER, hitter.error()));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns a table statistic, suitable for registration with a
+   * {@link org.terracotta.statistics.registry.StatisticRegistry}.
+   *
+   * @return the top keys statistic
+   */
+  public ValueStatistic<Table> statistic() {
+    return ValueStatistics.table(this::table);
+  }
+
+  /**
+   * A frequently seen key, with its estimated count.
+   */
+  public static final class HeavyHitter {
+
+    private final Object key;
+    private final long count;
+    private final long error;
+
+    HeavyHitter(Object key, long count, long error) {
+      this.key = key;
+      this.count = count;
+      this.error = error;
+    }
+
+    public Object key() {
+      return key;
+    }
+
+    /**
+     * @return the estimated count, which may overestimate the true count by up to {@link #error()}
+     */
+    public long count() {
+      return count;
+    }
+
+    /**
+     * @return the maximum overestimation of the count
+     */
+    public long error() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + count + "(+/-" + error + ")";
+    }
+  }
+
+  private static final class Stripes extends Striped<Generations> {
+
+    Stripes(int results, int capacity) {
+      super(() -> new Generations(results, capacity));
+    }
+
+    void offer(int result, Object key, long generation) {
+      process(g -> g.offer(result, key, generation));
+    }
+
+    void collect(int result, long oldest, SpaceSaving.Visitor visitor) {
+      processAll(g -> g.collect(result, oldest, visitor));
+    }
+  }
+
+  /*
+   * The sketches of a single stripe, indexed by result and generation.  Only accessed while holding the stripe guard.
+   */
+  private static final class Generations {
+
+    private final SpaceSaving[][] sketches;
+    private final long[] generations = new long[GENERATIONS];
+
+    Generations(int results, int capacity) {
+      this.sketches = new SpaceSaving[results][GENERATIONS];
+      for (SpaceSaving[] perResult : sketches) {
+        for (int g = 0; g < GENERATIONS; g++) {
+          perResult[g] = new SpaceSaving(capacity);
+        }
+      }
+      Arrays.fill(generations, EMPTY);
+    }
+
+    /*
+     * Late keys, for generations that have already been recycled, are counted in the current owner of the slot.
+     */
+    void offer(int result, Object key, long generation) {
+      int g = (int) floorMod(generation, (long) GENERATIONS);
+      if (generations[g] < generation) {
+        for (SpaceSaving[] perResult : sketches) {
+          perResult[g].clear();
+        }
+        generations[g] = generation;
+      }
+      sketches[result][g].offer(key, 1L);
+    }
+
+    void collect(int result, long oldest, SpaceSaving.Visitor visitor) {
+      for (int g = 0; g < GENERATIONS; g++) {
+        if (generations[g] != EMPTY && generations[g] > oldest) {
+          sketches[result][g].forEach(visitor);
+        }
+      }
+    }
+  }
+}
@@ -25,4 +25,18 @@ public interface ChainedOperationObserver<T extends Enum<T>> extends ChainedObse
 
   void end(long time, long latency, T result);
 
+  /**
+   * Called when an operation on a known key completes.
+   * <p>
+   * Observers that do not track keys treat this as {@link #end(long, long, Enum)}.
+   *
+   * @param time    the operation end time
+   * @param latency the operation latency
+   * @param result  the operation result
+   * @param key     the key the operation acted upon
+   */
+  default void end(long time, long latency, T result, Object key) {
+    end(time, latency, result);
+  }
+
 }
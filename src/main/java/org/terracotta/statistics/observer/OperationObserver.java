@@ -44,4 +44,16 @@ public interface OperationObserver<T extends Enum<T>> {
    */
   void end(T result);
 
+  /**
+   * Called immediately after the operation completes, identifying the key the operation acted upon, and with the same thread the called {{@link #begin()}} before.
+   * <p>
+   * Observers that do not track keys treat this as {@link #end(Enum)}.
+   *
+   * @param result the operation result
+   * @param key    the key the operation acted upon
+   */
+  default void end(T result, Object key) {
+    end(result);
+  }
+
 }
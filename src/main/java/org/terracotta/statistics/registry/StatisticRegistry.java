@@ -16,7 +16,7 @@
  */
 package org.terracotta.statistics.registry;
 
-import org.terracotta.context.ContextManager;
+import org.terracotta.context.ContextRegistry;
 import org.terracotta.context.TreeNode;
 import org.terracotta.context.query.Matcher;
 import org.terracotta.context.query.Matchers;
@@ -64,11 +64,20 @@ import static org.terracotta.statistics.ValueStatistics.table;
  */
 public class StatisticRegistry {
 
+  private final ContextRegistry registry;
   private final Object contextObject;
   private final LongSupplier timeSource;
   private final Map<String, ValueStatistic<? extends Serializable>> statistics = new HashMap<>();
 
   public StatisticRegistry(Object contextObject, LongSupplier timeSource) {
+    this(ContextRegistry.global(), contextObject, timeSource);
+  }
+
+  /**
+   * Creates a statistic registry discovering statistics from the context graph of the supplied registry.
+   */
+  public StatisticRegistry(ContextRegistry registry, Object contextObject, LongSupplier timeSource) {
+    this.registry = Objects.requireNonNull(registry);
     this.contextObject = contextObject;
     this.timeSource = Objects.requireNonNull(timeSource);
   }
@@ -143,7 +152,7 @@ public class StatisticRegistry {
     if (contextObject == null) {
       return false;
     }
-    TreeNode treeNode = ContextManager.nodeFor(contextObject);
+    TreeNode treeNode = registry.nodeFor(contextObject);
     if (treeNode == null) {
       return false;
     }
@@ -182,7 +191,7 @@ public class StatisticRegistry {
     if (contextObject == null) {
       return false;
     }
-    TreeNode treeNode = ContextManager.nodeFor(contextObject);
+    TreeNode treeNode = registry.nodeFor(contextObject);
     if (treeNode == null) {
       return false;
     }
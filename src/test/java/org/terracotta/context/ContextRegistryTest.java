@@ -0,0 +1,117 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context;
+
+import org.junit.Test;
+import org.terracotta.context.ContextTestUtils.NoAnnotations;
+import org.terracotta.context.ContextTestUtils.PublicAnnotations;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.terracotta.context.ContextTestUtils.validateAssociation;
+import static org.terracotta.context.ContextTestUtils.validateNoAssociation;
+import static org.terracotta.context.query.QueryBuilder.queryBuilder;
+
+public class ContextRegistryTest {
+
+  @Test
+  public void testAssociationsArePartitioned() {
+    ContextRegistry registry = new ContextRegistry();
+    Object parent = new NoAnnotations();
+    Object child = new NoAnnotations();
+
+    registry.associate(parent).withChild(child);
+
+    assertThat(registry.nodeFor(parent), notNullValue());
+    assertThat(new ContextRegistry().nodeFor(parent), nullValue());
+    assertThat(ContextManager.nodeFor(parent), nullValue());
+
+    ContextManager manager = new ContextManager(registry);
+    manager.root(parent);
+    validateAssociation(manager, parent, child);
+  }
+
+  @Test
+  public void testAnnotatedAssociationsStayInRegistry() {
+    ContextRegistry registry = new ContextRegistry();
+    PublicAnnotations parent = new PublicAnnotations();
+    NoAnnotations child = new NoAnnotations();
+    parent.child = child;
+
+    ContextManager manager = new ContextManager(registry);
+    manager.root(parent);
+
+    validateAssociation(manager, parent, child);
+    assertThat(ContextManager.nodeFor(child), nullValue());
+  }
+
+  @Test
+  public void testDissociate() {
+    ContextRegistry registry = new ContextRegistry();
+    Object parent = new NoAnnotations();
+    Object child = new NoAnnotations();
+
+    registry.associate(parent).withChild(child);
+    registry.dissociate(parent).fromChild(child);
+
+    ContextManager manager = new ContextManager(registry);
+    manager.root(parent);
+    validateNoAssociation(manager, parent, child);
+  }
+
+  @Test
+  public void testClearDropsGraph() {
+    ContextRegistry registry = new ContextRegistry();
+    Object parent = new NoAnnotations();
+    Object child = new NoAnnotations();
+
+    registry.associate(parent).withChild(child);
+    registry.retain(parent, child);
+    registry.clear();
+
+    assertThat(registry.nodeFor(parent), nullValue());
+    assertThat(registry.nodeFor(child), nullValue());
+    assertThat(registry.retains(parent), is(false));
+  }
+
+  @Test
+  public void testReleaseOnClean() {
+    ContextRegistry registry = new ContextRegistry();
+    Object owner = new NoAnnotations();
+
+    registry.associate(owner).withChild(new NoAnnotations());
+    registry.retain(owner, new Object());
+    assertThat(registry.retains(owner), is(true));
+
+    registry.nodeFor(owner).clean();
+    assertThat(registry.retains(owner), is(false));
+  }
+
+  @Test
+  public void testManagerQueriesOnlyItsRegistry() {
+    ContextRegistry registry = new ContextRegistry();
+    Object object = new NoAnnotations();
+    ContextManager.associate(object).withChild(new NoAnnotations());
+
+    ContextManager manager = new ContextManager(registry);
+    manager.root(object);
+
+    assertThat(manager.query(queryBuilder().descendants().build()).size(), is(1));
+  }
+}
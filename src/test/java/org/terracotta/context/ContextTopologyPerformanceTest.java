@@ -0,0 +1,95 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.terracotta.statistics.StatisticsManager;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.terracotta.statistics.StatisticsManager.tags;
+
+/**
+ * Builds and tears down a cache-manager like topology: one rooted manager, 10k caches, three tiers per cache and a
+ * handful of operation statistics per tier, with a listener on the root.
+ */
+@Ignore
+public class ContextTopologyPerformanceTest {
+
+  private static final int CACHES = 10000;
+  private static final int TIERS = 3;
+  private static final int STATISTICS = 6;
+
+  enum Outcome {HIT, MISS}
+
+  @Test
+  public void testTopology() {
+    for (int i = 0; i < 5; i++) {
+      run();
+    }
+  }
+
+  private static void run() {
+    ContextRegistry registry = new ContextRegistry();
+    ContextManager manager = new ContextManager(registry);
+    LongAdder events = new LongAdder();
+    manager.registerContextListener(new ContextListener() {
+      @Override
+      public void graphAdded(TreeNode parent, TreeNode added) {
+        events.increment();
+      }
+
+      @Override
+      public void graphRemoved(TreeNode parent, TreeNode removed) {
+        events.increment();
+      }
+    });
+
+    Object cacheManager = new Object();
+    manager.root(cacheManager);
+
+    Object[] caches = new Object[CACHES];
+    Object[] tiers = new Object[CACHES * TIERS];
+    Object[] statistics = new Object[CACHES * TIERS * STATISTICS];
+    long start = System.nanoTime();
+    for (int c = 0; c < CACHES; c++) {
+      Object cache = caches[c] = new Object();
+      registry.associate(cacheManager).withChild(cache);
+      for (int t = 0; t < TIERS; t++) {
+        Object tier = tiers[c * TIERS + t] = new Object();
+        registry.associate(cache).withChild(tier);
+        for (int s = 0; s < STATISTICS; s++) {
+          statistics[(c * TIERS + t) * STATISTICS + s] = StatisticsManager.createOperationStatistic(registry, tier, "stat" + s, tags("tier"), Collections.emptyMap(), Outcome.class);
+        }
+      }
+    }
+    long build = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (Object cache : caches) {
+      registry.dissociate(cacheManager).fromChild(cache);
+    }
+    long teardown = System.nanoTime() - start;
+
+    int nodes = CACHES * (1 + TIERS * (1 + STATISTICS));
+    System.out.println("Build Mean Time per node (ns): " + ((double) build) / nodes
+        + " Teardown Mean Time per cache (ns): " + ((double) teardown) / CACHES
+        + " Events: " + events.sum() + " Nodes: " + (tiers.length + statistics.length));
+  }
+}
@@ -20,8 +20,13 @@ import org.hamcrest.collection.IsEmptyCollection;
 import org.hamcrest.collection.IsIterableContainingInOrder;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * @author cdennis
@@ -50,4 +55,67 @@ public class MutableTreeNodeTest {
     assertThat(child.getAncestors(), hasSize(1));
     assertThat(child.getAncestors(), IsIterableContainingInOrder.contains(parent));
   }
+
+  @Test
+  public void testListenersNotifiedOncePerNewlyReachableSubtree() {
+    RootNode root = new RootNode();
+    List<String> events = new ArrayList<>();
+    root.addListener(new ContextListener() {
+      @Override
+      public void graphAdded(TreeNode parent, TreeNode added) {
+        events.add("added " + added);
+      }
+
+      @Override
+      public void graphRemoved(TreeNode parent, TreeNode removed) {
+        events.add("removed " + removed);
+      }
+    });
+
+    MutableTreeNode a = new MutableTreeNode(null);
+    MutableTreeNode b = new MutableTreeNode(null);
+    MutableTreeNode c = new MutableTreeNode(null);
+
+    root.addChild(a);
+    a.addChild(b);
+    assertThat(events, hasSize(1));
+
+    //c is already reachable from root through a, so adding it under b is not an addition to the graph
+    a.addChild(c);
+    b.addChild(c);
+    assertThat(events, hasSize(2));
+
+    root.removeChild(a);
+    assertThat(b.getRootAncestors(), IsEmptyCollection.empty());
+    assertThat(c.getRootAncestors(), IsEmptyCollection.empty());
+
+    b.addChild(new MutableTreeNode(null));
+    assertThat(events, hasSize(2));
+
+    root.addChild(b);
+    assertThat(c.getRootAncestors(), IsIterableContainingInOrder.contains(root));
+    b.removeChild(c);
+    assertThat(events, hasSize(3));
+    assertThat(events.get(2), is("removed " + c));
+  }
+
+  @Test
+  public void testUniquePath() {
+    RootNode root = new RootNode();
+    MutableTreeNode a = new MutableTreeNode(null);
+    MutableTreeNode b = new MutableTreeNode(null);
+    root.addChild(a);
+    a.addChild(b);
+
+    assertThat(b.getPath(), IsIterableContainingInOrder.contains(a, b));
+
+    root.addChild(b);
+    assertThat(b.getPaths(), hasSize(2));
+    try {
+      b.getPath();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      //expected
+    }
+  }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Ignore
+public class WeakIdentityHashMapPerformanceTest {
+
+  private static final int KEYS = 4096;
+  private static final int OPERATIONS = 20000000;
+
+  @Test
+  public void testContendedLookups() throws InterruptedException {
+    for (int threads = 1; threads <= 16; threads <<= 1) {
+      System.out.println(threads + " threads, 0% churn Mean Time (ns): " + run(threads, 0));
+      System.out.println(threads + " threads, 1% churn Mean Time (ns): " + run(threads, 100));
+    }
+  }
+
+  private static double run(int threads, int churnPeriod) throws InterruptedException {
+    WeakIdentityHashMap<Object, Object> map = new WeakIdentityHashMap<>();
+    Object[] keys = new Object[KEYS];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Object();
+      map.putIfAbsent(keys[i], i);
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      long start = System.nanoTime();
+      executorService.invokeAll(Collections.nCopies(threads, (Callable<Void>) () -> {
+        ThreadLocalRandom rndm = ThreadLocalRandom.current();
+        long hits = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+          if (churnPeriod > 0 && i % churnPeriod == 0) {
+            //garbage keys feed the reference queue
+            map.putIfAbsent(new Object(), i);
+          } else if (map.get(keys[rndm.nextInt(KEYS)]) != null) {
+            hits++;
+          }
+        }
+        if (hits == 0) {
+          throw new AssertionError();
+        }
+        return null;
+      }));
+      return ((double) (System.nanoTime() - start)) / OPERATIONS;
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}
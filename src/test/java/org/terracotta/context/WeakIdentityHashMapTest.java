@@ -71,6 +71,58 @@ public class WeakIdentityHashMapTest {
     assertThat(map.get("key"), nullValue());
   }
 
+  @Test
+  public void testLookupsDoNotCreateReferences() {
+    Queue<Reference<String>> references = new LinkedList<>();
+    WeakIdentityHashMap<String, String> map = new WeakIdentityHashMap<String, String>() {
+      @Override
+      protected Reference<String> createReference(String key, ReferenceQueue<? super String> queue) {
+        Reference<String> ref = super.createReference(key, queue);
+        references.add(ref);
+        return ref;
+      }
+    };
+
+    map.putIfAbsent("key", "value");
+    assertThat(references.size(), is(1));
+
+    assertThat(map.get("key"), is("value"));
+    assertThat(map.putIfAbsent("key", "other"), is("value"));
+    assertThat(map.remove("key"), is("value"));
+    assertThat(references.size(), is(1));
+  }
+
+  @Test
+  public void testCleaningIsAmortized() {
+    Queue<Reference<String>> references = new LinkedList<>();
+    WeakIdentityHashMap<String, DummyCleanable> map = createRefTrackingWeakIdentityHashMap(references);
+
+    DummyCleanable[] values = new DummyCleanable[1000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = new DummyCleanable();
+      map.putIfAbsent(Integer.toString(i), values[i]);
+    }
+    while (!references.isEmpty()) {
+      references.remove().enqueue();
+    }
+
+    map.get("absent");
+    int cleaned = 0;
+    for (DummyCleanable value : values) {
+      if (value.isClean()) {
+        cleaned++;
+      }
+    }
+    assertThat(cleaned > 0 && cleaned < values.length, is(true));
+
+    for (int i = 0; i < values.length; i++) {
+      map.get("absent");
+    }
+    for (DummyCleanable value : values) {
+      assertThat(value.isClean(), is(true));
+    }
+  }
+
   private <T> WeakIdentityHashMap<String, T> createRefTrackingWeakIdentityHashMap(final Queue<Reference<String>> references) {
     return new WeakIdentityHashMap<String, T>() {
       @Override
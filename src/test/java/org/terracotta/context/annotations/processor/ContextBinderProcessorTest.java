@@ -0,0 +1,208 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.context.annotations.processor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terracotta.context.ContextManager;
+import org.terracotta.context.ContextTestUtils.NoAnnotations;
+import org.terracotta.context.TreeNode;
+import org.terracotta.context.extractor.ContextBinders;
+import org.terracotta.context.extractor.ObjectContextExtractor;
+import org.terracotta.statistics.StatisticsManager;
+import org.terracotta.statistics.ValueStatistic;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.terracotta.context.ContextTestUtils.validateAssociation;
+import static org.terracotta.context.query.Matchers.attributes;
+import static org.terracotta.context.query.Matchers.context;
+import static org.terracotta.context.query.Matchers.hasAttribute;
+import static org.terracotta.context.query.QueryBuilder.queryBuilder;
+
+public class ContextBinderProcessorTest {
+
+  private static final String SAMPLE = "package sample;\n"
+      + "import org.terracotta.context.annotations.*;\n"
+      + "import org.terracotta.statistics.Statistic;\n"
+      + "import static org.terracotta.statistics.StatisticType.*;\n"
+      + "@ContextAttribute(\"this\")\n"
+      + "public class Sample {\n"
+      + "  @ContextAttribute(\"name\") final String name = \"sample\";\n"
+      + "  @ContextAttribute(\"count\") public int count;\n"
+      + "  @ContextChild public Object child;\n"
+      + "  @ContextAttribute(\"size\") public int size() { return count * 2; }\n"
+      + "  @Statistic(name = \"hits\", type = COUNTER, tags = {\"a\", \"b\"}) public long hits() { return count; }\n"
+      + "  public static class Sub extends Sample {\n"
+      + "    @ContextAttribute(\"name\") final String subName = \"sub\";\n"
+      + "  }\n"
+      + "}\n";
+
+  private static final String HIDDEN = "package sample;\n"
+      + "import org.terracotta.context.annotations.*;\n"
+      + "public class Hidden {\n"
+      + "  @ContextAttribute(\"secret\") private int secret;\n"
+      + "}\n";
+
+  private static final String INVALID = "package sample;\n"
+      + "import org.terracotta.statistics.Statistic;\n"
+      + "import static org.terracotta.statistics.StatisticType.*;\n"
+      + "public class Invalid {\n"
+      + "  @Statistic(name = \"foo\", type = COUNTER) public static Integer foo() { return 42; }\n"
+      + "}\n";
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testBindersGeneratedForAccessibleTypes() throws Exception {
+    File out = compile(SAMPLE, HIDDEN).out;
+
+    assertTrue(new File(out, "sample/Sample$$ContextBinder.class").isFile());
+    assertTrue(new File(out, "sample/Sample$Sub$$ContextBinder.class").isFile());
+    assertFalse(new File(out, "sample/Hidden$$ContextBinder.class").exists());
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[] {out.toURI().toURL()}, getClass().getClassLoader())) {
+      assertThat(ContextBinders.binderFor(loader.loadClass("sample.Sample")), notNullValue());
+      assertThat(ContextBinders.binderFor(loader.loadClass("sample.Hidden")), nullValue());
+    }
+  }
+
+  @Test
+  public void testBoundAttributes() throws Exception {
+    try (URLClassLoader loader = new URLClassLoader(new URL[] {compile(SAMPLE).out.toURI().toURL()}, getClass().getClassLoader())) {
+      Object sample = loader.loadClass("sample.Sample").getConstructor().newInstance();
+      sample.getClass().getField("count").setInt(sample, 21);
+
+      Map<String, Object> expected = new HashMap<>();
+      expected.put("this", sample);
+      expected.put("name", "sample");
+      expected.put("count", 21);
+      expected.put("size", 42);
+      assertThat(ObjectContextExtractor.extract(sample).attributes(), equalTo(expected));
+
+      Object sub = loader.loadClass("sample.Sample$Sub").getConstructor().newInstance();
+      assertThat(ObjectContextExtractor.extract(sub).attributes().get("name"), equalTo("sample"));
+    }
+  }
+
+  @Test
+  public void testBoundAssociations() throws Exception {
+    try (URLClassLoader loader = new URLClassLoader(new URL[] {compile(SAMPLE).out.toURI().toURL()}, getClass().getClassLoader())) {
+      Object sample = loader.loadClass("sample.Sample").getConstructor().newInstance();
+      Object child = new NoAnnotations();
+      sample.getClass().getField("child").set(sample, child);
+
+      ContextManager manager = new ContextManager();
+      manager.root(sample);
+
+      validateAssociation(manager, sample, child);
+    }
+  }
+
+  @Test
+  public void testBoundStatistics() throws Exception {
+    try (URLClassLoader loader = new URLClassLoader(new URL[] {compile(SAMPLE).out.toURI().toURL()}, getClass().getClassLoader())) {
+      Object sample = loader.loadClass("sample.Sample").getConstructor().newInstance();
+      sample.getClass().getField("count").setInt(sample, 7);
+
+      StatisticsManager manager = new StatisticsManager();
+      manager.root(sample);
+
+      TreeNode hits = manager.queryForSingleton(queryBuilder().descendants().filter(context(attributes(hasAttribute("name", "hits")))).build());
+      Object stat = hits.getContext().attributes().get("this");
+      assertThat(stat, instanceOf(ValueStatistic.class));
+      assertThat(((ValueStatistic<?>) stat).value(), equalTo(7L));
+      assertThat(hits.getContext().attributes().get("tags"), equalTo(StatisticsManager.tags("a", "b")));
+    }
+  }
+
+  @Test
+  public void testInvalidStatisticIsACompileError() throws Exception {
+    Compilation compilation = compile(INVALID);
+    assertFalse(compilation.success);
+    assertThat(compilation.errors.toString(), containsString("Statistic methods must be non-static"));
+  }
+
+  private Compilation compile(String... sources) throws IOException {
+    File src = folder.newFolder();
+    File out = folder.newFolder();
+    List<File> files = new ArrayList<>();
+    for (String source : sources) {
+      String name = source.substring(source.indexOf("public class ") + "public class ".length()).split("\\s")[0];
+      File file = new File(src, name + ".java");
+      Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+      files.add(file);
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      List<String> options = Arrays.asList(
+          "-classpath", System.getProperty("java.class.path"),
+          "-processor", ContextBinderProcessor.class.getName(),
+          "-d", out.getAbsolutePath(),
+          "-s", out.getAbsolutePath());
+      boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+          fileManager.getJavaFileObjectsFromFiles(files)).call();
+      List<String> errors = new ArrayList<>();
+      for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+        if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+          errors.add(diagnostic.getMessage(null));
+        }
+      }
+      return new Compilation(success, out, errors);
+    }
+  }
+
+  private static final class Compilation {
+    private final boolean success;
+    private final File out;
+    private final List<String> errors;
+
+    Compilation(boolean success, File out, List<String> errors) {
+      this.success = success;
+      this.out = out;
+      this.errors = errors;
+    }
+  }
+}
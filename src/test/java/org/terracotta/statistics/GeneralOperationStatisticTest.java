@@ -18,11 +18,13 @@
 package org.terracotta.statistics;
 
 import org.junit.Test;
+import org.terracotta.statistics.observer.ChainedOperationObserver;
 import org.terracotta.util.Outcome;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -79,4 +81,34 @@ public class GeneralOperationStatisticTest {
 
     assertThat(statistic.toString(), is("[GOOD=1, BAD=2, UGLY=0]"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void keyedEnd() {
+    AtomicReference<Object> seenKey = new AtomicReference<>();
+    statistic.addDerivedStatistic(new ChainedOperationObserver<Outcome>() {
+      @Override
+      public void begin(long time) {
+      }
+
+      @Override
+      public void end(long time, long latency, Outcome result) {
+        seenKey.set("unkeyed");
+      }
+
+      @Override
+      public void end(long time, long latency, Outcome result, Object key) {
+        seenKey.set(key);
+      }
+    });
+
+    statistic.begin();
+    statistic.end(Outcome.GOOD, "foo");
+    assertThat(statistic.count(Outcome.GOOD), is(1L));
+    assertThat(seenKey.get(), is("foo"));
+
+    statistic.begin();
+    statistic.end(Outcome.GOOD);
+    assertThat(statistic.count(Outcome.GOOD), is(2L));
+    assertThat(seenKey.get(), is("unkeyed"));
+  }
+}
@@ -18,6 +18,7 @@ package org.terracotta.statistics;
 
 import org.hamcrest.collection.IsEmptyCollection;
 import org.junit.Test;
+import org.terracotta.context.ContextRegistry;
 import org.terracotta.context.TreeNode;
 import org.terracotta.context.query.Query;
 
@@ -25,9 +26,11 @@ import java.util.Collections;
 import java.util.Set;
 
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.terracotta.context.query.Matchers.attributes;
 import static org.terracotta.context.query.Matchers.context;
 import static org.terracotta.context.query.Matchers.hasAttribute;
@@ -76,6 +79,19 @@ public class PassThroughStatisticTest {
     assertThat(barStat.type(), equalTo(GAUGE));
   }
 
+  @Test
+  public void testAnnotationBasedStatDetectionInRegistry() {
+    ContextRegistry registry = new ContextRegistry();
+    Foo object = new Foo();
+    StatisticsManager manager = new StatisticsManager(registry);
+    manager.root(object);
+
+    TreeNode foo = manager.queryForSingleton(queryBuilder().descendants().filter(context(attributes(hasAttribute("name", "foostat")))).build());
+    assertThat(extractThis(foo).value(), equalTo(42));
+    assertTrue(registry.retains(object));
+    assertFalse(PassThroughStatistic.hasStatisticsFor(object));
+  }
+
   @SuppressWarnings("unchecked")
   private ValueStatistic<Number> extractThis(TreeNode foo) {
     return (ValueStatistic<Number>) foo.getContext().attributes().get("this");
@@ -106,6 +122,28 @@ public class PassThroughStatisticTest {
     });
   }
 
+  @Test
+  public void testAnnotationBasedStatWrapsFailures() {
+    StatisticsManager manager = new StatisticsManager();
+    manager.root(new Failing());
+
+    TreeNode node = manager.queryForSingleton(queryBuilder().descendants().filter(context(attributes(hasAttribute("name", "failing")))).build());
+    try {
+      extractThis(node).value();
+      fail("Expected RuntimeException");
+    } catch (RuntimeException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+  }
+
+  static class Failing {
+
+    @Statistic(name = "failing", type = GAUGE)
+    public long failing() {
+      throw new IllegalStateException();
+    }
+  }
+
   static class Foo {
 
     @Statistic(name = "foostat", type = COUNTER)
@@ -27,13 +27,17 @@ import java.util.Set;
 
 import static java.util.EnumSet.of;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.terracotta.statistics.StatisticMapperTest.Source.C;
 import static org.terracotta.statistics.StatisticMapperTest.Source.D;
 import static org.terracotta.statistics.StatisticMapperTest.Source.E;
@@ -223,6 +227,40 @@ public class StatisticMapperTest {
     verify(statistic).removeDerivedStatistic(any(ChainedOperationObserver.class));
   }
 
+  @Test
+  public void testStatisticsAreCachedPerTargetSet() {
+    OperationStatistic<Source> statistic = mock(OperationStatistic.class);
+    when(statistic.statistic(any(Set.class))).then(invocation -> mock(ValueStatistic.class));
+    Map<Target, Set<Source>> translation = new EnumMap<>(Target.class);
+    translation.put(A, of(C));
+    translation.put(B, of(D, E));
+    StatisticMapper<Source, Target> mapper = new StatisticMapper<>(translation, statistic);
+
+    assertThat(mapper.statistic(of(A, B)), sameInstance(mapper.statistic(of(A, B))));
+    assertThat(mapper.statistic(A), sameInstance(mapper.statistic(of(A))));
+    assertThat(mapper.statistic(A), not(sameInstance(mapper.statistic(B))));
+    verify(statistic, times(1)).statistic(of(C, D, E));
+    verify(statistic, times(1)).statistic(of(C));
+  }
+
+  @Test
+  public void testLargeTargetTypeTranslation() {
+    OperationStatistic<Source> statistic = mock(OperationStatistic.class);
+    Map<Wide, Set<Source>> translation = new EnumMap<>(Wide.class);
+    for (Wide target : Wide.values()) {
+      translation.put(target, Collections.emptySet());
+    }
+    translation.put(Wide.W0, of(C));
+    translation.put(Wide.W10, of(D, E));
+    StatisticMapper<Source, Wide> mapper = new StatisticMapper<>(translation, statistic);
+
+    mapper.sum(of(Wide.W0, Wide.W10));
+    verify(statistic).sum(of(C, D, E));
+
+    mapper.statistic(of(Wide.W1, Wide.W10));
+    verify(statistic).statistic(of(D, E));
+  }
+
   enum Target {
     A, B
   }
@@ -230,4 +268,8 @@ public class StatisticMapperTest {
   enum Source {
     C, D, E
   }
+
+  enum Wide {
+    W0, W1, W2, W3, W4, W5, W6, W7, W8, W9, W10
+  }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.terracotta.statistics.MutableTimeSource;
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.TimeMocking;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class EventRateExponentialMovingAverageTest {
+
+  public static final MutableTimeSource SOURCE = TimeMocking.push(new MutableTimeSource());
+
+  @AfterClass
+  public static void installTimeSource() {
+    TimeMocking.pop();
+  }
+
+  @Test
+  public void testNoEventBehavior() {
+    EventRateExponentialMovingAverage stat = EventRateExponentialMovingAverage.oneMinute();
+    assertThat(stat.rateUsingSeconds(), is(0.0));
+    assertThat(stat.type(), is(StatisticType.RATE));
+  }
+
+  @Test
+  public void testConsistentRateConverges() {
+    EventRateExponentialMovingAverage stat = EventRateExponentialMovingAverage.oneMinute();
+    for (int second = 0; second < 600; second++) {
+      for (int i = 0; i < 10; i++) {
+        stat.event(Time.time(), 0L);
+      }
+      SOURCE.advanceTime(1, TimeUnit.SECONDS);
+    }
+    assertThat(stat.rateUsingSeconds(), closeTo(10.0, 0.01));
+    assertThat(stat.rate(TimeUnit.MINUTES), closeTo(600.0, 0.6));
+  }
+
+  @Test
+  public void testRateDecaysWhenIdle() {
+    EventRateExponentialMovingAverage stat = EventRateExponentialMovingAverage.oneMinute();
+    for (int second = 0; second < 600; second++) {
+      stat.event(Time.time(), 0L);
+      SOURCE.advanceTime(1, TimeUnit.SECONDS);
+    }
+    double rate = stat.rateUsingSeconds();
+    assertThat(rate, closeTo(1.0, 0.01));
+
+    SOURCE.advanceTime(1, TimeUnit.MINUTES);
+    assertThat(stat.rateUsingSeconds(), closeTo(rate * Math.exp(-1.0), 0.05));
+
+    SOURCE.advanceTime(1, TimeUnit.HOURS);
+    assertThat(stat.rateUsingSeconds(), lessThan(1e-10));
+  }
+
+  @Test
+  public void testLongerWindowsRespondMoreSlowly() {
+    EventRateExponentialMovingAverage one = EventRateExponentialMovingAverage.oneMinute();
+    EventRateExponentialMovingAverage fifteen = EventRateExponentialMovingAverage.fifteenMinute();
+    for (int second = 0; second < 120; second++) {
+      one.event(Time.time(), 0L);
+      fifteen.event(Time.time(), 0L);
+      SOURCE.advanceTime(1, TimeUnit.SECONDS);
+    }
+    SOURCE.advanceTime(5, TimeUnit.MINUTES);
+    assertThat(one.rateUsingSeconds(), lessThan(fifteen.rateUsingSeconds()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroTickIntervalIsRejected() {
+    new EventRateExponentialMovingAverage(1, TimeUnit.MINUTES, 0, TimeUnit.SECONDS);
+  }
+}
@@ -123,6 +123,48 @@ public class EventRateSimpleMovingAverageTest {
     }
   }
 
+  @Test
+  public void testSetWindowRebucketsExistingEvents() {
+    EventRateSimpleMovingAverage stat = new EventRateSimpleMovingAverage(1, TimeUnit.SECONDS);
+    double actualRate = new EventDriver(stat, 100, 10, 10, TimeUnit.MILLISECONDS).call();
+    assertThat(stat.rate(TimeUnit.SECONDS), closeTo(actualRate, EXPECTED_ACCURACY * actualRate));
+
+    stat.setWindow(2, TimeUnit.SECONDS);
+    assertThat(stat.rate(TimeUnit.SECONDS), closeTo(actualRate / 2, EXPECTED_ACCURACY * actualRate));
+
+    stat.setWindow(500, TimeUnit.MILLISECONDS);
+    assertThat(stat.rate(TimeUnit.SECONDS), closeTo(actualRate, EXPECTED_ACCURACY * actualRate));
+  }
+
+  @Test
+  public void testPartitionsAreReusedAcrossManyWindows() {
+    EventRateSimpleMovingAverage stat = new EventRateSimpleMovingAverage(100, TimeUnit.MILLISECONDS);
+    new EventDriver(stat, 1000, 5, 10, TimeUnit.MILLISECONDS).call();
+    double actualRate = new EventDriver(stat, 10, 10, 10, TimeUnit.MILLISECONDS).call();
+    assertThat(stat.rate(TimeUnit.SECONDS), closeTo(actualRate, EXPECTED_ACCURACY * actualRate));
+
+    SOURCE.advanceTime(1, TimeUnit.SECONDS);
+    assertThat(stat.rateUsingSeconds(), Is.is(0.0));
+  }
+
+  @Test
+  public void testRepeatedWindowChangesPruneReplacedRings() {
+    EventRateSimpleMovingAverage stat = new EventRateSimpleMovingAverage(1, TimeUnit.SECONDS);
+    for (int i = 0; i < 1000; i++) {
+      SOURCE.advanceTime(10, TimeUnit.MILLISECONDS);
+      stat.event(Time.time(), 0L);
+      stat.setWindow(1, TimeUnit.SECONDS);
+    }
+
+    int rings = 0;
+    for (EventRateSimpleMovingAverage.Ring r = stat.ring; r != null; r = r.previous) {
+      rings++;
+    }
+    //one ring per event within the window plus a trailing partition, along with the current and just replaced rings
+    assertThat(rings, lessThanOrEqualTo((1000 + 100) / 10 + 2));
+    assertThat(stat.rate(TimeUnit.SECONDS), closeTo(100.0, EXPECTED_ACCURACY * 100.0));
+  }
+
   static class EventDriver implements Callable<Double> {
 
     private final ChainedEventObserver stat;
@@ -0,0 +1,120 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived;
+
+import org.junit.Test;
+import org.terracotta.statistics.observer.ChainedEventObserver;
+import org.terracotta.util.Outcome;
+
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class OperationResultDispatcherTest {
+
+  @Test
+  public void dispatchesToTargetingFilters() {
+    ChainedEventObserver good = mock(ChainedEventObserver.class);
+    ChainedEventObserver goodOrBad = mock(ChainedEventObserver.class);
+    OperationResultFilter<Outcome> goodFilter = new OperationResultFilter<>(EnumSet.of(Outcome.GOOD), good);
+    OperationResultFilter<Outcome> goodOrBadFilter = new OperationResultFilter<>(EnumSet.of(Outcome.GOOD, Outcome.BAD), goodOrBad);
+
+    OperationResultDispatcher<Outcome> dispatcher = new OperationResultDispatcher<>(Outcome.class);
+    dispatcher.addFilter(goodFilter);
+    dispatcher.addFilter(goodOrBadFilter);
+
+    dispatcher.end(10, 20, Outcome.GOOD);
+    dispatcher.end(11, 21, Outcome.BAD);
+    dispatcher.end(12, 22, Outcome.UGLY);
+
+    verify(good).event(10, 20);
+    verify(goodOrBad).event(10, 20);
+    verify(goodOrBad).event(11, 21);
+    verifyNoMoreInteractions(good, goodOrBad);
+  }
+
+  @Test
+  public void dispatchFollowsFilterObservers() {
+    ChainedEventObserver first = mock(ChainedEventObserver.class);
+    ChainedEventObserver second = mock(ChainedEventObserver.class);
+    OperationResultFilter<Outcome> filter = new OperationResultFilter<>(EnumSet.of(Outcome.GOOD), first);
+    OperationResultDispatcher<Outcome> dispatcher = new OperationResultDispatcher<>(Outcome.class);
+    dispatcher.addFilter(filter);
+
+    filter.addDerivedStatistic(second);
+    dispatcher.end(10, 20, Outcome.GOOD);
+
+    verify(first).event(10, 20);
+    verify(second).event(10, 20);
+  }
+
+  @Test
+  public void removedFilterIsNotDispatchedTo() {
+    ChainedEventObserver observer = mock(ChainedEventObserver.class);
+    OperationResultFilter<Outcome> filter = new OperationResultFilter<>(EnumSet.of(Outcome.GOOD), observer);
+    OperationResultDispatcher<Outcome> dispatcher = new OperationResultDispatcher<>(Outcome.class);
+    dispatcher.addFilter(filter);
+    assertThat(dispatcher.getFilters(), is(singletonList(filter)));
+
+    dispatcher.removeFilter(filter);
+    dispatcher.end(10, 20, Outcome.GOOD);
+
+    assertThat(dispatcher.getFilters(), empty());
+    verifyNoMoreInteractions(observer);
+  }
+
+  @Test
+  public void samplersAreSampled() {
+    ChainedEventObserver never = mock(ChainedEventObserver.class);
+    ChainedEventObserver always = mock(ChainedEventObserver.class);
+    OperationResultDispatcher<Outcome> dispatcher = new OperationResultDispatcher<>(Outcome.class);
+    dispatcher.addFilter(new OperationResultSampler<>(EnumSet.of(Outcome.GOOD), 0.0, never));
+    dispatcher.addFilter(new OperationResultSampler<>(EnumSet.of(Outcome.GOOD), 1.0, always));
+
+    dispatcher.end(10, 20, Outcome.GOOD);
+
+    verify(always).event(10, 20);
+    verifyNoMoreInteractions(never, always);
+  }
+
+  @Test
+  public void unobservedFiltersAreSkipped() {
+    AtomicInteger accepted = new AtomicInteger();
+    OperationResultFilter<Outcome> filter = new OperationResultFilter<Outcome>(EnumSet.of(Outcome.GOOD)) {
+      @Override
+      protected void accepted(long time, long latency) {
+        accepted.incrementAndGet();
+      }
+    };
+    OperationResultDispatcher<Outcome> dispatcher = new OperationResultDispatcher<>(Outcome.class);
+    dispatcher.addFilter(filter);
+
+    dispatcher.end(10, 20, Outcome.GOOD);
+    assertThat(accepted.get(), is(0));
+
+    filter.addDerivedStatistic(mock(ChainedEventObserver.class));
+    dispatcher.end(11, 21, Outcome.GOOD);
+    assertThat(accepted.get(), is(1));
+  }
+}
@@ -86,4 +86,19 @@ public class OperationResultFilterTest {
 
     verifyNoMoreInteractions(observer1, observer2);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void eventCalled_removedObserver() {
+    Set<Outcome> outcomes = Collections.singleton(Outcome.GOOD);
+
+    ChainedEventObserver observer1 = mock(ChainedEventObserver.class);
+    ChainedEventObserver observer2 = mock(ChainedEventObserver.class);
+
+    filter = new OperationResultFilter<>(outcomes, observer1, observer2);
+    filter.removeDerivedStatistic(observer1);
+    filter.end(10, 20, Outcome.GOOD);
+
+    verify(observer2).event(10 ,20);
+    verifyNoMoreInteractions(observer1, observer2);
+  }
+}
@@ -20,6 +20,7 @@ import org.junit.Test;
 
 import static java.lang.Math.nextUp;
 import static java.util.stream.IntStream.range;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
@@ -47,4 +48,64 @@ public class BarSplittingBiasedHistogramTest {
     assertThat(bsbh.getQuantileBounds(0.0)[0], is(Double.NaN));
     assertThat(bsbh.getQuantileBounds(1.0)[1], is(Double.NaN));
   }
+
+  @Test
+  public void testPartialExpiryKeepsSizeConsistent() {
+    BarSplittingBiasedHistogram bsbh = new BarSplittingBiasedHistogram(10, 100);
+    range(0, 100).forEach(i -> bsbh.event(i, i));
+
+    bsbh.expire(99);
+    assertThat(bsbh.size(), is(100L));
+
+    for (int t = 100; t < 200; t++) {
+      bsbh.expire(t);
+      assertThat(bsbh.getBuckets().stream().mapToDouble(Histogram.Bucket::count).sum(), closeTo(bsbh.size(), 1e-9));
+    }
+    assertThat(bsbh.size(), is(0L));
+  }
+
+  @Test
+  public void testBatchQuantileBoundsMatchSingleQueries() {
+    BarSplittingBiasedHistogram bsbh = new BarSplittingBiasedHistogram(0.7, 20, 1000);
+    range(0, 1000).forEach(i -> bsbh.event((i * 7919) % 1000, i));
+
+    double[] quantiles = {0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1.0, 0.0};
+    double[][] bounds = bsbh.getQuantileBounds(quantiles);
+
+    for (int i = 0; i < quantiles.length; i++) {
+      assertArrayEquals(bsbh.getQuantileBounds(quantiles[i]), bounds[i], 0.0);
+    }
+  }
+
+  @Test
+  public void testWeightedEventsMatchRepeatedEvents() {
+    BarSplittingBiasedHistogram weighted = new BarSplittingBiasedHistogram(0.7, 20, Long.MAX_VALUE);
+    BarSplittingBiasedHistogram repeated = new BarSplittingBiasedHistogram(0.7, 20, Long.MAX_VALUE);
+    range(0, 100).forEach(i -> {
+      weighted.event(i, 100, i);
+      range(0, 100).forEach(j -> repeated.event(i, i));
+    });
+
+    assertThat((double) weighted.size(), closeTo(repeated.size(), repeated.size() * 0.01));
+    assertThat(weighted.getMinimum(), is(0.0));
+    assertThat(weighted.getMaximum(), is(99.0));
+    double[] median = weighted.getQuantileBounds(0.5);
+    assertThat(median[0] <= 50.0 && median[1] >= 49.0, is(true));
+  }
+
+  @Test
+  public void testLargeWeightsAreSplitAcrossBars() {
+    BarSplittingBiasedHistogram bsbh = new BarSplittingBiasedHistogram(0.7, 20, Long.MAX_VALUE);
+    range(0, 10).forEach(i -> bsbh.event(i * 100, 1_000_000_000L, i));
+
+    assertThat((double) bsbh.size(), closeTo(10_000_000_000.0, 10_000_000_000.0 * 0.01));
+    assertThat(bsbh.barsInUse() > 10, is(true));
+    double[] median = bsbh.getQuantileBounds(0.5);
+    assertThat(median[0] <= 500.0 && median[1] >= 400.0, is(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeWeightIsRejected() {
+    new BarSplittingBiasedHistogram(10, 100).event(1.0, -1, 0);
+  }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import org.junit.Test;
+import org.terracotta.statistics.derived.latency.DefaultLatencyHistogramStatistic;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ExemplarReservoirTest {
+
+  @Test
+  public void testRetentionIsBounded() {
+    ExemplarReservoir reservoir = new ExemplarReservoir(4, 1000L);
+    for (int i = 0; i < 100_000; i++) {
+      reservoir.offer(i % 1024, 0L, null);
+    }
+    //values 0..1023 span bins 0..10
+    assertThat(reservoir.exemplars(0L).size(), lessThanOrEqualTo(11 * 4));
+  }
+
+  @Test
+  public void testTailEventsAreRetained() {
+    ExemplarReservoir reservoir = new ExemplarReservoir(2, 1000L);
+    for (int i = 0; i < 100_000; i++) {
+      reservoir.offer(10.0, 0L, null);
+    }
+    reservoir.offer(1_000_000.0, 0L, "slow");
+    for (int i = 0; i < 100_000; i++) {
+      reservoir.offer(10.0, 0L, null);
+    }
+
+    List<Exemplar> tail = reservoir.exemplars(500_000.0, Double.POSITIVE_INFINITY, 0L);
+    assertThat(tail, hasSize(1));
+    assertThat(tail.get(0).value(), is(1_000_000.0));
+    assertThat(tail.get(0).context(), is("slow"));
+  }
+
+  @Test
+  public void testExemplarsAreFilteredByRange() {
+    ExemplarReservoir reservoir = new ExemplarReservoir(8, 1000L);
+    for (int i = 1; i <= 8; i++) {
+      reservoir.offer(i, 0L, null);
+    }
+    List<Exemplar> exemplars = reservoir.exemplars(2.0, 5.0, 0L);
+    assertThat(exemplars, hasSize(3));
+    for (int i = 1; i < exemplars.size(); i++) {
+      assertThat(exemplars.get(i - 1).value(), lessThan(exemplars.get(i).value()));
+    }
+  }
+
+  @Test
+  public void testExemplarsExpire() {
+    ExemplarReservoir reservoir = new ExemplarReservoir(2, 100L);
+    reservoir.offer(10.0, 0L, null);
+    reservoir.offer(10.0, 50L, null);
+    assertThat(reservoir.exemplars(99L), hasSize(2));
+    assertThat(reservoir.exemplars(120L), hasSize(1));
+    assertThat(reservoir.exemplars(200L), is(empty()));
+  }
+
+  @Test
+  public void testExpiredExemplarsAreReplaced() {
+    ExemplarReservoir reservoir = new ExemplarReservoir(2, 100L);
+    for (int i = 0; i < 100_000; i++) {
+      reservoir.offer(10.0, 0L, null);
+    }
+    reservoir.offer(10.0, 200L, "late");
+    List<Exemplar> exemplars = reservoir.exemplars(200L);
+    assertThat(exemplars, hasSize(1));
+    assertThat(exemplars.get(0).context(), is("late"));
+  }
+
+  @Test
+  public void testExemplarHistogramExposesExemplarsPerBucket() {
+    ExemplarHistogram histogram = new ExemplarHistogram(new BarSplittingBiasedHistogram(4, 1000L), 4, 1000L);
+    for (int i = 0; i < 1000; i++) {
+      histogram.event(i, 0L, (Object) i);
+    }
+    int total = 0;
+    for (Histogram.Bucket bucket : histogram.getBuckets()) {
+      for (Exemplar exemplar : histogram.getExemplars(bucket)) {
+        assertThat(exemplar.value() >= bucket.minimum() && exemplar.value() < bucket.maximum(), is(true));
+        assertThat(exemplar.context(), is((Object) (int) exemplar.value()));
+        total++;
+      }
+    }
+    assertThat(total, is(histogram.getExemplars().size()));
+    assertThat(histogram.size(), is(1000L));
+  }
+
+  @Test
+  public void testLatencyHistogramExemplars() {
+    DefaultLatencyHistogramStatistic disabled = new DefaultLatencyHistogramStatistic(0.7, 8, Duration.ofSeconds(10), () -> 0L);
+    DefaultLatencyHistogramStatistic enabled = new DefaultLatencyHistogramStatistic(0.7, 8, Duration.ofSeconds(10), () -> 0L, 0, 2);
+    for (int i = 0; i < 1000; i++) {
+      disabled.event(0L, i, "op-" + i);
+      enabled.event(0L, i, "op-" + i);
+    }
+    assertThat(disabled.exemplars(), is(empty()));
+    assertThat(enabled.exemplars().size(), lessThanOrEqualTo(11 * 2));
+
+    List<Exemplar> exemplars = enabled.exemplars();
+    int total = 0;
+    for (Histogram.Bucket bucket : enabled.buckets()) {
+      for (Exemplar exemplar : enabled.exemplars(bucket)) {
+        assertThat(exemplar.context(), is("op-" + (long) exemplar.value()));
+        total++;
+      }
+    }
+    assertThat(total, is(exemplars.size()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveSizeIsRejected() {
+    new ExemplarReservoir(0, 1000L);
+  }
+}
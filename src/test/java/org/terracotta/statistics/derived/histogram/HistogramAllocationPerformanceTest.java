@@ -0,0 +1,86 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+@Ignore
+public class HistogramAllocationPerformanceTest {
+
+  @Test
+  public void testExponentialHistogramSplitAndMerge() {
+    ExponentialHistogram a = new ExponentialHistogram(0.01, 100000);
+    ExponentialHistogram b = new ExponentialHistogram(0.01, 100000);
+    Random random = new Random();
+
+    Runnable cycle = new Runnable() {
+      long time = 0;
+
+      @Override
+      public void run() {
+        a.insert(time++, 1 + random.nextInt(1000));
+        if ((time & 0xff) == 0) {
+          a.split(0.3, b);
+          a.merge(b);
+        }
+      }
+    };
+    report("ExponentialHistogram split/merge", cycle, 50000);
+  }
+
+  @Test
+  public void testBarSplittingBiasedHistogramEvents() {
+    BarSplittingBiasedHistogram histogram = new BarSplittingBiasedHistogram(0.75, 20, 1000000);
+    Random random = new Random();
+
+    Runnable cycle = new Runnable() {
+      long time = 0;
+
+      @Override
+      public void run() {
+        histogram.event(Math.abs(random.nextGaussian()) * 3000, time++);
+        if ((time & 0xffff) == 0) {
+          histogram.expire(time);
+        }
+      }
+    };
+    report("BarSplittingBiasedHistogram event/expire", cycle, 2000000);
+  }
+
+  private static void report(String name, Runnable operation, int iterations) {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    for (int i = 0; i < iterations; i++) {
+      operation.run();
+    }
+    long before = threads.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      operation.run();
+    }
+    long end = System.nanoTime();
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+    System.out.println(name + ": " + ((double) (end - start)) / iterations + " ns/op, "
+        + ((double) allocated) / iterations + " bytes/op (" + allocated + " bytes total)");
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class HistogramRecorderTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveBufferSizeIsRejected() {
+    new HistogramRecorder(0, new Object(), (value, time) -> {});
+  }
+
+  @Test
+  public void testEventsAreOnlyReplayedOnDrain() {
+    List<Double> values = new ArrayList<>();
+    HistogramRecorder recorder = new HistogramRecorder(16, values, (value, time) -> values.add(value));
+
+    range(0, 10).forEach(i -> recorder.record(i, i));
+    assertThat(values.isEmpty(), is(true));
+
+    recorder.drain();
+    assertThat(values, is(range(0, 10).mapToObj(i -> (double) i).collect(toList())));
+
+    recorder.drain();
+    assertThat(values.size(), is(10));
+  }
+
+  @Test
+  public void testFullBufferDrainsItself() {
+    List<Double> values = new ArrayList<>();
+    HistogramRecorder recorder = new HistogramRecorder(4, values, (value, time) -> values.add(value));
+
+    range(0, 10).forEach(i -> recorder.record(i, i));
+    assertThat(values.size(), is(8));
+
+    recorder.drain();
+    assertThat(values, is(range(0, 10).mapToObj(i -> (double) i).collect(toList())));
+  }
+
+  @Test
+  public void testConcurrentRecordingLosesNothing() throws Exception {
+    long[] totals = new long[2];
+    HistogramRecorder recorder = new HistogramRecorder(64, totals, (value, time) -> {
+      totals[0]++;
+      totals[1] += (long) value;
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        tasks.add(() -> {
+          for (int i = 0; i < 100000; i++) {
+            recorder.record(i, i);
+          }
+          return null;
+        });
+      }
+      tasks.add(() -> {
+        for (int i = 0; i < 1000; i++) {
+          recorder.drain();
+        }
+        return null;
+      });
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    recorder.drain();
+
+    synchronized (totals) {
+      assertThat(totals[0], is(400000L));
+      assertThat(totals[1], is(4 * (99999L * 100000L / 2)));
+    }
+  }
+}
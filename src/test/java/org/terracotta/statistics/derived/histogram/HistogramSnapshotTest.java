@@ -0,0 +1,153 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static java.util.stream.IntStream.range;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class HistogramSnapshotTest {
+
+  private static final double[] QUANTILES = {0.0, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0};
+
+  @Test
+  public void testEncodingRoundTrip() throws IOException {
+    HistogramSnapshot snapshot = populated(new Random(0), 1000).snapshot();
+
+    byte[] encoded = encode(snapshot);
+    assertThat(encoded.length, is(57 + 28 * snapshot.barCount()));
+
+    HistogramSnapshot decoded = HistogramSnapshot.readFrom(new DataInputStream(new ByteArrayInputStream(encoded)));
+    assertThat(decoded.size(), is(snapshot.size()));
+    assertArrayEquals(decoded.getSizeBounds(), snapshot.getSizeBounds(), 0.0);
+    assertThat(decoded.getBuckets().toString(), is(snapshot.getBuckets().toString()));
+    for (double q : QUANTILES) {
+      assertArrayEquals(decoded.getQuantileBounds(q), snapshot.getQuantileBounds(q), 0.0);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownEncodingIsRejected() throws IOException {
+    byte[] encoded = encode(populated(new Random(0), 10).snapshot());
+    encoded[0] = 42;
+    HistogramSnapshot.readFrom(new DataInputStream(new ByteArrayInputStream(encoded)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testOversizedBarCountIsRejected() throws IOException {
+    byte[] encoded = encode(populated(new Random(0), 10).snapshot());
+    ByteBuffer.wrap(encoded).putInt(53, Integer.MAX_VALUE);
+    HistogramSnapshot.readFrom(new DataInputStream(new ByteArrayInputStream(encoded)));
+  }
+
+  @Test
+  public void testMergeIsAssociative() {
+    Random random = new Random(1);
+    HistogramSnapshot a = populated(random, 500).snapshot();
+    HistogramSnapshot b = populated(random, 1000).snapshot();
+    HistogramSnapshot c = populated(random, 2000).snapshot();
+
+    HistogramSnapshot left = a.merge(b).merge(c);
+    HistogramSnapshot right = a.merge(b.merge(c));
+
+    assertThat(left.size(), is(a.size() + b.size() + c.size()));
+    assertThat(right.size(), is(left.size()));
+    assertThat(left.getBuckets().toString(), is(right.getBuckets().toString()));
+    for (double q : QUANTILES) {
+      assertArrayEquals(left.getQuantileBounds(q), right.getQuantileBounds(q), 0.0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeOfIncompatibleSnapshotsFails() {
+    new BarSplittingBiasedHistogram(0.7, 10, 100).snapshot().merge(new BarSplittingBiasedHistogram(0.8, 10, 100).snapshot());
+  }
+
+  @Test
+  public void testCompactionBoundsBarCount() {
+    Random random = new Random(2);
+    HistogramSnapshot aggregate = populated(random, 1000).snapshot();
+    long size = aggregate.size();
+    for (int i = 0; i < 100; i++) {
+      HistogramSnapshot node = populated(random, 1000).snapshot();
+      size += node.size();
+      aggregate = aggregate.merge(node).compact(200);
+      assertThat(aggregate.barCount(), lessThanOrEqualTo(200));
+    }
+
+    assertThat(aggregate.size(), is(size));
+    assertThat(aggregate.getBuckets().stream().mapToDouble(Histogram.Bucket::count).sum(), closeTo(size, 1e-6));
+    assertThat(aggregate.getQuantileBounds(0.5)[0], lessThanOrEqualTo(1000.0));
+    assertThat(aggregate.getQuantileBounds(0.5)[1], closeTo(1000.0, 100.0));
+  }
+
+  @Test
+  public void testBoundedMergeAcrossManySnapshots() {
+    Random random = new Random(3);
+    HistogramSnapshot aggregate = populated(random, 1000).snapshot();
+    long size = aggregate.size();
+    for (int i = 0; i < 2000; i++) {
+      HistogramSnapshot node = populated(random, 100).snapshot();
+      size += node.size();
+      aggregate = aggregate.merge(node, 200);
+      assertThat(aggregate.barCount(), lessThanOrEqualTo(200));
+    }
+
+    assertThat(aggregate.size(), is(size));
+    assertThat(aggregate.getBuckets().stream().mapToDouble(Histogram.Bucket::count).sum(), closeTo(size, 1e-3));
+  }
+
+  @Test
+  public void testCompactionOfLargeAggregate() {
+    Random random = new Random(4);
+    HistogramSnapshot aggregate = populated(random, 1000).snapshot();
+    for (int i = 0; i < 500; i++) {
+      aggregate = aggregate.merge(populated(random, 100).snapshot());
+    }
+    HistogramSnapshot compacted = aggregate.compact(100);
+    assertThat(compacted.barCount(), lessThanOrEqualTo(100));
+    assertThat(compacted.size(), is(aggregate.size()));
+    assertThat(compacted.getBuckets().stream().mapToDouble(Histogram.Bucket::count).sum(), closeTo(aggregate.size(), 1e-3));
+  }
+
+  private static BarSplittingBiasedHistogram populated(Random random, int count) {
+    BarSplittingBiasedHistogram histogram = new BarSplittingBiasedHistogram(0.7, 20, Long.MAX_VALUE);
+    range(0, count).forEach(i -> histogram.event(random.nextDouble() * 2000, i));
+    return histogram;
+  }
+
+  private static byte[] encode(HistogramSnapshot snapshot) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      snapshot.writeTo(out);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -23,7 +23,6 @@ import org.terracotta.statistics.derived.histogram.StripedHistogram;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.IntStream;
@@ -40,7 +39,6 @@ import static org.hamcrest.core.IsCollectionContaining.hasItems;
 import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
-import static org.terracotta.statistics.derived.histogram.StripedHistogram.mergeBars;
 
 public class StripedHistogramTest {
 
@@ -66,6 +64,25 @@ public class StripedHistogramTest {
     assertThat(hist.getQuantileBounds(1.0)[1], is(Double.NaN));
   }
 
+  @Test
+  public void testSnapshotIsUnaffectedByLaterEvents() {
+    StripedHistogram hist = new StripedHistogram(10, 100);
+    range(0, 100).parallel().forEach(i -> hist.event(i, i));
+
+    HistogramSnapshot snapshot = hist.snapshot();
+    double[] median = snapshot.getQuantileBounds(0.5);
+    List<Histogram.Bucket> buckets = snapshot.getBuckets();
+
+    range(100, 200).parallel().forEach(i -> hist.event(i, i));
+
+    assertThat(snapshot.size(), is(100L));
+    assertArrayEquals(snapshot.getQuantileBounds(0.5), median, 0.0);
+    assertThat(snapshot.getBuckets(), is(buckets));
+    assertThat(snapshot.getMinimum(), is(0.0));
+    assertThat(snapshot.getMaximum(), is(99.0));
+    assertArrayEquals(hist.getQuantileBounds(1.0), hist.snapshot().getQuantileBounds(1.0), 0.0);
+  }
+
   @Test
   public void mergeOfContinuousBarsIsNoOp() {
     List<double[]> bars = range(0, 9).mapToObj(i -> new double[]{i, i + 1, i}).collect(toList());
@@ -115,8 +132,17 @@ public class StripedHistogramTest {
   }
 
   private static List<double[]> merge(List<double[]> bars) {
-    List<double[]> merged = new LinkedList<>(bars);
-    mergeBars(merged);
+    HistogramSnapshot.Bars flattened = new HistogramSnapshot.Bars(
+        bars.stream().mapToDouble(bar -> bar[0]).toArray(),
+        bars.stream().mapToDouble(bar -> bar[1]).toArray(),
+        bars.stream().mapToDouble(bar -> bar[2]).toArray());
+    List<double[]> merged;
+    if (flattened.merge()) {
+      merged = range(0, flattened.size)
+          .mapToObj(i -> new double[] {flattened.minimums[i], flattened.maximums[i], flattened.counts[i]}).collect(toList());
+    } else {
+      merged = bars;
+    }
 
     assertThat(merged.stream().mapToDouble(a -> a[0]).min(), is(bars.stream().mapToDouble(a -> a[0]).min()));
     assertThat(merged.stream().mapToDouble(a -> a[1]).max(), is(bars.stream().mapToDouble(a -> a[1]).max()));
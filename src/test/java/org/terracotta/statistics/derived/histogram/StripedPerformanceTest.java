@@ -0,0 +1,268 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.histogram;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Compares the padded, backing off {@link Striped} against the previous unpadded, spinning implementation.
+ */
+@Ignore
+public class StripedPerformanceTest {
+
+  private static final long RUN_NANOS = SECONDS.toNanos(5);
+
+  @Test
+  public void testThroughputScaling() throws Exception {
+    runScaling("padded", () -> {
+      StripedHistogram histogram = new StripedHistogram(0.75, 20, Long.MAX_VALUE);
+      return new Recorder() {
+        @Override
+        public void event(double value, long time) {
+          histogram.event(value, time);
+        }
+
+        @Override
+        public long stripes() {
+          return histogram.stream().count();
+        }
+      };
+    });
+  }
+
+  @Test
+  public void testUnpaddedThroughputScaling() throws Exception {
+    runScaling("unpadded", () -> {
+      UnpaddedStriped<BarSplittingBiasedHistogram> histogram = new UnpaddedStriped<>(() -> new BarSplittingBiasedHistogram(0.75, 20, Long.MAX_VALUE));
+      return new Recorder() {
+        @Override
+        public void event(double value, long time) {
+          histogram.process(h -> h.event(value, time));
+        }
+
+        @Override
+        public long stripes() {
+          return histogram.stripes();
+        }
+      };
+    });
+  }
+
+  private static void runScaling(String name, Supplier<Recorder> factory) throws Exception {
+    for (int threads = 1; threads <= 64; threads <<= 1) {
+      Recorder histogram = factory.get();
+      LongAdder events = new LongAdder();
+      CyclicBarrier barrier = new CyclicBarrier(threads);
+
+      List<Thread> workers = new ArrayList<>(threads);
+      for (int t = 0; t < threads; t++) {
+        Thread worker = new Thread(() -> {
+          try {
+            barrier.await();
+          } catch (Exception e) {
+            throw new AssertionError(e);
+          }
+          long count = 0;
+          long end = System.nanoTime() + RUN_NANOS;
+          while (System.nanoTime() < end) {
+            for (int i = 0; i < 1000; i++) {
+              histogram.event(count & 0xfff, count);
+              count++;
+            }
+          }
+          events.add(count);
+        });
+        worker.start();
+        workers.add(worker);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      System.out.println(name + ", " + threads + " threads: " + (events.sum() * SECONDS.toNanos(1) / RUN_NANOS)
+          + " events/s across " + histogram.stripes() + " stripes");
+    }
+  }
+
+  interface Recorder {
+
+    void event(double value, long time);
+
+    long stripes();
+  }
+
+  /**
+   * The recording path of {@link Striped} before cell padding, contention backoff and stripe retirement.
+   */
+  static class UnpaddedStriped<T> {
+
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadLocal<Integer> threadHash = ThreadLocal.withInitial(() -> 0);
+
+    static final class Cell<T> {
+
+      @SuppressWarnings("rawtypes")
+      static final AtomicIntegerFieldUpdater<Cell> GUARD_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Cell.class, "guard");
+
+      final T entity;
+      volatile int guard;
+
+      Cell(T value) {
+        entity = value;
+      }
+
+      boolean process(Consumer<T> process) {
+        if (GUARD_UPDATER.compareAndSet(this, 0, 1)) {
+          try {
+            process.accept(entity);
+            return true;
+          } finally {
+            GUARD_UPDATER.set(this, 0);
+          }
+        } else {
+          return false;
+        }
+      }
+    }
+
+    private final AtomicInteger stripeGuard = new AtomicInteger();
+    private final Supplier<T> constructor;
+    private final Cell<T> base;
+    private volatile Cell<T>[] cells;
+
+    UnpaddedStriped(Supplier<T> constructor) {
+      this.constructor = constructor;
+      this.base = new Cell<>(constructor.get());
+    }
+
+    long stripes() {
+      Cell<T>[] cs = cells;
+      long stripes = 1;
+      if (cs != null) {
+        for (Cell<T> cell : cs) {
+          if (cell != null) {
+            stripes++;
+          }
+        }
+      }
+      return stripes;
+    }
+
+    void process(Consumer<T> process) {
+      Cell<T>[] cs = cells;
+      if (cs != null || !base.process(process)) {
+        Cell<T> cell = null;
+        boolean contended = false;
+        int hash = threadHash.get();
+        if (cs == null || (cell = cs[hash & (cs.length - 1)]) == null || (contended = !cell.process(process))) {
+          processWithContention(hash, process, contended);
+        }
+      }
+    }
+
+    private void processWithContention(int hash, Consumer<T> process, boolean contended) {
+      if (hash == 0) {
+        threadHash.set((hash = ThreadLocalRandom.current().nextInt()));
+        contended = false;
+      }
+
+      boolean collide = false;
+      for (;;) {
+        Cell<T>[] cs;
+        Cell<T> cell;
+        if ((cs = cells) != null) {
+          int n = cs.length;
+          if ((cell = cs[(n - 1) & hash]) == null) {
+            if (stripeGuard.get() == 0) {
+              Cell<T> r = new Cell<>(constructor.get());
+              r.process(process);
+              if (stripeGuard.compareAndSet(0, 1)) {
+                try {
+                  Cell<T>[] rereadCells = cells;
+                  int j;
+                  if (rereadCells != null && rereadCells[j = (rereadCells.length - 1) & hash] == null) {
+                    rereadCells[j] = r;
+                    return;
+                  }
+                } finally {
+                  stripeGuard.set(0);
+                }
+                continue;
+              }
+            }
+            collide = false;
+          } else if (contended) {
+            contended = false;
+          } else if (cell.process(process)) {
+            return;
+          } else if (n >= NCPU || cells != cs) {
+            collide = false;
+          } else if (!collide) {
+            collide = true;
+          } else if (stripeGuard.compareAndSet(0, 1)) {
+            try {
+              if (cells == cs) {
+                @SuppressWarnings("unchecked")
+                Cell<T>[] rs = (Cell<T>[]) new Cell<?>[cs.length << 1];
+                System.arraycopy(cs, 0, rs, 0, cs.length);
+                cells = rs;
+              }
+            } finally {
+              stripeGuard.set(0);
+            }
+            collide = false;
+            continue;
+          }
+          hash ^= hash << 13;
+          hash ^= hash >>> 17;
+          hash ^= hash << 5;
+          threadHash.set(hash);
+        } else if (stripeGuard.get() == 0 && cells == null && stripeGuard.compareAndSet(0, 1)) {
+          try {
+            if (cells == null) {
+              @SuppressWarnings("unchecked")
+              Cell<T>[] newCells = (Cell<T>[]) new Cell<?>[2];
+              cell = new Cell<>(constructor.get());
+              cell.process(process);
+              newCells[hash & 1] = cell;
+              cells = newCells;
+              return;
+            }
+          } finally {
+            stripeGuard.set(0);
+          }
+        } else if (base.process(process)) {
+          return;
+        }
+      }
+    }
+  }
+}
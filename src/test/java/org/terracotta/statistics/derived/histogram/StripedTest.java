@@ -85,6 +85,26 @@ public class StripedTest {
     verify(fooStripe).foo();
   }
 
+  @Test
+  public void idleStripesAreRetired() throws InterruptedException {
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    Striped<int[]> striped = new Striped<>(() -> new int[1]);
+
+    Thread t1 = runInThread(() -> striped.process(a -> await(barrier)));
+    Thread t2 = runInThread(() -> striped.process(a -> await(barrier)));
+    t1.join();
+    t2.join();
+
+    long stripes = striped.stream().count();
+    assertThat(stripes > 1, is(true));
+    assertThat(striped.retire(a -> a[0] != 0), is(0));
+    assertThat(striped.retire(a -> a[0] == 0), is((int) stripes - 1));
+    assertThat(striped.stream().count(), is(1L));
+
+    striped.process(a -> a[0]++);
+    assertThat(striped.stream().mapToInt(a -> a[0]).sum(), is(1));
+  }
+
   @Test
   public void allExecutionsOccur() throws InterruptedException {
     Striped<int[]> striped = new Striped<>(() -> new int[1]);
@@ -104,6 +124,14 @@ public class StripedTest {
     Object foo();
   }
 
+  private static void await(CyclicBarrier barrier) {
+    try {
+      barrier.await();
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
   Thread runInThread(Runnable r) throws InterruptedException {
     Thread t = new Thread(r);
     t.start();
@@ -0,0 +1,113 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.latency;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.terracotta.statistics.MutableTimeSource;
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.TimeMocking;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class Jsr107LatencyMonitorTest {
+
+  public static final MutableTimeSource SOURCE = TimeMocking.push(new MutableTimeSource());
+
+  enum Result {HIT, MISS}
+
+  @AfterClass
+  public static void installTimeSource() {
+    TimeMocking.pop();
+  }
+
+  @Test
+  public void testMicrosecondSemantics() {
+    Jsr107LatencyMonitor<Result> monitor = new Jsr107LatencyMonitor<>(EnumSet.of(Result.HIT), 1.0);
+    assertThat(monitor.average(), is(0.0));
+    assertThat(monitor.minimum(), is(0L));
+    assertThat(monitor.maximum(), is(0L));
+
+    monitor.end(Time.time(), 1_000L, Result.HIT);
+    monitor.end(Time.time(), 3_000L, Result.HIT);
+    monitor.end(Time.time(), 1_000_000L, Result.MISS);
+
+    assertThat(monitor.average(), is(2.0));
+    assertThat(monitor.minimum(), is(1L));
+    assertThat(monitor.maximum(), is(3L));
+  }
+
+  @Test
+  public void testClear() {
+    Jsr107LatencyMonitor<Result> monitor = new Jsr107LatencyMonitor<>(EnumSet.allOf(Result.class), 1.0);
+    monitor.end(Time.time(), 5_000L, Result.HIT);
+    monitor.clear();
+    assertThat(monitor.average(), is(0.0));
+    assertThat(monitor.maximum(), is(0L));
+
+    monitor.end(Time.time(), 2_000L, Result.MISS);
+    assertThat(monitor.average(), is(2.0));
+    assertThat(monitor.minimum(), is(2L));
+  }
+
+  @Test
+  public void testClearRacingWithEvents() throws InterruptedException {
+    Jsr107LatencyMonitor<Result> monitor = new Jsr107LatencyMonitor<>(EnumSet.allOf(Result.class), 1.0);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          monitor.end(0L, 1_000L, Result.HIT);
+        }
+      });
+      threads[t].start();
+    }
+    while (threads[0].isAlive()) {
+      monitor.clear();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    //every surviving event is complete - total and count agree exactly
+    assertThat(monitor.minimum(), is(monitor.maximum()));
+    assertThat(monitor.average(), is(monitor.maximum() == 0L ? 0.0 : 1.0));
+  }
+
+  @Test
+  public void testSlidingWindow() {
+    Jsr107LatencyMonitor<Result> monitor = new Jsr107LatencyMonitor<>(EnumSet.of(Result.HIT), 1.0, 1, TimeUnit.SECONDS);
+    monitor.end(Time.time(), 10_000L, Result.HIT);
+    SOURCE.advanceTime(600, TimeUnit.MILLISECONDS);
+    monitor.end(Time.time(), 2_000L, Result.HIT);
+    assertThat(monitor.average(), is(6.0));
+    assertThat(monitor.maximum(), is(10L));
+
+    SOURCE.advanceTime(600, TimeUnit.MILLISECONDS);
+    assertThat(monitor.average(), is(2.0));
+    assertThat(monitor.maximum(), is(2L));
+
+    monitor.clear();
+    assertThat(monitor.average(), is(0.0));
+
+    SOURCE.advanceTime(2, TimeUnit.SECONDS);
+    assertThat(monitor.minimum(), is(0L));
+  }
+}
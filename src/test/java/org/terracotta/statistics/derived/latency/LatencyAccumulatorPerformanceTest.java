@@ -0,0 +1,99 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.latency;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Compares the striped cell {@link LatencyAccumulator} against the previous four adder implementation.
+ */
+@Ignore
+public class LatencyAccumulatorPerformanceTest {
+
+  private static final long RUN_NANOS = SECONDS.toNanos(5);
+
+  @Test
+  public void testStripedCellThroughput() throws Exception {
+    runScaling("striped cells", () -> LatencyAccumulator.empty()::accumulate);
+  }
+
+  @Test
+  public void testFourAdderThroughput() throws Exception {
+    runScaling("four adders", () -> new FourAdderAccumulator()::accumulate);
+  }
+
+  private static void runScaling(String name, Supplier<LongConsumer> factory) throws Exception {
+    for (int threads = 1; threads <= 64; threads <<= 1) {
+      LongConsumer accumulator = factory.get();
+      LongAdder events = new LongAdder();
+      CyclicBarrier barrier = new CyclicBarrier(threads);
+
+      List<Thread> workers = new ArrayList<>(threads);
+      for (int t = 0; t < threads; t++) {
+        Thread worker = new Thread(() -> {
+          try {
+            barrier.await();
+          } catch (Exception e) {
+            throw new AssertionError(e);
+          }
+          long count = 0;
+          long end = System.nanoTime() + RUN_NANOS;
+          while (System.nanoTime() < end) {
+            for (int i = 0; i < 1000; i++) {
+              accumulator.accept(count & 0xfff);
+              count++;
+            }
+          }
+          events.add(count);
+        });
+        worker.start();
+        workers.add(worker);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      System.out.println(name + ", " + threads + " threads: " + (events.sum() * SECONDS.toNanos(1) / RUN_NANOS) + " events/s");
+    }
+  }
+
+  static class FourAdderAccumulator {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator minimum = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maximum = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    void accumulate(long latency) {
+      count.increment();
+      total.add(latency);
+      minimum.accumulate(latency);
+      maximum.accumulate(latency);
+    }
+  }
+}
@@ -94,4 +94,40 @@ public class LatencyAccumulatorTest {
     assertThat(a3.minimum(), is(1L));
     assertThat(a3.maximum(), is(6L));
   }
+
+  @Test
+  public void testConcurrentAccumulation() throws InterruptedException {
+    LatencyAccumulator stats = LatencyAccumulator.empty();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      long offset = t * 100_000L;
+      threads[t] = new Thread(() -> {
+        for (long i = 1; i <= 100_000L; i++) {
+          stats.accumulate(offset + i);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    LatencySnapshot snapshot = stats.snapshot();
+    assertThat(snapshot.count(), is(400_000L));
+    assertThat(snapshot.total(), is(400_000L * 400_001L / 2));
+    assertThat(snapshot.minimum(), is(1L));
+    assertThat(snapshot.maximum(), is(400_000L));
+  }
+
+  @Test
+  public void testReset() {
+    LatencyAccumulator stats = LatencyAccumulator.accumulator(1, 2, 3);
+    stats.reset();
+    assertThat(stats.isEmpty(), is(true));
+    assertThat(stats.minimum(), nullValue());
+    assertThat(stats.maximum(), nullValue());
+    stats.accumulate(7L);
+    assertThat(stats.minimum(), is(7L));
+    assertThat(stats.maximum(), is(7L));
+  }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.latency;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.terracotta.statistics.MutableTimeSource;
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.TimeMocking;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class LatencyExponentialMovingAverageTest {
+
+  public static final MutableTimeSource SOURCE = TimeMocking.push(new MutableTimeSource());
+
+  @AfterClass
+  public static void installTimeSource() {
+    TimeMocking.pop();
+  }
+
+  @Test
+  public void testNoEventsAverage() {
+    LatencyExponentialMovingAverage average = LatencyExponentialMovingAverage.oneMinute();
+    assertThat(average.average(), is(Double.NaN));
+    assertThat(average.type(), is(StatisticType.GAUGE));
+  }
+
+  @Test
+  public void testFirstTickSeedsAverage() {
+    LatencyExponentialMovingAverage average = LatencyExponentialMovingAverage.oneMinute();
+    average.event(Time.time(), 100L);
+    average.event(Time.time(), 300L);
+    assertThat(average.average(), is(Double.NaN));
+    SOURCE.advanceTime(5, TimeUnit.SECONDS);
+    assertThat(average.average(), is(200.0));
+  }
+
+  @Test
+  public void testAverageTracksChangingLatency() {
+    LatencyExponentialMovingAverage average = LatencyExponentialMovingAverage.oneMinute();
+    for (int second = 0; second < 600; second++) {
+      average.event(Time.time(), 100L);
+      SOURCE.advanceTime(1, TimeUnit.SECONDS);
+    }
+    assertThat(average.average(), closeTo(100.0, 0.001));
+
+    for (int second = 0; second < 60; second++) {
+      average.event(Time.time(), 200L);
+      SOURCE.advanceTime(1, TimeUnit.SECONDS);
+    }
+    assertThat(average.average(), greaterThan(150.0));
+    assertThat(average.average(), lessThan(200.0));
+  }
+
+  @Test
+  public void testIdleIntervalsDoNotMoveAverage() {
+    LatencyExponentialMovingAverage average = LatencyExponentialMovingAverage.oneMinute();
+    average.event(Time.time(), 100L);
+    SOURCE.advanceTime(1, TimeUnit.HOURS);
+    assertThat(average.average(), is(100.0));
+  }
+}
@@ -94,4 +94,38 @@ public class LatencySimpleMovingAverageTest {
     assertThat(average.minimum(), nullValue());
     assertThat(average.maximum(), nullValue());
   }
+
+  @Test
+  public void testSnapshotIsConsistent() {
+    LatencySimpleMovingAverage average = new LatencySimpleMovingAverage(100, TimeUnit.MILLISECONDS);
+    assertThat(average.snapshot().isEmpty(), is(true));
+    for (long latency = 1; latency <= 10; latency++) {
+      average.event(Time.time(), latency);
+      SOURCE.advanceTime(5, TimeUnit.MILLISECONDS);
+    }
+    LatencySnapshot snapshot = average.snapshot();
+    assertThat(snapshot.count(), is(10L));
+    assertThat(snapshot.total(), is(55L));
+    assertThat(snapshot.minimum(), is(1L));
+    assertThat(snapshot.maximum(), is(10L));
+    assertThat(snapshot.average(), is(5.5));
+  }
+
+  @Test
+  public void testPartitionsAreReusedAcrossManyWindows() {
+    LatencySimpleMovingAverage average = new LatencySimpleMovingAverage(100, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < 1000; i++) {
+      average.event(Time.time(), 1000L);
+      SOURCE.advanceTime(3, TimeUnit.MILLISECONDS);
+    }
+    SOURCE.advanceTime(30, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < 20; i++) {
+      average.event(Time.time(), i);
+      SOURCE.advanceTime(4, TimeUnit.MILLISECONDS);
+    }
+    LatencySnapshot snapshot = average.snapshot();
+    assertThat(snapshot.count(), is(20L));
+    assertThat(snapshot.minimum(), is(0L));
+    assertThat(snapshot.maximum(), is(19L));
+  }
 }
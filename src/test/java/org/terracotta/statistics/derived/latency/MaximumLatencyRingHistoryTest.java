@@ -0,0 +1,140 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.latency;
+
+import org.junit.Test;
+import org.terracotta.statistics.Sample;
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.Time;
+
+import java.util.List;
+
+import static java.lang.Thread.sleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class MaximumLatencyRingHistoryTest {
+
+  private static final long WINDOW = MILLISECONDS.toNanos(100);
+
+  @Test
+  public void type() {
+    MaximumLatencyRingHistory latencyHistory = new MaximumLatencyRingHistory(2, 100, MILLISECONDS, Time::absoluteTime);
+    assertThat(latencyHistory.type(), equalTo(StatisticType.GAUGE));
+  }
+
+  @Test
+  public void value() throws InterruptedException {
+    MaximumLatencyRingHistory latencyHistory = new MaximumLatencyRingHistory(2, 100, MILLISECONDS, Time::absoluteTime);
+
+    assertThat(latencyHistory.value(), equalTo(null));
+
+    latencyHistory.event(Time.time(), 1);
+    latencyHistory.event(Time.time(), 3);
+    latencyHistory.event(Time.time(), 2);
+    assertThat(latencyHistory.value(), equalTo(3L));
+
+    sleep(200);
+    assertThat(latencyHistory.value(), equalTo(null));
+
+    latencyHistory.event(Time.time(), 2);
+    assertThat(latencyHistory.value(), equalTo(2L));
+  }
+
+  @Test
+  public void historyKeepsMostRecentWindows() {
+    MaximumLatencyRingHistory latencyHistory = new MaximumLatencyRingHistory(3, 100, MILLISECONDS, Time::absoluteTime);
+    long t0 = Time.time();
+    for (int window = 0; window < 10; window++) {
+      latencyHistory.event(t0 + window * WINDOW, window);
+      latencyHistory.event(t0 + window * WINDOW + 1, window * 10);
+    }
+
+    List<Sample<Long>> history = latencyHistory.history();
+    assertThat(history.size(), equalTo(3));
+    assertThat(history.get(0).getSample(), equalTo(70L));
+    assertThat(history.get(1).getSample(), equalTo(80L));
+    assertThat(history.get(2).getSample(), equalTo(90L));
+    assertThat(history.get(1).getTimestamp() - history.get(0).getTimestamp(), equalTo(100L));
+  }
+
+  @Test
+  public void historyFillsCallerArrays() {
+    MaximumLatencyRingHistory latencyHistory = new MaximumLatencyRingHistory(1000, 100, MILLISECONDS, Time::absoluteTime);
+    long t0 = Time.time();
+    for (int window = 0; window < 5; window++) {
+      latencyHistory.event(t0 + window * WINDOW, window);
+    }
+
+    long[] timestamps = new long[3];
+    long[] values = new long[3];
+    assertThat(latencyHistory.history(timestamps, values), equalTo(3));
+    assertThat(values[0], equalTo(2L));
+    assertThat(values[2], equalTo(4L));
+
+    long[] all = new long[10];
+    assertThat(latencyHistory.history(new long[10], all), equalTo(5));
+    assertThat(all[0], equalTo(0L));
+  }
+
+  @Test
+  public void historySince() {
+    MaximumLatencyRingHistory latencyHistory = new MaximumLatencyRingHistory(10, 100, MILLISECONDS, Time::absoluteTime);
+    long t0 = Time.time();
+    long t1 = Time.absoluteTime();
+    latencyHistory.event(t0, 3);
+    latencyHistory.event(t0 + 2 * WINDOW, 1);
+
+    List<Sample<Long>> history = latencyHistory.history(t1 - 10);
+    assertThat(history.size(), equalTo(2));
+    assertThat(history.get(0).getSample(), equalTo(3L));
+    assertThat(history.get(0).getTimestamp() - t1, lessThan(10L));
+
+    history = latencyHistory.history(t1 + 100);
+    assertThat(history.size(), equalTo(1));
+    assertThat(history.get(0).getSample(), equalTo(1L));
+  }
+
+  @Test
+  public void concurrentMaximum() throws InterruptedException {
+    MaximumLatencyRingHistory latencyHistory = new MaximumLatencyRingHistory(2, 1, SECONDS, Time::absoluteTime);
+    long t0 = Time.time();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      long offset = t;
+      threads[t] = new Thread(() -> {
+        for (long i = 0; i < 100_000; i++) {
+          latencyHistory.event(t0, i * threads.length + offset);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(latencyHistory.history().size(), equalTo(1));
+    assertThat(latencyHistory.history().get(0).getSample(), equalTo(100_000L * threads.length - 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void emptyHistoryIsRejected() {
+    new MaximumLatencyRingHistory(0, 100, MILLISECONDS, Time::absoluteTime);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.terracotta.statistics.MutableTimeSource;
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.TimeMocking;
+import org.terracotta.statistics.registry.StatisticRegistry;
+import org.terracotta.util.Outcome;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class DistinctKeysTest {
+
+  public static final MutableTimeSource SOURCE = TimeMocking.push(new MutableTimeSource());
+
+  @AfterClass
+  public static void installTimeSource() {
+    TimeMocking.pop();
+  }
+
+  @Test
+  public void testLifetimeCount() {
+    DistinctKeys<Outcome> keys = new DistinctKeys<>(EnumSet.of(Outcome.GOOD), 12);
+    for (int i = 0; i < 1000; i++) {
+      keys.end(Time.time(), 0L, Outcome.GOOD, i % 500);
+      keys.end(Time.time(), 0L, Outcome.BAD, "bad" + i);
+    }
+    keys.end(Time.time(), 0L, Outcome.GOOD);
+    assertThat((double) keys.value(), closeTo(500, 10));
+  }
+
+  @Test
+  public void testWindowedCount() {
+    DistinctKeys<Outcome> keys = new DistinctKeys<>(EnumSet.allOf(Outcome.class), 12, 1, TimeUnit.MINUTES);
+    for (int i = 0; i < 1000; i++) {
+      keys.end(Time.time(), 0L, Outcome.GOOD, "old" + i);
+    }
+    SOURCE.advanceTime(50, TimeUnit.SECONDS);
+    for (int i = 0; i < 200; i++) {
+      keys.end(Time.time(), 0L, Outcome.GOOD, "new" + i);
+    }
+    assertThat((double) keys.value(), closeTo(1200, 30));
+
+    SOURCE.advanceTime(30, TimeUnit.SECONDS);
+    assertThat((double) keys.value(), closeTo(200, 5));
+
+    SOURCE.advanceTime(2, TimeUnit.MINUTES);
+    assertThat(keys.value(), is(0L));
+  }
+
+  @Test
+  public void testRegistration() {
+    DistinctKeys<Outcome> keys = new DistinctKeys<>(EnumSet.allOf(Outcome.class), 10);
+    keys.end(Time.time(), 0L, Outcome.GOOD, "a");
+    keys.end(Time.time(), 0L, Outcome.UGLY, "b");
+
+    StatisticRegistry registry = new StatisticRegistry(this, Time::absoluteTime);
+    registry.registerStatistic("Cache:DistinctKeys", keys);
+    assertThat(registry.<Long>queryStatistic("Cache:DistinctKeys").get().getLatestSampleValue().get(), is(2L));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class HyperLogLogTest {
+
+  @Test
+  public void testEmptyEstimate() {
+    assertThat(new HyperLogLog(12).estimate(), is(0L));
+  }
+
+  @Test
+  public void testSmallCardinalitiesAreNearExact() {
+    HyperLogLog sketch = new HyperLogLog(14);
+    for (int i = 0; i < 100; i++) {
+      sketch.offer("key" + i);
+      sketch.offer("key" + i);
+    }
+    assertThat((double) sketch.estimate(), closeTo(100, 2));
+  }
+
+  @Test
+  public void testLargeCardinalityAccuracy() {
+    for (int precision : new int[] {10, 12, 14}) {
+      HyperLogLog sketch = new HyperLogLog(precision);
+      int n = 1_000_000;
+      for (int i = 0; i < n; i++) {
+        sketch.offer(i);
+      }
+      double standardError = 1.04 / Math.sqrt(1 << precision);
+      assertThat((double) sketch.estimate(), closeTo(n, 3 * standardError * n));
+    }
+  }
+
+  @Test
+  public void testMergeEstimatesUnion() {
+    HyperLogLog a = new HyperLogLog(12);
+    HyperLogLog b = new HyperLogLog(12);
+    for (int i = 0; i < 60_000; i++) {
+      a.offer(i);
+      b.offer(i + 40_000);
+    }
+    a.merge(b);
+    assertThat((double) a.estimate(), closeTo(100_000, 5_000));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeOfDifferentPrecisionsIsRejected() {
+    new HyperLogLog(10).merge(new HyperLogLog(11));
+  }
+
+  @Test
+  public void testEncodingRoundTrip() throws IOException {
+    HyperLogLog sketch = new HyperLogLog(8);
+    for (int i = 0; i < 10_000; i++) {
+      sketch.offer(i);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    sketch.writeTo(new DataOutputStream(bytes));
+    assertThat(bytes.size(), is(2 + 256));
+
+    HyperLogLog decoded = HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertThat(decoded.precision(), is(8));
+    assertThat(decoded.estimate(), is(sketch.estimate()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownEncodingIsRejected() throws IOException {
+    HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[] {99, 8})));
+  }
+
+  @Test
+  public void testMaximalRegisterIsAccepted() throws IOException {
+    byte[] encoding = new byte[2 + 16];
+    encoding[0] = 1;
+    encoding[1] = 4;
+    encoding[2] = 64 - 4 + 1;
+    assertThat(HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(encoding))).precision(), is(4));
+  }
+
+  @Test(expected = IOException.class)
+  public void testImpossibleRegisterIsRejected() throws IOException {
+    byte[] encoding = new byte[2 + 16];
+    encoding[0] = 1;
+    encoding[1] = 4;
+    encoding[2] = 64 - 4 + 2;
+    HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(encoding)));
+  }
+
+  @Test
+  public void testConcurrentOffers() throws InterruptedException {
+    HyperLogLog concurrent = new HyperLogLog(12);
+    HyperLogLog serial = new HyperLogLog(12);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      int offset = t * 50_000;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 50_000; i++) {
+          concurrent.offer(offset + i);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int i = 0; i < 200_000; i++) {
+      serial.offer(i);
+    }
+    assertThat(concurrent.estimate(), is(serial.estimate()));
+  }
+
+  @Test
+  public void testClear() {
+    HyperLogLog sketch = new HyperLogLog(6);
+    sketch.offer("a");
+    sketch.clear();
+    assertThat(sketch.estimate(), is(0L));
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class SpaceSavingTest {
+
+  @Test
+  public void testExactBelowCapacity() {
+    SpaceSaving sketch = new SpaceSaving(10);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j <= i; j++) {
+        sketch.offer("key" + i, 1L);
+      }
+    }
+    Map<Object, Long> counts = new HashMap<>();
+    sketch.forEach((key, count, error) -> {
+      assertThat(error, is(0L));
+      counts.put(key, count);
+    });
+    assertThat(counts.size(), is(5));
+    assertThat(counts.get("key4"), is(5L));
+    assertThat(counts.get("key0"), is(1L));
+  }
+
+  @Test
+  public void testHeavyHittersAreRetainedWithBoundedError() {
+    Random rndm = new Random(42);
+    SpaceSaving sketch = new SpaceSaving(20);
+    Map<Object, Long> truth = new HashMap<>();
+    long total = 0;
+    for (int i = 0; i < 200_000; i++) {
+      //three heavy keys among a long tail of unique ones
+      Object key = rndm.nextInt(4) == 0 ? "heavy" + rndm.nextInt(3) : rndm.nextInt(1_000_000);
+      sketch.offer(key, 1L);
+      truth.merge(key, 1L, Long::sum);
+      total++;
+    }
+    assertThat(sketch.size(), is(20));
+
+    Map<Object, long[]> estimates = new HashMap<>();
+    sketch.forEach((key, count, error) -> estimates.put(key, new long[] {count, error}));
+    for (int h = 0; h < 3; h++) {
+      long[] estimate = estimates.get("heavy" + h);
+      long actual = truth.get("heavy" + h);
+      assertThat(estimate[0], greaterThanOrEqualTo(actual));
+      assertThat(estimate[0] - estimate[1], lessThanOrEqualTo(actual));
+      assertThat(estimate[1], lessThanOrEqualTo(total / 20));
+    }
+  }
+
+  @Test
+  public void testClear() {
+    SpaceSaving sketch = new SpaceSaving(2);
+    sketch.offer("a", 1L);
+    sketch.offer("b", 1L);
+    sketch.offer("c", 1L);
+    sketch.clear();
+    assertThat(sketch.size(), is(0));
+    sketch.offer("a", 3L);
+    sketch.forEach((key, count, error) -> {
+      assertThat(key, is("a"));
+      assertThat(count, is(3L));
+      assertThat(error, is(0L));
+    });
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright Terracotta, Inc.
+ * Copyright Super iPaaS Integration LLC, an IBM Company 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.statistics.derived.sketch;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.terracotta.statistics.MutableTimeSource;
+import org.terracotta.statistics.Table;
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.TimeMocking;
+import org.terracotta.statistics.registry.Statistic;
+import org.terracotta.statistics.registry.StatisticRegistry;
+import org.terracotta.util.Outcome;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class TopKeysTest {
+
+  public static final MutableTimeSource SOURCE = TimeMocking.push(new MutableTimeSource());
+
+  @AfterClass
+  public static void installTimeSource() {
+    TimeMocking.pop();
+  }
+
+  @Test
+  public void testTopKeysPerOutcome() {
+    TopKeys<Outcome> topKeys = new TopKeys<>(Outcome.class, 2, 1, TimeUnit.MINUTES);
+    for (int i = 0; i < 1000; i++) {
+      topKeys.end(Time.time(), 0L, Outcome.GOOD, "hot");
+      topKeys.end(Time.time(), 0L, Outcome.GOOD, i % 3 == 0 ? "warm" : "cold" + i);
+      topKeys.end(Time.time(), 0L, Outcome.BAD, "broken");
+    }
+
+    List<TopKeys.HeavyHitter> good = topKeys.top(Outcome.GOOD);
+    assertThat(good.size(), is(2));
+    assertThat(good.get(0).key(), is("hot"));
+    assertThat(good.get(0).count(), is(1000L));
+    assertThat(good.get(1).key(), is("warm"));
+
+    List<TopKeys.HeavyHitter> bad = topKeys.top(Outcome.BAD);
+    assertThat(bad.size(), is(1));
+    assertThat(bad.get(0).key(), is("broken"));
+
+    assertThat(topKeys.top(Outcome.UGLY), is(empty()));
+  }
+
+  @Test
+  public void testKeysExpireWithWindow() {
+    TopKeys<Outcome> topKeys = new TopKeys<>(Outcome.class, 1, 1, TimeUnit.MINUTES);
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, "old");
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, "old");
+    SOURCE.advanceTime(50, TimeUnit.SECONDS);
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, "new");
+    assertThat(topKeys.top(Outcome.GOOD).get(0).key(), is("old"));
+
+    SOURCE.advanceTime(30, TimeUnit.SECONDS);
+    assertThat(topKeys.top(Outcome.GOOD).get(0).key(), is("new"));
+
+    SOURCE.advanceTime(2, TimeUnit.MINUTES);
+    assertThat(topKeys.top(Outcome.GOOD), is(empty()));
+  }
+
+  @Test
+  public void testUnkeyedEventsAreIgnored() {
+    TopKeys<Outcome> topKeys = new TopKeys<>(Outcome.class, 1, 1, TimeUnit.MINUTES);
+    topKeys.end(Time.time(), 0L, Outcome.GOOD);
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, null);
+    assertThat(topKeys.top(Outcome.GOOD), is(empty()));
+  }
+
+  @Test
+  public void testTableRegistration() {
+    TopKeys<Outcome> topKeys = new TopKeys<>(Outcome.class, 3, 1, TimeUnit.MINUTES);
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, "a");
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, "a");
+    topKeys.end(Time.time(), 0L, Outcome.GOOD, "b");
+    topKeys.end(Time.time(), 0L, Outcome.BAD, 42);
+
+    StatisticRegistry registry = new StatisticRegistry(this, Time::absoluteTime);
+    registry.registerStatistic("Cache:TopKeys", topKeys.statistic());
+
+    Optional<Statistic<Table>> statistic = registry.queryStatistic("Cache:TopKeys");
+    Table table = statistic.get().getLatestSampleValue().get();
+    assertThat(table.getRowCount(), is(3));
+    assertThat(table.<String>getStatistic("GOOD#1", "key").get().value(), is("a"));
+    assertThat(table.<Long>getStatistic("GOOD#1", "count").get().value(), is(2L));
+    assertThat(table.<String>getStatistic("GOOD#2", "key").get().value(), is("b"));
+    assertThat(table.<String>getStatistic("BAD#1", "key").get().value(), is("42"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCapacityBelowKIsRejected() {
+    new TopKeys<>(Outcome.class, 4, 3, 1, TimeUnit.MINUTES);
+  }
+}